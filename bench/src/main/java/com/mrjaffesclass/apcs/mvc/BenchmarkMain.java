@@ -0,0 +1,35 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so every result
+ * comes with its allocation rate (gc.alloc.rate.norm is bytes per
+ * operation).  Any normal JMH command-line option can be added, e.g. a
+ * regular expression to pick the benchmarks to run.
+ *
+ * Usage: java -cp benchmarks.jar com.mrjaffesclass.apcs.mvc.BenchmarkMain [JMH options]
+ *
+ * @version 1.0
+ */
+public class BenchmarkMain
+{
+  /**
+   * Program entry
+   * @param args JMH command-line options
+   */
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    Options options = new OptionsBuilder()
+      .parent(new CommandLineOptions(args))
+      .addProfiler(GCProfiler.class)
+      .build();
+    new Runner(options).run();
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * WideBitBoard on each board size, so results are reported per size:
+ * legal move generation and make/unmake on seeded random midgame
+ * positions (the board about half full), and a shallow perft from the
+ * start.  Size 8 can be compared with BitBoard in
+ * MoveGenerationBenchmark and MakeMoveBenchmark.
+ *
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardSizeBenchmark
+{
+  private static final int POSITIONS = 64;
+  private static final long SEED = 20141003L;
+
+  @Param({"8", "10", "16"})
+  public int size;
+
+  private WideBitBoard[] boards;
+  private int[] firstMoves;
+  private long[] moves;
+  private long[] flipped;
+  private WideBitBoard start;
+  private Perft perft;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(SEED + this.size);
+    this.boards = new WideBitBoard[POSITIONS];
+    this.firstMoves = new int[POSITIONS];
+    int count = 0;
+    while (count < POSITIONS) {
+      WideBitBoard board = playRandom(random, this.size * this.size / 2);
+      if (board != null) {
+        long[] legal = board.newMask();
+        board.legalMoves(board.getSideToMove(), legal);
+        this.firstMoves[count] = WideBitBoard.nextSquare(legal, 0);
+        this.boards[count++] = board;
+      }
+    }
+    this.moves = this.boards[0].newMask();
+    this.flipped = this.boards[0].newMask();
+    this.start = new WideBitBoard(this.size);
+    this.perft = new Perft();
+  }
+
+  /**
+   * Play random moves until the board has the given number of discs
+   * @return The position, or null if the game ended first or the side
+   *         to move has to pass
+   */
+  private WideBitBoard playRandom(Random random, int discs) {
+    WideBitBoard board = new WideBitBoard(this.size);
+    long[] legal = board.newMask();
+    long[] flips = board.newMask();
+    while (board.countSquares(Constants.EMPTY) > this.size * this.size - discs) {
+      int count = board.legalMoves(board.getSideToMove(), legal);
+      if (count == 0) {
+        board.pass();
+        if (board.legalMoves(board.getSideToMove(), legal) == 0) {
+          return null;
+        }
+        continue;
+      }
+      int move = WideBitBoard.nextSquare(legal, 0);
+      for (int skip = random.nextInt(count); skip > 0; skip--) {
+        move = WideBitBoard.nextSquare(legal, move + 1);
+      }
+      board.makeMove(board.getSideToMove(), move, flips);
+    }
+    return board.legalMoves(board.getSideToMove(), legal) != 0 ? board : null;
+  }
+
+  /**
+   * WideBitBoard.legalMoves on each position
+   */
+  @Benchmark
+  public void legalMoves(Blackhole bh) {
+    for (WideBitBoard board : this.boards) {
+      bh.consume(board.legalMoves(board.getSideToMove(), this.moves));
+    }
+  }
+
+  /**
+   * WideBitBoard.makeMove and unmakeMove on the first legal move of
+   * each position
+   */
+  @Benchmark
+  public void makeUnmake(Blackhole bh) {
+    for (int i = 0; i < POSITIONS; i++) {
+      WideBitBoard board = this.boards[i];
+      int color = board.getSideToMove();
+      bh.consume(board.makeMove(color, this.firstMoves[i], this.flipped));
+      board.unmakeMove(color, this.firstMoves[i], this.flipped);
+    }
+  }
+
+  /**
+   * Perft to depth 6 from the starting position
+   */
+  @Benchmark
+  public long perft() {
+    return this.perft.count(this.start, 6);
+  }
+
+}
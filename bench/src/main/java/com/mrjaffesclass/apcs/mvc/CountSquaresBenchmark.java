@@ -0,0 +1,59 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Counting discs, as the view does for the score on every paint
+ *
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CountSquaresBenchmark
+{
+  @Param({"opening", "midgame", "endgame"})
+  public String phase;
+
+  private Board[] boards;
+  private BitBoard[] bitBoards;
+
+  @Setup
+  public void setup() {
+    PositionSuite suite = new PositionSuite(this.phase);
+    this.boards = new Board[PositionSuite.SIZE];
+    this.bitBoards = new BitBoard[PositionSuite.SIZE];
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      this.boards[i] = new Board(suite.squares(i));
+      this.bitBoards[i] = suite.get(i);
+    }
+  }
+
+  /**
+   * Board.countSquares for both colors of each position
+   */
+  @Benchmark
+  public void boardCountSquares(Blackhole bh) {
+    for (Board board : this.boards) {
+      bh.consume(board.countSquares(Constants.BLACK));
+      bh.consume(board.countSquares(Constants.WHITE));
+    }
+  }
+
+  /**
+   * BitBoard.countSquares for both colors of each position
+   */
+  @Benchmark
+  public void bitBoardCountSquares(Blackhole bh) {
+    for (BitBoard board : this.bitBoards) {
+      bh.consume(board.countSquares(Constants.BLACK));
+      bh.consume(board.countSquares(Constants.WHITE));
+    }
+  }
+
+}
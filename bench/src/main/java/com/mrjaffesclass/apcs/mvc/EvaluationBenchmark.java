@@ -0,0 +1,114 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Static evaluation of each position in a suite.  The square-value
+ * evaluation Search uses by default walks every disc and generates
+ * both sides' moves; the pattern evaluation is one table lookup per
+ * pattern once its indexes are up to date.  Keeping them up to date
+ * is measured separately, both incrementally over a make and unmake,
+ * as a search does it, and from scratch.  Seed weights are used; the
+ * cost doesn't depend on their values.
+ *
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark
+{
+  @Param({"opening", "midgame", "endgame"})
+  public String phase;
+
+  private long[] own;
+  private long[] opp;
+  private long[] black;
+  private long[] white;
+  private int[] colors;
+  private int[] moves;
+  private long[] flipped;
+  private PatternEvaluator[] evaluators;
+  private PatternEvaluator scratch;
+
+  @Setup
+  public void setup() {
+    PositionSuite suite = new PositionSuite(this.phase);
+    PatternWeights weights = PatternWeights.seed();
+    this.own = new long[PositionSuite.SIZE];
+    this.opp = new long[PositionSuite.SIZE];
+    this.black = new long[PositionSuite.SIZE];
+    this.white = new long[PositionSuite.SIZE];
+    this.colors = new int[PositionSuite.SIZE];
+    this.moves = new int[PositionSuite.SIZE];
+    this.flipped = new long[PositionSuite.SIZE];
+    this.evaluators = new PatternEvaluator[PositionSuite.SIZE];
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      BitBoard board = suite.get(i);
+      int color = board.getSideToMove();
+      this.colors[i] = color;
+      this.own[i] = board.getDiscs(color);
+      this.opp[i] = board.getDiscs(-color);
+      this.black[i] = board.getDiscs(Constants.BLACK);
+      this.white[i] = board.getDiscs(Constants.WHITE);
+      this.moves[i] = suite.firstMove(i);
+      this.flipped[i] = BitBoard.flips(this.own[i], this.opp[i], this.moves[i]);
+      this.evaluators[i] = new PatternEvaluator(weights);
+      this.evaluators[i].setPosition(this.black[i], this.white[i]);
+    }
+    this.scratch = new PatternEvaluator(weights);
+  }
+
+  /**
+   * Search.evaluate: square values plus mobility
+   */
+  @Benchmark
+  public void squareValues(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      bh.consume(Search.evaluate(this.own[i], this.opp[i]));
+    }
+  }
+
+  /**
+   * PatternEvaluator.evaluate with the indexes already up to date
+   */
+  @Benchmark
+  public void patterns(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      bh.consume(this.evaluators[i].evaluate(this.colors[i]));
+    }
+  }
+
+  /**
+   * PatternEvaluator.makeMove, evaluate and unmakeMove on the first
+   * legal move of each position: the cost a search pays per leaf
+   */
+  @Benchmark
+  public void patternsMakeUnmake(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      PatternEvaluator evaluator = this.evaluators[i];
+      int color = this.colors[i];
+      evaluator.makeMove(color, this.moves[i], this.flipped[i]);
+      bh.consume(evaluator.evaluate(-color));
+      evaluator.unmakeMove(color, this.moves[i], this.flipped[i]);
+    }
+  }
+
+  /**
+   * PatternEvaluator.setPosition and evaluate, reading every pattern
+   * from the board
+   */
+  @Benchmark
+  public void patternsFromScratch(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      this.scratch.setPosition(this.black[i], this.white[i]);
+      bh.consume(this.scratch.evaluate(this.colors[i]));
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Making a move and flipping discs.  Board.makeMove changes its
+ * squares, so every invocation starts from fresh copies made outside
+ * the measured code.  The make-and-unmake benchmarks leave each board
+ * as they found it, which is how a search walks the tree without
+ * copying.
+ *
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MakeMoveBenchmark
+{
+  @Param({"opening", "midgame", "endgame"})
+  public String phase;
+
+  private PositionSuite suite;
+  private Board[] boards;
+  private BitBoard[] bitBoards;
+  private Player[] players;
+  private Position[] moves;
+  private int[] moveIndexes;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    this.suite = new PositionSuite(this.phase);
+    this.boards = new Board[PositionSuite.SIZE];
+    this.bitBoards = new BitBoard[PositionSuite.SIZE];
+    this.players = new Player[PositionSuite.SIZE];
+    this.moves = new Position[PositionSuite.SIZE];
+    this.moveIndexes = new int[PositionSuite.SIZE];
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      this.players[i] = new Player(this.suite.get(i).getSideToMove());
+      this.moveIndexes[i] = this.suite.firstMove(i);
+      this.moves[i] = BitBoard.toPosition(this.moveIndexes[i]);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      this.boards[i] = new Board(this.suite.squares(i));
+      this.bitBoards[i] = this.suite.get(i).copy();
+    }
+  }
+
+  /**
+   * Board.makeMove on the first legal move of each position
+   */
+  @Benchmark
+  public void boardMakeMove(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      bh.consume(this.boards[i].makeMove(this.players[i], this.moves[i]));
+    }
+  }
+
+  /**
+   * BitBoard.makeMove on the first legal move of each position
+   */
+  @Benchmark
+  public void bitBoardMakeMove(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      bh.consume(this.bitBoards[i].makeMove(this.players[i].getColor(), this.moveIndexes[i]));
+    }
+  }
+
+  /**
+   * Board.makeMove followed by Board.unmakeMove
+   */
+  @Benchmark
+  public void boardMakeUnmake(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      MoveRecord move = this.boards[i].makeMove(this.players[i], this.moves[i]);
+      this.boards[i].unmakeMove(move);
+      bh.consume(move);
+    }
+  }
+
+  /**
+   * BitBoard.makeMove followed by BitBoard.unmakeMove
+   */
+  @Benchmark
+  public void bitBoardMakeUnmake(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      int color = this.players[i].getColor();
+      long flipped = this.bitBoards[i].makeMove(color, this.moveIndexes[i]);
+      this.bitBoards[i].unmakeMove(color, this.moveIndexes[i], flipped);
+      bh.consume(flipped);
+    }
+  }
+
+  /**
+   * BitBoard.flips alone, which doesn't change the board
+   */
+  @Benchmark
+  public void bitBoardFlips(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      BitBoard board = this.suite.get(i);
+      int color = this.players[i].getColor();
+      bh.consume(BitBoard.flips(board.getDiscs(color), board.getDiscs(-color), this.moveIndexes[i]));
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Legal move checking: the square-by-square Board methods against the
+ * single-pass BitBoard generator.  Each invocation covers every
+ * position of the suite.
+ *
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGenerationBenchmark
+{
+  @Param({"opening", "midgame", "endgame"})
+  public String phase;
+
+  private Board[] boards;
+  private BitBoard[] bitBoards;
+  private Player[] players;
+  private Position[] positions;
+
+  @Setup
+  public void setup() {
+    PositionSuite suite = new PositionSuite(this.phase);
+    this.boards = new Board[PositionSuite.SIZE];
+    this.bitBoards = new BitBoard[PositionSuite.SIZE];
+    this.players = new Player[PositionSuite.SIZE];
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      this.boards[i] = new Board(suite.squares(i));
+      this.bitBoards[i] = suite.get(i);
+      this.players[i] = new Player(suite.get(i).getSideToMove());
+    }
+    this.positions = new Position[Constants.SIZE * Constants.SIZE];
+    for (int i = 0; i < this.positions.length; i++) {
+      this.positions[i] = BitBoard.toPosition(i);
+    }
+  }
+
+  /**
+   * Board.isLegalMove on all 64 squares of each position
+   */
+  @Benchmark
+  public void boardIsLegalMove(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      for (Position position : this.positions) {
+        bh.consume(this.boards[i].isLegalMove(this.players[i], position));
+      }
+    }
+  }
+
+  /**
+   * Board.noMovesAvailable on each position
+   */
+  @Benchmark
+  public void boardNoMovesAvailable(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      bh.consume(this.boards[i].noMovesAvailable(this.players[i]));
+    }
+  }
+
+  /**
+   * BitBoard.legalMoves, all moves of each position in one pass
+   */
+  @Benchmark
+  public void bitBoardLegalMoves(Blackhole bh) {
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      bh.consume(this.bitBoards[i].legalMoves(this.players[i].getColor()));
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * View.paintComponent drawing one board into an off-screen image, so
+ * it runs headless.  Each invocation paints one position of the suite,
+ * either the whole frame or only the square a move would repaint.
+ * render picks the View's drawing: "direct" draws every shape on every
+ * paint, "cached" draws from BoardRenderer's images.
+ *
+ * @version 1.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class PaintBenchmark
+{
+  /**
+   * Frame size the Controller opens the window with
+   */
+  private static final int FRAME_SIZE = 655;
+
+  @Param({"opening", "midgame", "endgame"})
+  public String phase;
+
+  @Param({"direct", "cached"})
+  public String render;
+
+  private View[] views;
+  private BufferedImage image;
+  private Graphics2D graphics;
+  private Graphics2D squareGraphics;
+  private int next;
+
+  @Setup
+  public void setup() {
+    this.image = new BufferedImage(FRAME_SIZE, FRAME_SIZE + 50, BufferedImage.TYPE_INT_RGB);
+    this.graphics = this.image.createGraphics();
+    // Clipped to one disc, as Swing clips the repaint of a changed square
+    this.squareGraphics = this.image.createGraphics();
+    this.squareGraphics.setClip(new BoardRenderer(FRAME_SIZE - 15, FRAME_SIZE - 14).discBounds(2, 5));
+    PositionSuite suite = new PositionSuite(this.phase);
+    this.views = new View[PositionSuite.SIZE];
+    for (int i = 0; i < PositionSuite.SIZE; i++) {
+      EventBus events = new EventBus();
+      this.views[i] = new View(FRAME_SIZE, FRAME_SIZE, events, "cached".equals(this.render));
+      this.views[i].init();
+      // The view needs its graphics before it can take a board update
+      this.views[i].paintComponent(this.graphics);
+      events.publish(new BoardUpdateEvent().set(
+        new BoardSnapshot(suite.get(i), BoardSnapshot.NO_MOVE, 0), Constants.BLACK));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.graphics.dispose();
+    this.squareGraphics.dispose();
+  }
+
+  /**
+   * One full paint of the next position in the suite
+   */
+  @Benchmark
+  public BufferedImage paintComponent() {
+    this.views[this.next].paintComponent(this.graphics);
+    this.next = (this.next + 1) % PositionSuite.SIZE;
+    return this.image;
+  }
+
+  /**
+   * Repaint of a single square of the next position
+   */
+  @Benchmark
+  public BufferedImage paintSquare() {
+    this.views[this.next].paintComponent(this.squareGraphics);
+    this.next = (this.next + 1) % PositionSuite.SIZE;
+    return this.image;
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.Random;
+
+/**
+ * Repeatable benchmark positions for one phase of the game.  Each
+ * position is reached by playing seeded random moves from the starting
+ * position, so every run and every machine measures the same boards.
+ *
+ * @version 1.0
+ */
+public class PositionSuite
+{
+  /**
+   * Positions in each suite
+   */
+  public static final int SIZE = 64;
+
+  /**
+   * Fewest and most discs on the board for each phase
+   */
+  private static final int[][] DISC_RANGES = {
+    {6, 16},   // opening
+    {24, 40},  // midgame
+    {46, 56}   // endgame
+  };
+
+  private static final long SEED = 20141003L;
+
+  private final BitBoard[] boards = new BitBoard[SIZE];
+
+  /**
+   * Build a suite
+   * @param phase One of "opening", "midgame" or "endgame"
+   */
+  public PositionSuite(String phase) {
+    int[] range = DISC_RANGES[phaseIndex(phase)];
+    Random random = new Random(SEED + phaseIndex(phase));
+    int count = 0;
+    while (count < SIZE) {
+      int discs = range[0] + random.nextInt(range[1] - range[0] + 1);
+      BitBoard board = playRandom(random, discs);
+      if (board != null) {
+        this.boards[count++] = board;
+      }
+    }
+  }
+
+  /**
+   * Play random moves until the board has the given number of discs
+   * @param random Move chooser
+   * @param discs Number of discs wanted
+   * @return The position, or null if the game ended first or the side
+   *         to move has to pass
+   */
+  private static BitBoard playRandom(Random random, int discs) {
+    BitBoard board = new BitBoard();
+    while (Long.bitCount(~board.getEmpty()) < discs) {
+      long moves = board.legalMoves(board.getSideToMove());
+      if (moves == 0) {
+        if (board.legalMoves(-board.getSideToMove()) == 0) {
+          return null;
+        }
+        board.pass();
+        continue;
+      }
+      for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+        moves &= moves - 1;
+      }
+      board.makeMove(board.getSideToMove(), Long.numberOfTrailingZeros(moves));
+    }
+    return board.legalMoves(board.getSideToMove()) != 0 ? board : null;
+  }
+
+  private static int phaseIndex(String phase) {
+    switch (phase) {
+      case "opening": return 0;
+      case "midgame": return 1;
+      case "endgame": return 2;
+    }
+    throw new IllegalArgumentException("Unknown phase " + phase);
+  }
+
+  /**
+   * Get a position
+   * @param i Index from 0 to SIZE - 1
+   * @return Bitboard of the position, with the side to move set
+   */
+  public BitBoard get(int i) {
+    return this.boards[i];
+  }
+
+  /**
+   * Build a fresh square array for a position
+   * @param i Index from 0 to SIZE - 1
+   * @return Board squares set up in a 2x2 array
+   */
+  public Square[][] squares(int i) {
+    Square[][] squares = new Square[Constants.SIZE][Constants.SIZE];
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        squares[row][col] = new Square(Constants.EMPTY);
+      }
+    }
+    return this.boards[i].toSquares(squares);
+  }
+
+  /**
+   * Get the first legal move of a position
+   * @param i Index from 0 to SIZE - 1
+   * @return Bit index of the move
+   */
+  public int firstMove(int i) {
+    BitBoard board = this.boards[i];
+    return Long.numberOfTrailingZeros(board.legalMoves(board.getSideToMove()));
+  }
+
+}
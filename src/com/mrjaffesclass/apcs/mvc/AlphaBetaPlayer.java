@@ -0,0 +1,280 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Computer player that searches with negamax alpha-beta and iterative
+ * deepening.  Each move gets a fixed time budget and the best move of
+ * the deepest finished iteration is played.  With more than one
+ * thread the search runs in parallel (see ParallelSearch).
+ *
+ * Positions in the opening book named by the othello.book system
+ * property (see OpeningBook) are played from the book without a
+ * search.
+ *
+ * If the othello.weights system property names a pattern weights file
+ * (see PatternWeights), the search scores positions with the pattern
+ * evaluator instead of square values and mobility.
+ *
+ * Once few enough squares are empty the player stops guessing and
+ * solves the rest of the game with EndgameSolver.  Half the budget
+ * goes to an exact solve.  If that doesn't finish, a quarter goes to
+ * a win/loss/draw solve, whose move is played if it wins or draws.
+ * Otherwise the last quarter goes to the normal search.
+ *
+ * stop() cuts the move short from another thread: the phase running
+ * returns its best move so far and the later phases are skipped.
+ *
+ * @version 1.0
+ */
+public class AlphaBetaPlayer extends Player
+{
+  /**
+   * Time budget used when none is given, in milliseconds
+   */
+  public static final long DEFAULT_TIME_LIMIT = 1000;
+
+  /**
+   * Transposition table size used when none is given, in MB
+   */
+  public static final int DEFAULT_TABLE_SIZE = 16;
+
+  /**
+   * Empty squares at or below which the endgame solver takes over when
+   * no threshold is given
+   */
+  public static final int DEFAULT_SOLVE_EMPTIES = 18;
+
+  private final ParallelSearch search;
+
+  private final EndgameSolver solver;
+
+  private final int solveEmpties;
+
+  private final OpeningBook book;
+
+  private final long timeLimit;
+
+  private volatile boolean stopping;
+
+  private EventBus progress;
+  private final SearchProgressEvent progressEvent = new SearchProgressEvent();
+
+  /**
+   * Player constructor with the default time budget
+   * @param color   One of Constants.WHITE or Constants.BLACK
+   */
+  public AlphaBetaPlayer(int color) {
+    this(color, DEFAULT_TIME_LIMIT);
+  }
+
+  /**
+   * Player constructor
+   * @param color   One of Constants.WHITE or Constants.BLACK
+   * @param timeLimit Time budget per move in milliseconds
+   */
+  public AlphaBetaPlayer(int color, long timeLimit) {
+    this(color, timeLimit, DEFAULT_TABLE_SIZE);
+  }
+
+  /**
+   * Player constructor
+   * @param color   One of Constants.WHITE or Constants.BLACK
+   * @param timeLimit Time budget per move in milliseconds
+   * @param tableSize Transposition table size in MB, 0 for no table
+   */
+  public AlphaBetaPlayer(int color, long timeLimit, int tableSize) {
+    this(color, timeLimit, tableSize, ParallelSearch.defaultThreads());
+  }
+
+  /**
+   * Player constructor
+   * @param color   One of Constants.WHITE or Constants.BLACK
+   * @param timeLimit Time budget per move in milliseconds
+   * @param tableSize Transposition table size in MB, 0 for no table
+   * @param threads Number of search threads
+   */
+  public AlphaBetaPlayer(int color, long timeLimit, int tableSize, int threads) {
+    this(color, timeLimit, tableSize, threads, DEFAULT_SOLVE_EMPTIES);
+  }
+
+  /**
+   * Player constructor
+   * @param color   One of Constants.WHITE or Constants.BLACK
+   * @param timeLimit Time budget per move in milliseconds
+   * @param tableSize Transposition table size in MB, 0 for no table.
+   *                  The endgame solver gets a table of its own.
+   * @param threads Number of search threads
+   * @param solveEmpties Empty squares at or below which the endgame
+   *                     solver is used, 0 to never use it
+   */
+  public AlphaBetaPlayer(int color, long timeLimit, int tableSize, int threads, int solveEmpties) {
+    super(color);
+    this.timeLimit = timeLimit;
+    this.solveEmpties = solveEmpties;
+    this.search = new ParallelSearch(threads,
+      tableSize > 0 ? new TranspositionTable(tableSize) : null);
+    this.solver = solveEmpties > 0
+      ? new EndgameSolver(tableSize > 0 ? new TranspositionTable(tableSize) : null) : null;
+    this.book = OpeningBook.getDefault();
+    this.search.setPatterns(PatternWeights.getDefault());
+  }
+
+  /**
+   * Search the board for the best move
+   * @param board Game board
+   * @return A position coordinate pair of the next move. Returns null
+   *          if no move is available
+   */
+  @Override
+  Position getNextMove(Board board) {
+    long start = System.nanoTime();
+    this.stopping = false;
+    BitBoard bits = board.toBitBoard();
+    int color = this.getColor();
+    long own = bits.getDiscs(color);
+    long opp = bits.getDiscs(-color);
+    long legal = BitBoard.legalMoves(own, opp);
+    if (legal == 0) {
+      return null;
+    }
+    if (this.book != null) {
+      BookEntry entry = this.book.getBestMove(own, opp);
+      if (entry != null && (legal & (1L << entry.getMove())) != 0) {
+        return BitBoard.toPosition(entry.getMove());
+      }
+    }
+    long searchTime = this.timeLimit;
+    if (this.solver != null && Long.bitCount(bits.getEmpty()) <= this.solveEmpties) {
+      int empties = Long.bitCount(bits.getEmpty());
+      this.solver.solve(own, opp, this.timeLimit / 2);
+      if (this.solver.isComplete() && this.solver.getBestMove() >= 0) {
+        this.report(color, empties, this.solver.getBestMove(), this.solver.getScore(), start);
+        return BitBoard.toPosition(this.solver.getBestMove());
+      }
+      // If every move loses, the search picks a better try than the solver
+      int result = this.stopping ? EndgameSolver.LOSS
+        : this.solver.solveWinLossDraw(own, opp, this.timeLimit / 4);
+      if (this.solver.isComplete() && result != EndgameSolver.LOSS && this.solver.getBestMove() >= 0) {
+        this.report(color, empties, this.solver.getBestMove(), result, start);
+        return BitBoard.toPosition(this.solver.getBestMove());
+      }
+      if (this.stopping) {
+        // No time for a search; any legal move beats none
+        int move = this.solver.getBestMove();
+        return BitBoard.toPosition(move >= 0 && (legal & (1L << move)) != 0
+          ? move : Long.numberOfTrailingZeros(legal));
+      }
+      searchTime = Math.max(1, this.timeLimit / 4);
+    }
+    int move = this.search.search(own, opp, color, searchTime, Search.MAX_DEPTH);
+    return move < 0 ? null : BitBoard.toPosition(move);
+  }
+
+  /**
+   * Cut the current move short.  Safe to call from any thread; it has
+   * no effect on a move that hasn't started yet.
+   */
+  @Override
+  public void stop() {
+    this.stopping = true;
+    this.search.stop();
+    if (this.solver != null) {
+      this.solver.stop();
+    }
+  }
+
+  /**
+   * Report search iterations and endgame solves on a bus
+   * @param progress Bus to publish on, or null to stop reporting
+   */
+  @Override
+  public void setProgress(EventBus progress) {
+    this.progress = progress;
+    this.search.setProgress(progress);
+  }
+
+  /**
+   * Publish the result of an endgame solve as progress
+   */
+  private void report(int color, int empties, int move, int score, long start) {
+    if (this.progress != null) {
+      this.progress.publish(this.progressEvent.set(color, empties, move, score, this.solver.getNodes(),
+        (System.nanoTime() - start) / 1000000));
+    }
+  }
+
+  /**
+   * Get the time budget per move
+   * @return Milliseconds
+   */
+  public long getTimeLimit() {
+    return this.timeLimit;
+  }
+
+  /**
+   * Get the empty square count at which the endgame solver takes over
+   * @return Number of empty squares, 0 if the solver is never used
+   */
+  public int getSolveEmpties() {
+    return this.solveEmpties;
+  }
+
+  /**
+   * Get the endgame solver
+   * @return Solver, or null if it is never used
+   */
+  public EndgameSolver getSolver() {
+    return this.solver;
+  }
+
+  /**
+   * Get the deepest iteration that finished on the last move
+   * @return Depth in plies
+   */
+  public int getDepthReached() {
+    return this.search.getDepthReached();
+  }
+
+  /**
+   * Get the number of nodes searched on the last move
+   * @return Node count
+   */
+  public long getNodes() {
+    return this.search.getNodes();
+  }
+
+  /**
+   * Get the search speed on the last move
+   * @return Nodes per second
+   */
+  public long getNodesPerSecond() {
+    return this.search.getNodesPerSecond();
+  }
+
+  /**
+   * Get the number of search threads
+   * @return Thread count
+   */
+  public int getThreads() {
+    return this.search.getThreads();
+  }
+
+  /**
+   * Get the transposition table
+   * @return Table used by every search, or null if there is none
+   */
+  public TranspositionTable getTable() {
+    return this.search.getTable();
+  }
+
+  /**
+   * Get a one-line summary of the last search
+   * @return Depth, nodes, nodes/sec and time taken, plus the
+   *         transposition table counters
+   */
+  public String getSearchReport() {
+    TranspositionTable table = this.search.getTable();
+    return this.toString() + ": " + this.search.toString()
+      + (table != null ? " | " + table.toString() : "");
+  }
+
+}
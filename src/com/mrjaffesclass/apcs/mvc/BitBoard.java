@@ -0,0 +1,569 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Represents the game board as two 64-bit masks, one per color.
+ * Bit (row * Constants.SIZE + col) is set when that square holds a
+ * disc of the mask's color.  Legal moves for a side are generated for
+ * the whole board at once with shifts instead of walking squares one
+ * at a time, so this is the representation to use anywhere positions
+ * are evaluated in bulk.
+ *
+ * @version 1.0
+ */
+public class BitBoard
+{
+  /**
+   * Every square except those in column 0
+   */
+  static final long NOT_COL_0 = 0xFEFEFEFEFEFEFEFEL;
+
+  /**
+   * Every square except those in column 7
+   */
+  static final long NOT_COL_7 = 0x7F7F7F7F7F7F7F7FL;
+
+  /**
+   * Every square except those in columns 0 and 7
+   */
+  static final long INNER_COLS = 0x7E7E7E7E7E7E7E7EL;
+
+  /**
+   * Every square except those on the outside edge of the board
+   */
+  static final long INNER = 0x007E7E7E7E7E7E00L;
+
+  /**
+   * Black discs
+   */
+  private long black;
+
+  /**
+   * White discs
+   */
+  private long white;
+
+  /**
+   * Color whose turn it is
+   */
+  private int sideToMove = Constants.BLACK;
+
+  /**
+   * Zobrist hash of the discs and side to move, kept up to date by
+   * makeMove and pass
+   */
+  private long hash;
+
+  /**
+   * Constructor for the starting position.  The four middle
+   * spaces are initialized
+   * W B
+   * B W
+   */
+  public BitBoard()
+  {
+    this(bit(3, 4) | bit(4, 3), bit(3, 3) | bit(4, 4));
+  }
+
+  /**
+   * Constructor for an arbitrary position with black to move
+   * @param black Mask of the black discs
+   * @param white Mask of the white discs
+   */
+  public BitBoard(long black, long white)
+  {
+    this(black, white, Constants.BLACK);
+  }
+
+  /**
+   * Constructor for an arbitrary position
+   * @param black Mask of the black discs
+   * @param white Mask of the white discs
+   * @param sideToMove One of Constants.WHITE or Constants.BLACK
+   */
+  public BitBoard(long black, long white, int sideToMove)
+  {
+    this.black = black;
+    this.white = white;
+    this.sideToMove = sideToMove;
+    this.hash = Zobrist.hash(black, white, sideToMove);
+  }
+
+  /**
+   * Constructor that copies the discs out of a square array, with
+   * black to move
+   * @param squares Board squares set up in a 2x2 array
+   */
+  public BitBoard(Square[][] squares)
+  {
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        int status = squares[row][col].getStatus();
+        if (status == Constants.BLACK) {
+          this.black |= bit(row, col);
+        } else if (status == Constants.WHITE) {
+          this.white |= bit(row, col);
+        }
+      }
+    }
+    this.hash = Zobrist.hash(this.black, this.white, this.sideToMove);
+  }
+
+  /**
+   * Make a copy of this board
+   * @return New board with the same discs
+   */
+  public BitBoard copy() {
+    return new BitBoard(this.black, this.white, this.sideToMove);
+  }
+
+  /**
+   * Get the bit index of a square
+   * @param row Row of the square
+   * @param col Column of the square
+   * @return Index in the range 0 to 63
+   */
+  public static int index(int row, int col) {
+    return row * Constants.SIZE + col;
+  }
+
+  /**
+   * Is a square on the board?  Check this before bit() or index()
+   * with coordinates from outside, which would otherwise wrap round to
+   * another square.
+   * @param row Row of the square
+   * @param col Column of the square
+   * @return True if both are 0 to Constants.SIZE - 1
+   */
+  public static boolean onBoard(int row, int col) {
+    return 0 <= row && row < Constants.SIZE && 0 <= col && col < Constants.SIZE;
+  }
+
+  /**
+   * Get the single-bit mask of a square
+   * @param row Row of the square
+   * @param col Column of the square
+   * @return Mask with only that square set
+   */
+  public static long bit(int row, int col) {
+    return 1L << index(row, col);
+  }
+
+  /**
+   * Get the position of a bit index
+   * @param index Index in the range 0 to 63
+   * @return Position of the square
+   */
+  public static Position toPosition(int index) {
+    return new Position(index / Constants.SIZE, index % Constants.SIZE);
+  }
+
+  /**
+   * Put a disc on a square or take it off, for setting up positions.
+   * The hash is kept up to date.
+   * @param row Row of the square
+   * @param col Column of the square
+   * @param status One of Constants.WHITE, Constants.BLACK or
+   *        Constants.EMPTY
+   */
+  public void setStatus(int row, int col, int status) {
+    long bit = bit(row, col);
+    this.black &= ~bit;
+    this.white &= ~bit;
+    if (status == Constants.BLACK) {
+      this.black |= bit;
+    } else if (status == Constants.WHITE) {
+      this.white |= bit;
+    }
+    this.hash = Zobrist.hash(this.black, this.white, this.sideToMove);
+  }
+
+  /**
+   * Get the discs of one color
+   * @param color One of Constants.WHITE or Constants.BLACK
+   * @return Mask of the discs of that color
+   */
+  public long getDiscs(int color) {
+    return color == Constants.BLACK ? this.black : this.white;
+  }
+
+  /**
+   * Get the color whose turn it is
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getSideToMove() {
+    return this.sideToMove;
+  }
+
+  /**
+   * Set the color whose turn it is
+   * @param sideToMove One of Constants.WHITE or Constants.BLACK
+   */
+  public void setSideToMove(int sideToMove) {
+    if (sideToMove != this.sideToMove) {
+      this.pass();
+    }
+  }
+
+  /**
+   * Give the turn to the other side without moving
+   */
+  public void pass() {
+    this.sideToMove = -this.sideToMove;
+    this.hash ^= Zobrist.SIDE_KEY;
+  }
+
+  /**
+   * Get the Zobrist hash of the discs and side to move
+   * @return Hash that changes with every move and pass
+   */
+  public long getHash() {
+    return this.hash;
+  }
+
+  /**
+   * Get the empty squares
+   * @return Mask of every square without a disc
+   */
+  public long getEmpty() {
+    return ~(this.black | this.white);
+  }
+
+  /**
+   * Get the status of a square
+   * @param row Row to retrieve
+   * @param col Column to retrieve
+   * @return One of Constants.WHITE, Constants.BLACK or Constants.EMPTY
+   */
+  public int getStatus(int row, int col) {
+    long mask = bit(row, col);
+    if ((this.black & mask) != 0) {
+      return Constants.BLACK;
+    } else if ((this.white & mask) != 0) {
+      return Constants.WHITE;
+    }
+    return Constants.EMPTY;
+  }
+
+  /**
+   * Copy the discs into an existing square array
+   * @param squares Board squares set up in a 2x2 array
+   * @return The square array that was passed in
+   */
+  public Square[][] toSquares(Square[][] squares) {
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        squares[row][col].setStatus(this.getStatus(row, col));
+      }
+    }
+    return squares;
+  }
+
+  /**
+   * Count the number of squares of the provided type
+   * @param toMatch Type of square to count from Constants.xxxx
+   * @return Number of squares that match the desired target
+   */
+  public int countSquares(int toMatch) {
+    switch (toMatch) {
+      case Constants.BLACK: return Long.bitCount(this.black);
+      case Constants.WHITE: return Long.bitCount(this.white);
+      default:              return Long.bitCount(this.getEmpty());
+    }
+  }
+
+  /**
+   * Get every legal move for a player
+   * @param color One of Constants.WHITE or Constants.BLACK
+   * @return Mask of the squares where the player may move
+   */
+  public long legalMoves(int color) {
+    return color == Constants.BLACK
+      ? legalMoves(this.black, this.white)
+      : legalMoves(this.white, this.black);
+  }
+
+  /**
+   * Is this a legal move?
+   * @param player Player asking
+   * @param positionToCheck Position of the move being checked
+   * @return True if this space is a legal move
+   */
+  public boolean isLegalMove(Player player, Position positionToCheck) {
+    if (!onBoard(positionToCheck.getRow(), positionToCheck.getCol())) {
+      return false;
+    }
+    long mask = bit(positionToCheck.getRow(), positionToCheck.getCol());
+    return (this.legalMoves(player.getColor()) & mask) != 0;
+  }
+
+  /**
+   * Are there any available for this player?
+   * @param player Player asking
+   * @return True if no moves are available
+   */
+  public boolean noMovesAvailable(Player player) {
+    return this.legalMoves(player.getColor()) == 0;
+  }
+
+  /**
+   * Make the move.  Places the disc and turns over every disc it
+   * captures.  Nothing changes if the move is not legal.
+   * @param playerToMove Player asking
+   * @param positionToMove Position of the new move
+   * @return Record to pass to unmakeMove, or null if the move is not
+   *         legal or not on the board
+   */
+  public MoveRecord makeMove(Player playerToMove, Position positionToMove) {
+    if (!onBoard(positionToMove.getRow(), positionToMove.getCol())) {
+      return null;
+    }
+    int color = playerToMove.getColor();
+    int index = index(positionToMove.getRow(), positionToMove.getCol());
+    int sideBefore = this.sideToMove;
+    long flipped = this.makeMove(color, index);
+    return flipped == 0 ? null : new MoveRecord(color, index, flipped, sideBefore);
+  }
+
+  /**
+   * Take back a move or pass, restoring the discs, the side to move
+   * and the hash exactly
+   * @param move Record from makeMove, or MoveRecord.pass for a pass;
+   *        it must be the last thing done to this board
+   */
+  public void unmakeMove(MoveRecord move) {
+    if (move.isPass()) {
+      this.pass();
+      return;
+    }
+    this.unmakeMove(move.getColor(), move.getSquare(), move.getFlipped());
+    if (move.getSideBefore() != move.getColor()) {
+      // The move was out of turn; undo the side change makeMove skipped
+      this.sideToMove = move.getSideBefore();
+      this.hash ^= Zobrist.SIDE_KEY;
+    }
+  }
+
+  /**
+   * Take back a move made in turn, with no record allocated
+   * @param color Color that moved
+   * @param index Bit index of the disc placed
+   * @param flipped Mask makeMove returned
+   */
+  public void unmakeMove(int color, int index, long flipped) {
+    long placed = 1L << index;
+    if (color == Constants.BLACK) {
+      this.black ^= flipped | placed;
+      this.white ^= flipped;
+    } else {
+      this.white ^= flipped | placed;
+      this.black ^= flipped;
+    }
+    this.hash ^= Zobrist.move(color, index, flipped);
+    this.sideToMove = color;
+  }
+
+  /**
+   * Make the move.  Places the disc, turns over every disc it
+   * captures and gives the turn to the other side.  Nothing changes
+   * if the move is not legal.
+   * @param color One of Constants.WHITE or Constants.BLACK
+   * @param index Bit index of the new move
+   * @return Mask of the discs that were turned over
+   */
+  public long makeMove(int color, int index) {
+    long placed = 1L << index;
+    if (((this.black | this.white) & placed) != 0) {
+      return 0;
+    }
+    long own = this.getDiscs(color);
+    long opp = this.getDiscs(-color);
+    long flipped = flips(own, opp, index);
+    if (flipped == 0) {
+      return 0;
+    }
+    own ^= flipped | placed;
+    opp ^= flipped;
+    if (color == Constants.BLACK) {
+      this.black = own;
+      this.white = opp;
+    } else {
+      this.white = own;
+      this.black = opp;
+    }
+    this.hash ^= Zobrist.move(color, index, flipped);
+    if (this.sideToMove == color) {
+      this.sideToMove = -color;
+    } else {
+      // Moving out of turn, so the side key was already the one for -color
+      this.hash ^= Zobrist.SIDE_KEY;
+    }
+    return flipped;
+  }
+
+  /**
+   * Generate the legal moves for the side that owns the discs in
+   * own.  Each direction is flood-filled through the opposing discs
+   * six squares deep in three shift steps, so the result for the
+   * whole board comes out of a single pass.
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @return Mask of the empty squares that capture at least one disc
+   */
+  public static long legalMoves(long own, long opp) {
+    long moves = directionMoves(own, opp & INNER_COLS, 1)
+      | directionMoves(own, opp, 8)
+      | directionMoves(own, opp & INNER, 7)
+      | directionMoves(own, opp & INNER, 9);
+    return moves & ~(own | opp);
+  }
+
+  /**
+   * Flood-fill from own through mask along one axis in both
+   * directions.  The mask must already exclude any column that
+   * a shift along this axis would wrap around.
+   * @param own Discs of the side to move
+   * @param mask Opposing discs that may be captured along this axis
+   * @param dir Shift distance for the axis: 1, 7, 8 or 9
+   * @return Squares one step past a run of captured discs
+   */
+  private static long directionMoves(long own, long mask, int dir) {
+    int dir2 = dir + dir;
+    long flipL = mask & (own << dir);
+    long flipR = mask & (own >>> dir);
+    flipL |= mask & (flipL << dir);
+    flipR |= mask & (flipR >>> dir);
+    long maskL = mask & (mask << dir);
+    long maskR = mask & (mask >>> dir);
+    flipL |= maskL & (flipL << dir2);
+    flipR |= maskR & (flipR >>> dir2);
+    flipL |= maskL & (flipL << dir2);
+    flipR |= maskR & (flipR >>> dir2);
+    return (flipL << dir) | (flipR >>> dir);
+  }
+
+  /**
+   * Find the discs captured by a move
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param index Bit index of the move
+   * @return Mask of the discs that would be turned over.  Zero means
+   *         the move is not legal.
+   */
+  public static long flips(long own, long opp, int index) {
+    long placed = 1L << index;
+    long inner = opp & INNER_COLS;
+    return directionFlips(own, inner, placed, 1)
+      | directionFlips(own, inner, placed, -1)
+      | directionFlips(own, opp, placed, 8)
+      | directionFlips(own, opp, placed, -8)
+      | directionFlips(own, inner, placed, 7)
+      | directionFlips(own, inner, placed, -7)
+      | directionFlips(own, inner, placed, 9)
+      | directionFlips(own, inner, placed, -9);
+  }
+
+  /**
+   * Walk from the placed disc in one direction while the squares
+   * hold opposing discs
+   * @param own Discs of the side to move
+   * @param mask Opposing discs that may be captured in this direction
+   * @param placed Mask of the new disc
+   * @param dir Signed shift distance for the direction
+   * @return Discs captured in this direction
+   */
+  private static long directionFlips(long own, long mask, long placed, int dir) {
+    long flipped = 0;
+    long next = shift(placed, dir);
+    while ((next & mask) != 0) {
+      flipped |= next;
+      next = shift(next, dir);
+    }
+    return (next & own) != 0 ? flipped : 0;
+  }
+
+  /**
+   * Shift a mask one square in a direction.  Only squares in
+   * columns 1 to 6 can carry a run across a row boundary and those
+   * are filtered out by the caller, so a plain shift is enough.
+   * @param mask Mask to shift
+   * @param dir Signed shift distance
+   * @return Shifted mask
+   */
+  private static long shift(long mask, int dir) {
+    return dir > 0 ? mask << dir : mask >>> -dir;
+  }
+
+  /**
+   * Read a position written as 64 squares, row by row, followed by
+   * the side to move.  'B' or 'X' is a black disc, 'W' or 'O' a white
+   * disc, '-' or '.' an empty square.  Spaces are ignored.  For example
+   * the starting position with white to move is
+   * "---------------------------WB------BW--------------------------- W"
+   * @param text Position text
+   * @return New board
+   * @throws IllegalArgumentException if the text isn't a position
+   */
+  public static BitBoard parse(String text) {
+    long black = 0;
+    long white = 0;
+    int index = 0;
+    int sideToMove = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = Character.toUpperCase(text.charAt(i));
+      if (c == ' ') {
+        continue;
+      }
+      int color;
+      if (c == 'B' || c == 'X') {
+        color = Constants.BLACK;
+      } else if (c == 'W' || c == 'O') {
+        color = Constants.WHITE;
+      } else if (c == '-' || c == '.') {
+        color = Constants.EMPTY;
+      } else {
+        throw new IllegalArgumentException("Bad square '" + text.charAt(i) + "' in " + text);
+      }
+      if (index < Constants.SIZE * Constants.SIZE) {
+        if (color == Constants.BLACK) {
+          black |= 1L << index;
+        } else if (color == Constants.WHITE) {
+          white |= 1L << index;
+        }
+        index++;
+      } else if (sideToMove == 0 && color != Constants.EMPTY) {
+        sideToMove = color;
+      } else {
+        throw new IllegalArgumentException("Too many squares in " + text);
+      }
+    }
+    if (sideToMove == 0) {
+      throw new IllegalArgumentException("Missing squares or side to move in " + text);
+    }
+    return new BitBoard(black, white, sideToMove);
+  }
+
+  /**
+   * Write the position in the form parse() reads
+   * @return 64 squares, a space and the side to move
+   */
+  public String toText() {
+    StringBuilder sb = new StringBuilder(Constants.SIZE * Constants.SIZE + 2);
+    for (int index = 0; index < Constants.SIZE * Constants.SIZE; index++) {
+      long mask = 1L << index;
+      sb.append((this.black & mask) != 0 ? 'B' : (this.white & mask) != 0 ? 'W' : '-');
+    }
+    return sb.append(' ').append(this.sideToMove == Constants.BLACK ? 'B' : 'W').toString();
+  }
+
+  @Override
+  public String toString() {
+    Square[][] squares = new Square[Constants.SIZE][Constants.SIZE];
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        squares[row][col] = new Square(this.getStatus(row, col));
+      }
+    }
+    return new Board(squares).toString();
+  }
+
+}
@@ -74,8 +74,7 @@ public class Board
    */
   public Square getSquare(Player player, int row, int col) {
     if (this.indexInRange(row) && this.indexInRange(col)) {
-      Position pos = new Position(row, col);
-      return this.getSquare(pos);
+      return this.squares[row][col];
     } else {
       System.out.println("**** INDEX INTO THE BOARD IS OUT OF RANGE ["+row+","+col+"]");
       System.out.println(player.toString()+" MESSED UP. YOU LOSE");
@@ -92,25 +91,29 @@ public class Board
   public Square getSquare(Position position) {
     return this.squares[position.getRow()][position.getCol()];
   }
-  
+
+  /**
+   * Get a bitboard copy of this board.  Use it when many moves need
+   * to be checked since it finds them all in a single pass.
+   * @return New bitboard with the same discs
+   */
+  public BitBoard toBitBoard() {
+    return new BitBoard(this.squares);
+  }
+
   /**
    * Is this a legal move?
    * @param player Player asking
    * @param positionToCheck Position of the move being checked
-   * @return True if this space is a legal move
+   * @return True if this space is a legal move; false if it is off
+   *         the board
    */
   public boolean isLegalMove(Player player, Position positionToCheck) {
-    // If the space isn't empty, it's not a legal move
-    if (getSquare(positionToCheck).getStatus() != Constants.EMPTY)
+    if (!BitBoard.onBoard(positionToCheck.getRow(), positionToCheck.getCol())) {
       return false;
-    // Check all directions to see if the move is legal
-    for (String direction : Directions.getDirections()) {
-      Position directionVector = Directions.getVector(direction);
-      if (step(player, positionToCheck, directionVector, 0)) {
-        return true;
-      }
     }
-    return false;
+    return isLegalMove(this.squares, player.getColor(),
+      index(positionToCheck.getRow(), positionToCheck.getCol()));
   }
   
   /**
@@ -119,15 +122,7 @@ public class Board
    * @return True if moves are available
    */
   public boolean noMovesAvailable(Player player) {
-    for (int row = 0; row < Constants.SIZE; row++) {
-      for (int col = 0; col < Constants.SIZE; col++) {
-        Position pos = new Position(row, col);
-        if (isLegalMove(player, pos)) {
-          return false;
-        }
-      }
-    }
-    return true;
+    return noMovesAvailable(this.squares, player.getColor());
   }
   
   /**
@@ -147,92 +142,211 @@ public class Board
    * @return True if we find a legal move
    */
   protected boolean step(Player player, Position position, Position direction, int count) {
-    Position newPosition = position.translate(direction);
-    int color = player.getColor();
-    if (newPosition.isOffBoard()) {
-      // If off the board then move is not legal
-      return false;
-    } else if ((this.getSquare(newPosition).getStatus() == Constants.EMPTY) && (count == 0)) {
-      // If empty space AND adjacent to position then not legal
-      return false;
-    } else if (!player.isThisPlayer(this.getSquare(newPosition).getStatus()) && this.getSquare(newPosition).getStatus() != Constants.EMPTY) {
-      // If space has opposing player then move to next space in same direction
-      return step(player, newPosition, direction, count+1);
-    } else if (player.isThisPlayer(this.getSquare(newPosition).getStatus())) {
-      // If space has this player and we've moved more than one space then it's legal,
-      // otherwise it's not legal
-      return count > 0;
-    } else {
-      // Didn't pass any other test, not legal move
-      return false;
+    int run = run(this.squares, player.getColor(),
+      index(position.getRow(), position.getCol()), Directions.getDirection(direction));
+    return run >= 0 && run + count > 0;
+  }
+  
+  /**
+   * Make the move.  Scan all directions and switch the piece colors
+   * of the ones as appropriate
+   * @param playerToMove Player asking
+   * @param positionToMove Position of the new move
+   * @return Record to pass to unmakeMove, or null if the move is not
+   *         legal or off the board and nothing changed
+   */
+  public MoveRecord makeMove(Player playerToMove, Position positionToMove) {
+    if (!BitBoard.onBoard(positionToMove.getRow(), positionToMove.getCol())) {
+      return null;
+    }
+    int color = playerToMove.getColor();
+    int index = index(positionToMove.getRow(), positionToMove.getCol());
+    long flipped = makeMove(this.squares, color, index);
+    return flipped == 0 ? null : new MoveRecord(color, index, flipped, color);
+  }
+
+  /**
+   * Take back a move, putting every square back as it was
+   * @param move Record from makeMove; it must be the last move made on
+   *        this board.  Passes change nothing here.
+   */
+  public void unmakeMove(MoveRecord move) {
+    if (!move.isPass()) {
+      unmakeMove(this.squares, move.getColor(), move.getSquare(), move.getFlipped());
     }
   }
   
   /**
-   * Traverses the board in the provided direction. Checks the status of
-   * each space: 
-   * a. If it's the opposing player then we'll move to the next
-   *    space to see if there's a blank space
-   * b. If it's the same player then this direction doesn't represent
-   *    a legal move
-   * c. If it's a blank AND if it's not the adjacent square then this
-   *    direction is a legal move. Otherwise, it's not.
-   * If the move is legal, then this changes the pieces based on the 
-   * the move
-   * 
-   * @param player  Player making the request
-   * @param position Position being checked
-   * @param direction Direction to move
-   * @param count Number of steps we've made so far
-   * @return True if we find a legal move
+   * Get the index of a square for the primitive move methods
+   * @param row Row of the square
+   * @param col Column of the square
+   * @return row * Constants.SIZE + col
    */
-  private boolean makeMoveStep(Player player, Position position, Position direction, int count) {
-    Position newPosition = position.translate(direction);
-    int color = player.getColor();
-    if (newPosition.isOffBoard()) {
-      return false;
-    } else if (this.getSquare(newPosition).getStatus() == -color) {
-      boolean valid = makeMoveStep(player, newPosition, direction, count+1);
-      if (valid) {
-        this.setSquare(player, newPosition);
+  static int index(int row, int col) {
+    return row * Constants.SIZE + col;
+  }
+  
+  /**
+   * Get a square by index
+   * @param squares Board squares
+   * @param index Index of the square
+   * @return Square object at that index
+   */
+  private static Square square(Square[][] squares, int index) {
+    return squares[index / Constants.SIZE][index % Constants.SIZE];
+  }
+  
+  /**
+   * Count the opposing discs between a square and the nearest disc of
+   * the player's color in one direction.  Allocates nothing.
+   * @param squares Board squares
+   * @param color Color of the player making the request
+   * @param index Index of the square to start from (not checked itself)
+   * @param dir Direction number from Directions
+   * @return Number of opposing discs that would be turned over, or -1
+   *         if the run ends at a blank space or the edge of the board
+   */
+  static int run(Square[][] squares, int color, int index, int dir) {
+    int count = 0;
+    int next = Directions.neighbour(index, dir);
+    while (next >= 0) {
+      int status = square(squares, next).getStatus();
+      if (status == color) {
+        return count;
+      } else if (status == Constants.EMPTY) {
+        return -1;
       }
-      return valid;
-    } else if (this.getSquare(newPosition).getStatus() == color) {
-      return count > 0;
-    } else {
+      count++;
+      next = Directions.neighbour(next, dir);
+    }
+    return -1;
+  }
+  
+  /**
+   * Switch the color of the discs next to a square in one direction
+   * @param squares Board squares
+   * @param color New color of the discs
+   * @param index Index of the square to start from (not changed itself)
+   * @param dir Direction number from Directions
+   * @param count Number of discs to switch
+   * @return Mask of the squares switched, bit index as in BitBoard
+   */
+  static long flip(Square[][] squares, int color, int index, int dir, int count) {
+    long flipped = 0;
+    int next = index;
+    for (int i = 0; i < count; i++) {
+      next = Directions.neighbour(next, dir);
+      square(squares, next).setStatus(color);
+      flipped |= 1L << next;
+    }
+    return flipped;
+  }
+  
+  /**
+   * Is this a legal move?  Allocates nothing.
+   * @param squares Board squares
+   * @param color Color of the player asking
+   * @param index Index of the move being checked
+   * @return True if this space is a legal move
+   */
+  static boolean isLegalMove(Square[][] squares, int color, int index) {
+    // If the space isn't empty, it's not a legal move
+    if (square(squares, index).getStatus() != Constants.EMPTY)
       return false;
-    }    
+    // Check all directions to see if the move is legal
+    for (int dir = 0; dir < Directions.COUNT; dir++) {
+      if (run(squares, color, index, dir) > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * Are there any available for this player?  Allocates nothing.
+   * @param squares Board squares
+   * @param color Color of the player asking
+   * @return True if no moves are available
+   */
+  static boolean noMovesAvailable(Square[][] squares, int color) {
+    for (int index = 0; index < Constants.SIZE * Constants.SIZE; index++) {
+      if (isLegalMove(squares, color, index)) {
+        return false;
+      }
+    }
+    return true;
   }
   
   /**
    * Make the move.  Scan all directions and switch the piece colors
-   * of the ones as appropriate
-   * @param playerToMove Player asking
-   * @param positionToMove Position of the new move
+   * of the ones as appropriate.  Allocates nothing.
+   * @param squares Board squares
+   * @param color Color of the player moving
+   * @param index Index of the new move
+   * @return Mask of the discs turned over, 0 if the move wasn't legal
    */
-  public Square[][] makeMove(Player playerToMove, Position positionToMove) {
-    for (String direction : Directions.getDirections()) {
-      Position directionVector = Directions.getVector(direction);
-      if (makeMoveStep(playerToMove, positionToMove, directionVector, 0)) {
-        this.setSquare(playerToMove, positionToMove);      
-//      } else {
-//        System.out.println("**** THIS SPACE IS NOT A VALID MOVE. YOU LOSE!");
+  static long makeMove(Square[][] squares, int color, int index) {
+    if (square(squares, index).getStatus() != Constants.EMPTY) {
+      return 0;
+    }
+    long flipped = 0;
+    for (int dir = 0; dir < Directions.COUNT; dir++) {
+      int run = run(squares, color, index, dir);
+      if (run > 0) {
+        flipped |= flip(squares, color, index, dir, run);
       }
     }
-    return squares;
+    if (flipped != 0) {
+      square(squares, index).setStatus(color);
+    }
+    return flipped;
+  }
+
+  /**
+   * Take back a move made with makeMove.  Allocates nothing.
+   * @param squares Board squares
+   * @param color Color that moved
+   * @param index Index of the move
+   * @param flipped Mask makeMove returned
+   */
+  static void unmakeMove(Square[][] squares, int color, int index, long flipped) {
+    square(squares, index).setStatus(Constants.EMPTY);
+    while (flipped != 0) {
+      square(squares, Long.numberOfTrailingZeros(flipped)).setStatus(-color);
+      flipped &= flipped - 1;
+    }
   }
   
+  /**
+   * Draw the board as text, one row per line.  The column headers and
+   * rules follow the size of the square array, so boards other than
+   * 8x8 print too.
+   */
   @Override
   public String toString() {
-    StringBuilder sb = new StringBuilder("  | 0 | 1 | 2 | 3 | 4 | 5 | 6 | 7 |\n");
-    sb.append                           ("--+---+---+---+---+---+---+---+---+\n");
-    for (int row = 0; row < Constants.SIZE; row++) {
-      sb.append(row).append(" |");
-      for (int col = 0; col < Constants.SIZE; col++) {
+    int size = this.squares.length;
+    // Row labels are as wide as the last row number
+    int labelWidth = String.valueOf(size - 1).length();
+    StringBuilder rule = new StringBuilder();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i <= labelWidth; i++) {
+      rule.append('-');
+      sb.append(' ');
+    }
+    sb.append('|');
+    rule.append('+');
+    for (int col = 0; col < size; col++) {
+      sb.append(col < 10 ? " " + col + " |" : col + " |");
+      rule.append("---+");
+    }
+    sb.append('\n').append(rule).append('\n');
+    for (int row = 0; row < size; row++) {
+      sb.append(String.format("%" + labelWidth + "d |", row));
+      for (int col = 0; col < size; col++) {
         Square square = this.squares[row][col];
         sb.append(square.toString()).append("|");
       }
-      sb.append                           ("\n--+---+---+---+---+---+---+---+---+\n");
+      sb.append('\n').append(rule).append('\n');
     }
     int black = this.countSquares(Constants.BLACK);
     int white = this.countSquares(Constants.WHITE);
@@ -0,0 +1,184 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the board from images made once: the green background with its
+ * grid, and one sprite for each disc color.  The images are compatible
+ * with the device being drawn on, so drawing them is a plain copy.
+ *
+ * Only the squares inside the clip are drawn, so a repaint of the few
+ * squares a move changed costs a few image copies instead of a whole
+ * board.  Squares are laid out as in View: row along x, column along y,
+ * and the side Constants calls WHITE is drawn with black discs, as the
+ * score line counts it.
+ *
+ * The squares are sized to fill the board area for any number of
+ * squares a side; discs keep the classic proportions, 50 pixels in an
+ * 80 pixel square.
+ *
+ * @version 1.0
+ */
+public class BoardRenderer
+{
+  private static final Color BOARD_COLOR = new Color(0, 150, 0);
+  private static final Color LINE_COLOR = new Color(0, 0, 0);
+
+  private final int width;
+  private final int height;
+  private final int size;
+
+  // Width of a square and a disc, and the gap between a square's
+  // corner and its disc, in pixels
+  private final int squareSize;
+  private final int discSize;
+  private final int discOffset;
+
+  private GraphicsConfiguration config;
+  private BufferedImage background;
+  private BufferedImage whiteDisc;
+  private BufferedImage blackDisc;
+
+  // Reused for the clip of each paint
+  private final Rectangle clip = new Rectangle();
+
+  /**
+   * Create a renderer for the standard board.  Nothing is drawn until
+   * the first paint.
+   * @param width Width of the board area in pixels
+   * @param height Height of the board area in pixels
+   */
+  public BoardRenderer(int width, int height) {
+    this(width, height, Constants.SIZE);
+  }
+
+  /**
+   * Create a renderer.  Nothing is drawn until the first paint.
+   * @param width Width of the board area in pixels
+   * @param height Height of the board area in pixels
+   * @param size Squares along each side
+   */
+  public BoardRenderer(int width, int height, int size) {
+    this.width = width;
+    this.height = height;
+    this.size = size;
+    this.squareSize = Math.max(1, width / size);
+    this.discSize = this.squareSize * 5 / 8;
+    this.discOffset = (this.squareSize - this.discSize) / 2;
+  }
+
+  /**
+   * Get the width of a square
+   * @return Pixels
+   */
+  public int getSquareSize() {
+    return this.squareSize;
+  }
+
+  /**
+   * Draw the part of the board inside the clip
+   * @param g Graphics to draw on
+   * @param board Position to draw
+   */
+  public void paint(Graphics2D g, BoardSnapshot board) {
+    this.prepare(g.getDeviceConfiguration());
+    // Left as the whole board if there's no clip
+    Rectangle clip = this.clip;
+    clip.setBounds(0, 0, this.width, this.height);
+    g.getClipBounds(clip);
+    g.drawImage(this.background, 0, 0, null);
+    if (g.hitClip(this.width, 0, this.height - this.width + 1, this.height)
+        || g.hitClip(0, this.height, this.width, 1)) {
+      this.paintLineEnds(g);
+    }
+    int square = this.squareSize;
+    int firstRow = Math.max(0, clip.x / square);
+    int lastRow = Math.min(this.size - 1, (clip.x + clip.width - 1) / square);
+    int firstCol = Math.max(0, clip.y / square);
+    int lastCol = Math.min(this.size - 1, (clip.y + clip.height - 1) / square);
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int col = firstCol; col <= lastCol; col++) {
+        int status = board.getStatus(row, col);
+        if (status != Constants.EMPTY) {
+          g.drawImage(status == Constants.WHITE ? this.blackDisc : this.whiteDisc,
+            row * square + this.discOffset, col * square + this.discOffset, null);
+        }
+      }
+    }
+  }
+
+  /**
+   * The grid lines have always run a pixel or two past the green.  Those
+   * ends are drawn here so the background image can stay opaque.
+   */
+  private void paintLineEnds(Graphics2D g) {
+    g.setColor(LINE_COLOR);
+    for (int x = this.squareSize; x < this.width; x += this.squareSize) {
+      g.drawLine(x, this.height, x, this.height);
+    }
+    if (this.height >= this.width) {
+      for (int y = this.squareSize; y < this.width; y += this.squareSize) {
+        g.drawLine(this.width, y, this.height, y);
+      }
+    }
+  }
+
+  /**
+   * Get the area a square's disc is drawn in
+   * @param row Row of the square
+   * @param col Column of the square
+   * @return Bounds of the disc
+   */
+  public Rectangle discBounds(int row, int col) {
+    return new Rectangle(row * this.squareSize + this.discOffset, col * this.squareSize + this.discOffset,
+      this.discSize, this.discSize);
+  }
+
+  /**
+   * Make the images, again if the device has changed
+   */
+  private void prepare(GraphicsConfiguration device) {
+    if (this.background != null && device == this.config) {
+      return;
+    }
+    this.config = device;
+    this.background = this.createImage(this.width, this.height, Transparency.OPAQUE);
+    Graphics2D g = this.background.createGraphics();
+    g.setColor(BOARD_COLOR);
+    g.fillRect(0, 0, this.width, this.height);
+    g.setColor(LINE_COLOR);
+    for (int x = this.squareSize; x < this.width; x += this.squareSize) {
+      g.drawLine(x, 0, x, this.height);
+    }
+    for (int y = this.squareSize; y < this.width; y += this.squareSize) {
+      g.drawLine(0, y, this.height, y);
+    }
+    g.dispose();
+    this.whiteDisc = this.createDisc(Color.WHITE);
+    this.blackDisc = this.createDisc(Color.BLACK);
+  }
+
+  private BufferedImage createDisc(Color color) {
+    BufferedImage disc = this.createImage(this.discSize, this.discSize, Transparency.BITMASK);
+    Graphics2D g = disc.createGraphics();
+    g.setColor(color);
+    g.fill(new Ellipse2D.Double(0, 0, this.discSize, this.discSize));
+    g.dispose();
+    return disc;
+  }
+
+  private BufferedImage createImage(int w, int h, int transparency) {
+    if (this.config != null) {
+      return this.config.createCompatibleImage(w, h, transparency);
+    }
+    return new BufferedImage(w, h, transparency == Transparency.OPAQUE
+      ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+  }
+
+}
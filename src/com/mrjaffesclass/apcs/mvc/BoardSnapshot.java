@@ -0,0 +1,173 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * An unchangeable copy of a position: the two disc masks of BitBoard,
+ * the side to move and the move that led to it.  Every field is final,
+ * so a snapshot can be handed to another thread and read there without
+ * copying or locking, and kept for as long as needed.
+ *
+ * The Model publishes one after every move; a snapshot costs one small
+ * object instead of a copy of 64 squares.
+ *
+ * @version 1.0
+ */
+public final class BoardSnapshot
+{
+  /**
+   * No move led to the position
+   */
+  public static final int NO_MOVE = -1;
+
+  private final long black;
+  private final long white;
+  private final int sideToMove;
+  private final int lastMove;
+  private final int moveNumber;
+
+  /**
+   * Take a snapshot
+   * @param black Mask of the black discs
+   * @param white Mask of the white discs
+   * @param sideToMove One of Constants.WHITE or Constants.BLACK
+   * @param lastMove Bit index of the move that led here, or NO_MOVE
+   * @param moveNumber Number of moves played so far
+   */
+  public BoardSnapshot(long black, long white, int sideToMove, int lastMove, int moveNumber) {
+    this.black = black;
+    this.white = white;
+    this.sideToMove = sideToMove;
+    this.lastMove = lastMove;
+    this.moveNumber = moveNumber;
+  }
+
+  /**
+   * Take a snapshot of a board
+   * @param board Board to copy
+   * @param lastMove Bit index of the move that led here, or NO_MOVE
+   * @param moveNumber Number of moves played so far
+   */
+  public BoardSnapshot(BitBoard board, int lastMove, int moveNumber) {
+    this(board.getDiscs(Constants.BLACK), board.getDiscs(Constants.WHITE), board.getSideToMove(),
+      lastMove, moveNumber);
+  }
+
+  /**
+   * Get the discs of one color
+   * @param color One of Constants.WHITE or Constants.BLACK
+   * @return Mask of the squares holding that color's discs
+   */
+  public long getDiscs(int color) {
+    return color == Constants.WHITE ? this.white : this.black;
+  }
+
+  /**
+   * Get the status of a square
+   * @param row Row to retrieve
+   * @param col Column to retrieve
+   * @return One of Constants.WHITE, Constants.BLACK or Constants.EMPTY
+   */
+  public int getStatus(int row, int col) {
+    long mask = BitBoard.bit(row, col);
+    if ((this.black & mask) != 0) {
+      return Constants.BLACK;
+    } else if ((this.white & mask) != 0) {
+      return Constants.WHITE;
+    }
+    return Constants.EMPTY;
+  }
+
+  /**
+   * Count the squares of one kind
+   * @param toMatch One of Constants.WHITE, Constants.BLACK or
+   *        Constants.EMPTY
+   * @return Number of matching squares
+   */
+  public int countSquares(int toMatch) {
+    switch (toMatch) {
+      case Constants.BLACK: return Long.bitCount(this.black);
+      case Constants.WHITE: return Long.bitCount(this.white);
+      default:              return Long.bitCount(~(this.black | this.white));
+    }
+  }
+
+  /**
+   * Get the color whose turn it is
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getSideToMove() {
+    return this.sideToMove;
+  }
+
+  /**
+   * Get the move that led to this position
+   * @return Bit index, or NO_MOVE
+   */
+  public int getLastMove() {
+    return this.lastMove;
+  }
+
+  /**
+   * Get the number of moves played before this position
+   * @return Move count, passes not included
+   */
+  public int getMoveNumber() {
+    return this.moveNumber;
+  }
+
+  /**
+   * Find the squares that differ from another snapshot
+   * @param other Snapshot to compare with
+   * @return Mask of the squares whose status differs
+   */
+  public long changedSquares(BoardSnapshot other) {
+    return (this.black ^ other.black) | (this.white ^ other.white);
+  }
+
+  /**
+   * Make a board to search or play on from this position
+   * @return New board, independent of this snapshot
+   */
+  public BitBoard toBitBoard() {
+    return new BitBoard(this.black, this.white, this.sideToMove);
+  }
+
+  /**
+   * Copy the discs into an existing square array
+   * @param squares Board squares set up in a 2x2 array
+   * @return The square array that was passed in
+   */
+  public Square[][] toSquares(Square[][] squares) {
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        squares[row][col].setStatus(this.getStatus(row, col));
+      }
+    }
+    return squares;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof BoardSnapshot)) {
+      return false;
+    }
+    BoardSnapshot other = (BoardSnapshot) o;
+    return this.black == other.black && this.white == other.white && this.sideToMove == other.sideToMove
+      && this.lastMove == other.lastMove && this.moveNumber == other.moveNumber;
+  }
+
+  @Override
+  public int hashCode() {
+    long h = this.black * 31 + this.white;
+    h = h * 31 + this.sideToMove;
+    h = h * 31 + this.lastMove;
+    h = h * 31 + this.moveNumber;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  @Override
+  public String toString() {
+    return "move " + this.moveNumber + (this.lastMove == NO_MOVE ? "" : " at " + GameRecord.squareName(this.lastMove))
+      + ", " + this.toBitBoard().toText();
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * A move was made
+ *
+ * @version 1.0
+ */
+public class BoardUpdateEvent extends GameEvent
+{
+  private BoardSnapshot board;
+  private int color;
+
+  /**
+   * Fill in the event
+   * @param board Position after the move
+   * @param color Color that moved
+   * @return This event
+   */
+  public BoardUpdateEvent set(BoardSnapshot board, int color) {
+    this.board = board;
+    this.color = color;
+    return this;
+  }
+
+  @Override
+  public void copyFrom(GameEvent other) {
+    BoardUpdateEvent update = (BoardUpdateEvent) other;
+    this.set(update.board, update.color);
+  }
+
+  /**
+   * Only the latest board needs to be shown
+   * @return True
+   */
+  @Override
+  public boolean isMergeable() {
+    return true;
+  }
+
+  /**
+   * Get the position after the move.  It can't change, so it may be
+   * kept.
+   * @return Snapshot of the board
+   */
+  public BoardSnapshot getBoard() {
+    return this.board;
+  }
+
+  /**
+   * Get the color that moved
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getColor() {
+    return this.color;
+  }
+
+  /**
+   * Get the move
+   * @return Bit index, row * 8 + col
+   */
+  public int getMove() {
+    return this.board.getLastMove();
+  }
+
+  public int getBlackCount() {
+    return this.board.countSquares(Constants.BLACK);
+  }
+
+  public int getWhiteCount() {
+    return this.board.countSquares(Constants.WHITE);
+  }
+
+}
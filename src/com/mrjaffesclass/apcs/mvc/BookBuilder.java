@@ -0,0 +1,378 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds an opening book offline by searching out from the starting
+ * position, one ply at a time.  Every legal move of a book position
+ * is searched to a fixed depth.  The moves scoring within a window of
+ * the best one are the promising lines, and the positions they lead
+ * to are searched on the next ply.  Positions are kept in canonical
+ * form (see Symmetry), so symmetric lines are searched once.
+ *
+ * Positions of a ply are searched in parallel, one per thread, each
+ * thread with its own Search and transposition table.  Each finished
+ * position is appended to a journal file next to the book and the
+ * book itself is rewritten after every ply, so it can be used while
+ * the build goes on.  The journal is also the checkpoint: a build
+ * started again with the same book file reads the journal, skips
+ * every position already in it and carries on where it stopped.
+ *
+ * Usage: java com.mrjaffesclass.apcs.mvc.BookBuilder [-depth N]
+ *          [-plies N] [-window N] [-threads N] [-max N] [-table MB]
+ *          book-file
+ *
+ * @version 1.0
+ */
+public class BookBuilder
+{
+  /**
+   * Shallowest depth that searches the replies at all.  At depth 1
+   * the replies would be scored at depth 0, every move would score 0
+   * and the window would keep them all.
+   */
+  static final int MIN_DEPTH = 2;
+
+  /**
+   * Ending of the journal file name
+   */
+  public static final String JOURNAL_SUFFIX = ".journal";
+
+  private final String bookFile;
+  private final int depth;
+  private final int plies;
+  private final int window;
+  private final int threads;
+  private final int maxPositions;
+  private final int tableSize;
+
+  /**
+   * Entries found so far by canonical position, in canonical form
+   */
+  private final Map<Map.Entry<Long, Long>, List<BookEntry>> results =
+    new HashMap<Map.Entry<Long, Long>, List<BookEntry>>();
+
+  private DataOutputStream journal;
+  private int searched;
+
+  /**
+   * Set up a build
+   * @param bookFile Book file to write; the journal goes next to it
+   * @param depth Depth each move is searched to, at least 2 since
+   *              the reply to each move is searched to depth - 1
+   * @param plies Number of plies from the start the book covers
+   * @param window Moves scoring this much below the best move of a
+   *               position are not followed
+   * @param threads Number of positions searched at once
+   * @param maxPositions Stop after searching this many new positions
+   * @param tableSize Transposition table size per thread in MB
+   * @throws IllegalArgumentException if depth is less than 2
+   */
+  public BookBuilder(String bookFile, int depth, int plies, int window, int threads,
+      int maxPositions, int tableSize) {
+    if (depth < MIN_DEPTH) {
+      throw new IllegalArgumentException("Book depth must be at least " + MIN_DEPTH + ": " + depth);
+    }
+    this.bookFile = bookFile;
+    this.depth = depth;
+    this.plies = plies;
+    this.window = window;
+    this.threads = Math.max(1, threads);
+    this.maxPositions = maxPositions;
+    this.tableSize = tableSize;
+  }
+
+  /**
+   * Build the book, resuming from the journal if there is one
+   * @return Number of records in the finished book
+   */
+  public int build() throws IOException, InterruptedException {
+    File journalFile = new File(this.bookFile + JOURNAL_SUFFIX);
+    this.readJournal(journalFile);
+    System.out.println("Resuming with " + this.results.size() + " positions from " + journalFile);
+    this.journal = new DataOutputStream(new BufferedOutputStream(
+      new FileOutputStream(journalFile, true), 1 << 16));
+    ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+    final ThreadLocal<Search> searches = new ThreadLocal<Search>() {
+      @Override
+      protected Search initialValue() {
+        return new Search(new TranspositionTable(BookBuilder.this.tableSize));
+      }
+    };
+    try {
+      // The starting position the Model sets up, white to move
+      BitBoard start = new BitBoard();
+      start.setSideToMove(Constants.WHITE);
+      List<BitBoard> frontier = new ArrayList<BitBoard>();
+      frontier.add(canonical(start));
+      for (int ply = 0; ply < this.plies && !frontier.isEmpty(); ply++) {
+        List<Future<?>> tasks = new ArrayList<Future<?>>();
+        for (final BitBoard board : frontier) {
+          if (!this.isSearched(board) && this.searched < this.maxPositions) {
+            this.searched++;
+            tasks.add(executor.submit(new Runnable() {
+              @Override
+              public void run() {
+                searchPosition(board, searches.get());
+              }
+            }));
+          }
+        }
+        for (Future<?> task : tasks) {
+          task.get();
+        }
+        int records = OpeningBook.write(this.bookFile, this.allEntries());
+        System.out.println("Ply " + ply + ": " + frontier.size() + " positions, "
+          + tasks.size() + " searched, book has " + records + " moves");
+        frontier = this.expand(frontier);
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Book search failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+      this.journal.close();
+    }
+    return OpeningBook.write(this.bookFile, this.allEntries());
+  }
+
+  /**
+   * Search every move of a position and record the results
+   * @param board Canonical position with a legal move
+   * @param search This thread's search
+   */
+  private void searchPosition(BitBoard board, Search search) {
+    int color = board.getSideToMove();
+    long own = board.getDiscs(color);
+    long opp = board.getDiscs(-color);
+    List<BookEntry> entries = new ArrayList<BookEntry>();
+    long moves = BitBoard.legalMoves(own, opp);
+    while (moves != 0) {
+      int move = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      long flipped = BitBoard.flips(own, opp, move);
+      long nextOwn = opp ^ flipped;
+      long nextOpp = own ^ flipped ^ (1L << move);
+      int score;
+      if (BitBoard.legalMoves(nextOwn, nextOpp) != 0) {
+        search.search(nextOwn, nextOpp, -color, Long.MAX_VALUE / 2000000L, this.depth - 1);
+        score = -search.getBestScore();
+      } else if (BitBoard.legalMoves(nextOpp, nextOwn) != 0) {
+        // The opponent has to pass, so it's our move again
+        search.search(nextOpp, nextOwn, color, Long.MAX_VALUE / 2000000L, this.depth - 1);
+        score = search.getBestScore();
+      } else {
+        score = Search.finalScore(nextOpp, nextOwn);
+      }
+      entries.add(new BookEntry(own, opp, move, score, this.depth));
+    }
+    this.record(entries);
+  }
+
+  /**
+   * Keep a searched position's entries and append them to the journal
+   * @param entries Every move of one canonical position
+   */
+  private synchronized void record(List<BookEntry> entries) {
+    if (entries.isEmpty()) {
+      return;
+    }
+    BookEntry first = entries.get(0);
+    this.results.put(key(first.getOwn(), first.getOpp()), entries);
+    try {
+      for (BookEntry entry : entries) {
+        OpeningBook.writeRecord(this.journal, entry);
+      }
+      this.journal.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("Can't write the journal", e);
+    }
+  }
+
+  /**
+   * Find out whether a position's moves have been searched
+   * @param board Canonical position
+   * @return True if its entries are in the journal
+   */
+  private synchronized boolean isSearched(BitBoard board) {
+    return this.results.containsKey(key(board));
+  }
+
+  /**
+   * Find the positions for the next ply: the canonical positions
+   * reached by the promising moves of this ply's positions
+   * @param frontier This ply's positions
+   * @return Next ply's positions, without duplicates
+   */
+  private List<BitBoard> expand(List<BitBoard> frontier) {
+    List<BitBoard> next = new ArrayList<BitBoard>();
+    Set<Map.Entry<Long, Long>> seen = new HashSet<Map.Entry<Long, Long>>();
+    for (BitBoard board : frontier) {
+      List<BookEntry> entries = this.results.get(key(board));
+      if (entries == null) {
+        continue;
+      }
+      int best = Integer.MIN_VALUE;
+      for (BookEntry entry : entries) {
+        best = Math.max(best, entry.getScore());
+      }
+      for (BookEntry entry : entries) {
+        if (entry.getScore() < best - this.window) {
+          continue;
+        }
+        BitBoard child = board.copy();
+        child.makeMove(board.getSideToMove(), entry.getMove());
+        int side = child.getSideToMove();
+        if (child.legalMoves(side) == 0) {
+          if (child.legalMoves(-side) == 0) {
+            continue;
+          }
+          child.pass();
+        }
+        child = canonical(child);
+        if (seen.add(key(child))) {
+          next.add(child);
+        }
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Get every entry found so far
+   * @return Entries in canonical form
+   */
+  private synchronized List<BookEntry> allEntries() {
+    List<BookEntry> all = new ArrayList<BookEntry>();
+    for (List<BookEntry> entries : this.results.values()) {
+      all.addAll(entries);
+    }
+    return all;
+  }
+
+  /**
+   * Load the entries of an earlier build.  A record cut short by a
+   * crash is dropped, and so is a position whose moves weren't all
+   * written; it will be searched again.
+   * @param journalFile Journal to read, if it exists
+   */
+  private void readJournal(File journalFile) throws IOException {
+    if (!journalFile.exists()) {
+      return;
+    }
+    long records = journalFile.length() / OpeningBook.RECORD_BYTES;
+    try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+      file.setLength(records * OpeningBook.RECORD_BYTES);
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(journalFile), 1 << 16))) {
+      for (long i = 0; i < records; i++) {
+        BookEntry entry = OpeningBook.readRecord(in);
+        Map.Entry<Long, Long> key = key(entry.getOwn(), entry.getOpp());
+        List<BookEntry> entries = this.results.get(key);
+        if (entries == null) {
+          entries = new ArrayList<BookEntry>();
+          this.results.put(key, entries);
+        }
+        entries.add(entry);
+      }
+    }
+    Iterator<List<BookEntry>> positions = this.results.values().iterator();
+    while (positions.hasNext()) {
+      List<BookEntry> entries = positions.next();
+      BookEntry first = entries.get(0);
+      long legal = BitBoard.legalMoves(first.getOwn(), first.getOpp());
+      // A position searched again after a partial write has its
+      // complete set of moves last
+      int count = Long.bitCount(legal);
+      if (entries.size() > count) {
+        entries.subList(0, entries.size() - count).clear();
+      }
+      long found = 0;
+      for (BookEntry entry : entries) {
+        found |= 1L << entry.getMove();
+      }
+      if (found != legal) {
+        positions.remove();
+      }
+    }
+  }
+
+  /**
+   * Get the canonical form of a position, keeping the side to move
+   */
+  private static BitBoard canonical(BitBoard board) {
+    int side = board.getSideToMove();
+    long own = board.getDiscs(side);
+    long opp = board.getDiscs(-side);
+    int symmetry = Symmetry.canonical(own, opp);
+    own = Symmetry.transform(own, symmetry);
+    opp = Symmetry.transform(opp, symmetry);
+    return side == Constants.BLACK ? new BitBoard(own, opp, side) : new BitBoard(opp, own, side);
+  }
+
+  private static Map.Entry<Long, Long> key(BitBoard board) {
+    int side = board.getSideToMove();
+    return key(board.getDiscs(side), board.getDiscs(-side));
+  }
+
+  private static Map.Entry<Long, Long> key(long own, long opp) {
+    return new AbstractMap.SimpleImmutableEntry<Long, Long>(own, opp);
+  }
+
+  /**
+   * Program entry
+   * @param args Options and book file, see the class comment
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int depth = 12;
+    int plies = 10;
+    int window = 30;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int maxPositions = Integer.MAX_VALUE;
+    int tableSize = 32;
+    String bookFile = null;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "-depth":   depth = Integer.parseInt(args[++i]); break;
+        case "-plies":   plies = Integer.parseInt(args[++i]); break;
+        case "-window":  window = Integer.parseInt(args[++i]); break;
+        case "-threads": threads = Integer.parseInt(args[++i]); break;
+        case "-max":     maxPositions = Integer.parseInt(args[++i]); break;
+        case "-table":   tableSize = Integer.parseInt(args[++i]); break;
+        default:         bookFile = args[i];
+      }
+    }
+    if (bookFile == null || depth < MIN_DEPTH) {
+      System.out.println("Usage: BookBuilder [-depth N] [-plies N] [-window N] [-threads N]"
+        + " [-max N] [-table MB] book-file");
+      System.out.println("  -depth must be at least " + MIN_DEPTH);
+      System.exit(2);
+    }
+    long start = System.nanoTime();
+    int records = new BookBuilder(bookFile, depth, plies, window, threads, maxPositions,
+      tableSize).build();
+    System.out.println(String.format("%s: %d moves in %.1f s", bookFile, records,
+      (System.nanoTime() - start) / 1e9));
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * One move of an opening book: a position, a move from it and the
+ * move's score.  Entries read from a book are in the frame of the
+ * position that was looked up; entries written to a book can be in
+ * any frame and are made canonical on the way out.
+ *
+ * @version 1.0
+ */
+public class BookEntry implements Comparable<BookEntry>
+{
+  private final long own;
+  private final long opp;
+  private final int move;
+  private final int score;
+  private final int depth;
+
+  /**
+   * Create an entry
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param move Bit index of the move
+   * @param score Score of the move from the point of view of the side
+   *              to move, higher is better
+   * @param depth Depth the score was searched to, 0 to 255
+   */
+  public BookEntry(long own, long opp, int move, int score, int depth) {
+    this.own = own;
+    this.opp = opp;
+    this.move = move;
+    this.score = score;
+    this.depth = depth;
+  }
+
+  /**
+   * Get the same entry in the canonical frame of its position
+   * @return Canonical entry, this one if it already is
+   */
+  public BookEntry canonical() {
+    int symmetry = Symmetry.canonical(this.own, this.opp);
+    if (symmetry == 0) {
+      return this;
+    }
+    return new BookEntry(Symmetry.transform(this.own, symmetry),
+      Symmetry.transform(this.opp, symmetry),
+      Symmetry.transformSquare(this.move, symmetry), this.score, this.depth);
+  }
+
+  public long getOwn() {
+    return this.own;
+  }
+
+  public long getOpp() {
+    return this.opp;
+  }
+
+  /**
+   * Get the move
+   * @return Bit index, row * 8 + col
+   */
+  public int getMove() {
+    return this.move;
+  }
+
+  public int getScore() {
+    return this.score;
+  }
+
+  public int getDepth() {
+    return this.depth;
+  }
+
+  /**
+   * Order by position, then by move, the order of a book file
+   */
+  @Override
+  public int compareTo(BookEntry other) {
+    int cmp = Symmetry.compare(this.own, this.opp, other.own, other.opp);
+    return cmp != 0 ? cmp : Integer.compare(this.move, other.move);
+  }
+
+  @Override
+  public String toString() {
+    return BitBoard.toPosition(this.move) + " score " + this.score + " depth " + this.depth;
+  }
+
+}
@@ -0,0 +1,39 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * The user clicked a square
+ *
+ * @version 1.0
+ */
+public class ClickEvent extends GameEvent
+{
+  private int row;
+  private int col;
+
+  /**
+   * Fill in the event
+   * @param row Row of the square clicked
+   * @param col Column of the square clicked
+   * @return This event
+   */
+  public ClickEvent set(int row, int col) {
+    this.row = row;
+    this.col = col;
+    return this;
+  }
+
+  @Override
+  public void copyFrom(GameEvent other) {
+    ClickEvent click = (ClickEvent) other;
+    this.set(click.row, click.col);
+  }
+
+  public int getRow() {
+    return this.row;
+  }
+
+  public int getCol() {
+    return this.col;
+  }
+
+}
@@ -0,0 +1,267 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import javax.swing.SwingUtilities;
+
+/**
+ * Carries events from one EventBus to another on a different thread,
+ * by default the Swing event dispatch thread.  The sender's thread
+ * only copies the event into a queue; the events queued since the
+ * last delivery are then handed to the target bus as one batch.
+ *
+ * A mergeable event (see GameEvent.isMergeable) replaces the queued
+ * event of the same class that hasn't been delivered yet, so when a
+ * fast engine makes several moves between two deliveries only the
+ * latest board is shown.  The queue is bounded; an event that arrives
+ * when it is full is dropped.  Both are counted, here and in Metrics,
+ * and each delivery is timed in Metrics.EVENT_DELIVERY.
+ *
+ * Queued copies come from a pool and go back to it after delivery, so
+ * a steady stream of events allocates nothing.
+ *
+ * @version 1.0
+ */
+public class CoalescingDispatcher
+{
+  /**
+   * Queue size used when none is given
+   */
+  public static final int DEFAULT_CAPACITY = 256;
+
+  /**
+   * Runs deliveries on the Swing event dispatch thread
+   */
+  public static final Executor EDT = new Executor() {
+    @Override
+    public void execute(Runnable task) {
+      SwingUtilities.invokeLater(task);
+    }
+  };
+
+  private final EventBus target;
+  private final Executor executor;
+  private final int capacity;
+
+  /**
+   * Events waiting for delivery, oldest first
+   */
+  private final ArrayDeque<GameEvent> queue = new ArrayDeque<GameEvent>();
+
+  /**
+   * Free copies by event class
+   */
+  private final Map<Class<?>, ArrayDeque<GameEvent>> pool =
+    new IdentityHashMap<Class<?>, ArrayDeque<GameEvent>>();
+
+  /**
+   * Batch being delivered, reused from delivery to delivery
+   */
+  private final List<GameEvent> batch = new ArrayList<GameEvent>();
+
+  private boolean scheduled;
+
+  private long received;
+  private long delivered;
+  private long merged;
+  private long dropped;
+  private long batches;
+
+  private final Runnable drain = new Runnable() {
+    @Override
+    public void run() {
+      deliver();
+    }
+  };
+
+  /**
+   * Create a dispatcher that delivers on the event dispatch thread
+   * @param target Bus the events are delivered to
+   */
+  public CoalescingDispatcher(EventBus target) {
+    this(target, EDT, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a dispatcher
+   * @param target Bus the events are delivered to
+   * @param executor Runs each delivery
+   * @param capacity Most events queued at once
+   */
+  public CoalescingDispatcher(EventBus target, Executor executor, int capacity) {
+    this.target = target;
+    this.executor = executor;
+    this.capacity = Math.max(1, capacity);
+  }
+
+  /**
+   * Carry one class of event from a bus to the target bus
+   * @param <E> Event type
+   * @param source Bus the events are published on
+   * @param type Event class
+   */
+  public <E extends GameEvent> void forward(EventBus source, Class<E> type) {
+    source.subscribe(type, new EventHandler<E>() {
+      @Override
+      public void handle(E event) {
+        enqueue(event);
+      }
+    });
+  }
+
+  /**
+   * Queue a copy of an event and make sure a delivery is on the way
+   * @param event Event to queue; it isn't kept
+   */
+  public void enqueue(GameEvent event) {
+    boolean schedule;
+    synchronized (this) {
+      this.received++;
+      if (event.isMergeable()) {
+        for (GameEvent queued : this.queue) {
+          if (queued.getClass() == event.getClass()) {
+            // Keep the queue in arrival order: drop the old one, the
+            // new one goes to the end
+            this.queue.removeFirstOccurrence(queued);
+            this.release(queued);
+            this.merged++;
+            if (Metrics.ENABLED) {
+              Metrics.EVENTS_MERGED.increment();
+            }
+            break;
+          }
+        }
+      }
+      if (this.queue.size() >= this.capacity) {
+        this.dropped++;
+        if (Metrics.ENABLED) {
+          Metrics.EVENTS_DROPPED.increment();
+        }
+        return;
+      }
+      GameEvent copy = this.acquire(event.getClass());
+      copy.copyFrom(event);
+      this.queue.addLast(copy);
+      schedule = !this.scheduled;
+      this.scheduled = true;
+    }
+    if (schedule) {
+      this.executor.execute(this.drain);
+    }
+  }
+
+  /**
+   * Deliver everything queued so far as one batch.  Runs on the
+   * executor.  Only one delivery runs at a time: events that arrive
+   * during a delivery are sent in the next one, scheduled at the end
+   * of this one.
+   */
+  private void deliver() {
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+    synchronized (this) {
+      this.batch.addAll(this.queue);
+      this.queue.clear();
+      this.batches++;
+    }
+    try {
+      for (GameEvent event : this.batch) {
+        this.target.publish(event);
+      }
+    } finally {
+      boolean again;
+      synchronized (this) {
+        this.delivered += this.batch.size();
+        for (GameEvent event : this.batch) {
+          this.release(event);
+        }
+        again = !this.queue.isEmpty();
+        this.scheduled = again;
+      }
+      this.batch.clear();
+      if (Metrics.ENABLED) {
+        Metrics.EVENT_DELIVERY.record(System.nanoTime() - start);
+      }
+      if (again) {
+        this.executor.execute(this.drain);
+      }
+    }
+  }
+
+  /**
+   * Take a copy from the pool, or make one.  Called holding the lock.
+   */
+  private GameEvent acquire(Class<? extends GameEvent> type) {
+    ArrayDeque<GameEvent> free = this.pool.get(type);
+    if (free != null && !free.isEmpty()) {
+      return free.pollLast();
+    }
+    try {
+      return type.getConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException(type.getName() + " needs a public no-argument constructor", e);
+    }
+  }
+
+  /**
+   * Put a copy back in the pool.  Called holding the lock.
+   */
+  private void release(GameEvent event) {
+    ArrayDeque<GameEvent> free = this.pool.get(event.getClass());
+    if (free == null) {
+      free = new ArrayDeque<GameEvent>();
+      this.pool.put(event.getClass(), free);
+    }
+    free.addLast(event);
+  }
+
+  /**
+   * Get the number of events queued
+   * @return Events received, including merged and dropped ones
+   */
+  public synchronized long getReceived() {
+    return this.received;
+  }
+
+  /**
+   * Get the number of events delivered to the target bus
+   * @return Event count
+   */
+  public synchronized long getDelivered() {
+    return this.delivered;
+  }
+
+  /**
+   * Get the number of events replaced by a newer one before delivery
+   * @return Event count
+   */
+  public synchronized long getMerged() {
+    return this.merged;
+  }
+
+  /**
+   * Get the number of events dropped because the queue was full
+   * @return Event count
+   */
+  public synchronized long getDropped() {
+    return this.dropped;
+  }
+
+  /**
+   * Get the number of deliveries
+   * @return Batch count
+   */
+  public synchronized long getBatches() {
+    return this.batches;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return this.received + " received, " + this.delivered + " delivered in " + this.batches
+      + " batches, " + this.merged + " merged, " + this.dropped + " dropped";
+  }
+
+}
@@ -1,5 +1,4 @@
 package com.mrjaffesclass.apcs.mvc;
-import com.mrjaffesclass.apcs.messenger.*;
 import java.awt.Color;
 import java.awt.event.*;
 import javax.swing.*;
@@ -8,90 +7,100 @@ import javax.swing.*;
 /**
  * 
  * The Controller is the master of the App you're writing. It instantiates the
- * view and the model, receives messages from the View in response to user
- * interface (UI) actions like clicking a button, changing an input field, 
- * etc.  It also sends and receives messages to the Model to commuincate
- * changes required and changes made to the Model variables.  
+ * view and the model, receives UI actions like mouse clicks and sends them
+ * to the Model as events.  The Model sends events back to the View when
+ * the board changes.
  *
  * @author Roger Jaffe
  * @version 1.0
  */
-public class Controller implements MessageHandler, MouseListener {
+public class Controller implements MouseListener, KeyListener {
 
-  private final Messenger mvcMessaging;
+  private final EventBus events;
+
+  // Events for the View, delivered in batches on the Swing thread
+  private final EventBus viewEvents = new EventBus();
+  private final CoalescingDispatcher dispatcher = new CoalescingDispatcher(viewEvents);
+
+  // Runs the Model and the computer players off the Swing thread
+  private final EngineExecutor engine;
+
+  // Clicks are read in its coordinates
+  private final View view;
   
   JFrame f = new JFrame();
 
   /**
    * Controller constructor The Controller is responsible for creating the View
-   * and the Model that it will be controlling. The mvcMessaging object is
-   * passed to the view and the model and is used as a local messenger
+   * and the Model that it will be controlling. The events object is
+   * passed to the view and the model and is used as a local event bus
    * between the Controller, Model and View without have direct access to the
    * View and Model.  Remember, you want the three components separated so
    * that one class works independently of the others.
    *
-   * Messages that can be received in the Controller:
-   *  view:toggleButtonClick (sent by the View when the toggle button is clicked)
-   *  view:buttonClick (sent by the View when the regular button is clicked)
-   *  view:changeButton (sent by the View when the Up or Down buttons are clicked)
-   * Message that are sent from the Controller:
-   *  controller:changeButton (sent by the Controller to notify the Model to change 
-   *    the value of a Model variable
+   * Events sent from the Controller:
+   *  ClickEvent (a square was clicked, handled by the Model)
+   * Events sent from the Model:
+   *  BoardUpdateEvent, PassEvent, GameOverEvent (handled by the View)
+   * Events sent from computer players:
+   *  SearchProgressEvent (handled by the View)
+   * The Model and the computer players run on the EngineExecutor's
+   * thread.  The View gets their events through a CoalescingDispatcher,
+   * so the Model never waits for painting and only the latest board of
+   * a burst of moves is painted.
+   *
+   * Computer players are named by the othello.white and othello.black
+   * system properties.  While one thinks, space makes it move now,
+   * Escape cancels its move and pauses the computer players, and Enter
+   * lets them carry on.  Ctrl+Z takes back a move and Ctrl+Y makes
+   * it again.
    */
   public Controller() {
-    // Create the local messaging class
-    mvcMessaging = new Messenger();
+    // Create the local event bus
+    events = new EventBus();
+    dispatcher.forward(events, BoardUpdateEvent.class);
+    dispatcher.forward(events, PassEvent.class);
+    dispatcher.forward(events, GameOverEvent.class);
+    dispatcher.forward(events, SearchProgressEvent.class);
 
     int w = 655;
     int h = 655;
     //True size of the screen: 638, 638
     
     
-    View dc = new View(w, h, mvcMessaging);
-    dc.init();
+    view = new View(w, h, viewEvents);
+    view.init();
     
     
     //Add 25 due to the bezel at the top of the screen
     f.setSize(w, h + 25 + 50);
     f.setTitle("Othello MVC");
-    f.add(dc);
+    f.add(view);
     f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     f.setVisible(true);
-    f.addMouseListener(this);
+    view.addMouseListener(this);
+    f.addKeyListener(this);
     
 
     // Create the model
-    Model model = new Model(mvcMessaging);  // This creates our model
+    Model model = new Model(events);  // This creates our model
     model.init();
+
+    engine = new EngineExecutor(model, events);
+    engine.configure();
   }
 
   /**
    * Initialize the model here and subscribe
-   * to any required messages
+   * to any required events
    * 
    * "this" refers to this controller object.
    */
   public void init() {
-    // This is where you would subscribe to any messages the controller
+    // This is where you would subscribe to any events the controller
     // would need to process
     // A sample subscriber call would be like...
-    //mvcMessaging.subscribe("view:toggleButtonClick", this);
-    mvcMessaging.subscribe("repaint", this);
-    
-  }
-
-  @Override
-  public void messageHandler(String messageName, Object messagePayload) {
-    if (messagePayload != null) {
-      System.out.println("MSG: received by controller: "+messageName+" | "+messagePayload.toString());
-    } else {
-      System.out.println("MSG: received by controller: "+messageName+" | No data sent");
-    }
-    
-    if (messageName.equals("repaint") || messageName.equals("repaint")){
-        System.out.println("repaint");
-        f.repaint();
-    }
+    //events.subscribe(GameOverEvent.class, handler);
   }
 
   /**
@@ -100,23 +109,47 @@ public class Controller implements MessageHandler, MouseListener {
    * @param args the command line arguments
    */
   public static void main(String[] args) {
+    Log.installCrashHandler();          // Dump the log if anything dies
+    Metrics.start();                    // Publish the metrics over JMX
     Controller app = new Controller();  // Create our controller...
     app.init();                         // ...and init it too
   }
   
   public void mouseExited(MouseEvent e){}
   public void mouseEntered(MouseEvent e){
-      System.out.println("Mouse Entered");
+      if (Log.TRACE_COMPILED && Log.isEnabled(Log.TRACE)) {
+          Log.log(Log.TRACE, "Mouse entered at %s", e.getPoint());
+      }
   }
   public void mouseReleased(MouseEvent e){}
   public void mousePressed(MouseEvent e){
   }
   public void mouseClicked(MouseEvent e){
-        int x = (e.getX() - 8) / 80;
-        int y = (e.getY() - 31) / 80;
-        mvcMessaging.notify("MouseClicked", x + " " + y);
-        System.out.println(x + " " + y);
+        // The view draws rows along x and columns along y
+        int square = view.getSquareSize();
+        int x = e.getX() / square;
+        int y = e.getY() / square;
+        if (x >= Constants.SIZE || y >= Constants.SIZE) {
+            return;             // In the score strip or the margin
+        }
+        if (Log.DEBUG_COMPILED && Log.isEnabled(Log.DEBUG)) {
+            Log.log(Log.DEBUG, "Click on square %d,%d", x, y);
+        }
+        engine.click(x, y);
         
   }
+
+  public void keyTyped(KeyEvent e){}
+  public void keyReleased(KeyEvent e){}
+  public void keyPressed(KeyEvent e){
+      switch (e.getKeyCode()) {
+        case KeyEvent.VK_SPACE:  engine.moveNow(); break;
+        case KeyEvent.VK_ESCAPE: engine.cancel(); break;
+        case KeyEvent.VK_ENTER:  engine.resume(); break;
+        case KeyEvent.VK_Z:      if (e.isControlDown()) engine.undo(); break;
+        case KeyEvent.VK_Y:      if (e.isControlDown()) engine.redo(); break;
+        default: break;
+      }
+  }
   
 }
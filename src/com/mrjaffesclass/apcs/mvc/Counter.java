@@ -0,0 +1,66 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A running total that any thread may add to without locking
+ *
+ * @version 1.0
+ */
+public final class Counter
+{
+  private final String name;
+  private final AtomicLong value = new AtomicLong();
+
+  /**
+   * Create a counter at zero
+   * @param name Name shown in dumps and over JMX
+   */
+  public Counter(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Get the counter's name
+   * @return Name given to the constructor
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Add to the total
+   * @param amount Amount to add
+   */
+  public void add(long amount) {
+    this.value.addAndGet(amount);
+  }
+
+  /**
+   * Add one to the total
+   */
+  public void increment() {
+    this.value.incrementAndGet();
+  }
+
+  /**
+   * Get the total
+   * @return Sum of everything added since the last reset
+   */
+  public long get() {
+    return this.value.get();
+  }
+
+  /**
+   * Set the total back to zero
+   */
+  public void reset() {
+    this.value.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return this.name + ": " + this.get();
+  }
+
+}
@@ -6,38 +6,119 @@ import java.awt.Point;
  * pair with a vector that will implement the change 
  * in position
  * 
+ * Each compass point also has a direction number, its place in
+ * getDirections(), and the tables below are indexed by that number
+ * so the move code can step around the board without building
+ * Position objects.
+ *
  * @author Mr. Jaffe
  * @version 1.0
  */
 public class Directions {
 
   /**
-   * Gets the requested direction vector
+   * Number of compass directions
+   */
+  public static final int COUNT = 8;
+
+  /**
+   * Row change for each direction number
+   */
+  private static final int[] ROW_OFFSETS = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+  /**
+   * Column change for each direction number
+   */
+  private static final int[] COL_OFFSETS = {0, 1, 1, 1, 0, -1, -1, -1};
+
+  /**
+   * Compass points in direction number order
+   */
+  private static final String[] POINTS = {"N","NE","E","SE","S","SW","W","NW"};
+
+  /**
+   * Direction vectors in direction number order
+   */
+  private static final Position[] VECTORS = new Position[COUNT];
+
+  /**
+   * Index of the neighbouring square, or -1 if it is off the board,
+   * stored at (square index * COUNT + direction number)
+   */
+  private static final int[] NEIGHBOURS = new int[Constants.SIZE * Constants.SIZE * COUNT];
+
+  static {
+    for (int dir = 0; dir < COUNT; dir++) {
+      VECTORS[dir] = new Position(ROW_OFFSETS[dir], COL_OFFSETS[dir]);
+    }
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        for (int dir = 0; dir < COUNT; dir++) {
+          int newRow = row + ROW_OFFSETS[dir];
+          int newCol = col + COL_OFFSETS[dir];
+          boolean onBoard = 0 <= newRow && newRow < Constants.SIZE
+            && 0 <= newCol && newCol < Constants.SIZE;
+          NEIGHBOURS[(row * Constants.SIZE + col) * COUNT + dir] =
+            onBoard ? newRow * Constants.SIZE + newCol : -1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the requested direction vector.  The vector is shared, so
+   * callers must not change it.
    * @param compassPoint Direction whose vector we want to retrieve
    * @return Direction vector
    */
   public static Position getVector(String compassPoint) {
     switch (compassPoint) {
-      case "N":  return new Position(-1,0);
-      case "NE": return new Position(-1,1);
-      case "E":  return new Position(0,1);
-      case "SE": return new Position(1,1);
-      case "S":  return new Position(1,0);
-      case "SW": return new Position(1,-1);
-      case "W":  return new Position(0,-1);
-      case "NW": return new Position(-1,-1);
+      case "N":  return VECTORS[0];
+      case "NE": return VECTORS[1];
+      case "E":  return VECTORS[2];
+      case "SE": return VECTORS[3];
+      case "S":  return VECTORS[4];
+      case "SW": return VECTORS[5];
+      case "W":  return VECTORS[6];
+      case "NW": return VECTORS[7];
     }
     return null;
   }
-  
+
   /**
    * Gets an array of strings representing cardinal
-   * direction points
+   * direction points.  The array is shared, so callers must
+   * not change it.
    * @return Array of direction strings
    */
   public static String[] getDirections() {
-    String[] points = {"N","NE","E","SE","S","SW","W","NW"};
-    return points;
+    return POINTS;
+  }
+
+  /**
+   * Gets the direction number of a vector
+   * @param vector Direction vector
+   * @return Direction number
+   * @throws IllegalArgumentException if the vector isn't one of the
+   *         compass directions
+   */
+  public static int getDirection(Point vector) {
+    for (int dir = 0; dir < COUNT; dir++) {
+      if (ROW_OFFSETS[dir] == vector.x && COL_OFFSETS[dir] == vector.y) {
+        return dir;
+      }
+    }
+    throw new IllegalArgumentException("Not a compass direction: (" + vector.x + "," + vector.y + ")");
+  }
+
+  /**
+   * Gets the square next to a square
+   * @param index Square index (row * Constants.SIZE + col)
+   * @param dir Direction number
+   * @return Index of the neighbouring square, or -1 if it is off the board
+   */
+  public static int neighbour(int index, int dir) {
+    return NEIGHBOURS[index * COUNT + dir];
   }
-  
+
 }
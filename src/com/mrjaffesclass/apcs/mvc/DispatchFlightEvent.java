@@ -0,0 +1,29 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one EventBus.publish: its duration is the
+ * time the handlers took
+ *
+ * @version 1.0
+ */
+@Name("com.mrjaffesclass.apcs.mvc.Dispatch")
+@Label("Event Dispatch")
+@Category({ "Othello", "Events" })
+@Description("An event handed to its handlers")
+@Enabled(false)
+@StackTrace(false)
+public class DispatchFlightEvent extends jdk.jfr.Event
+{
+  @Label("Event Type")
+  Class<?> eventType;
+
+  @Label("Handlers")
+  int handlers;
+}
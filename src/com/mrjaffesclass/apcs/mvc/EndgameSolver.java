@@ -0,0 +1,542 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Exact endgame solver.  Plays every line to the end of the game and
+ * returns the final disc difference with best play, counting empty
+ * squares left at the end for the winner.  Positions are passed as
+ * (own, opp) like in Search.
+ *
+ * Move ordering changes with the number of empty squares.  Far from
+ * the end, moves that leave the opponent the fewest replies go first.
+ * Closer to the end, moves into regions (board quadrants) with an odd
+ * number of empties go first, so the side to move tends to get the
+ * last move in each region.  The last few empties skip move
+ * generation and just try each empty square, and the very last empty
+ * square is scored without making the move at all.
+ *
+ * A win/loss/draw solve searches with a window of one disc around 0.
+ * It cuts off much more often than an exact solve and finishes
+ * several times sooner.
+ *
+ * @version 1.0
+ */
+public class EndgameSolver
+{
+  /**
+   * Score returned by solveWinLossDraw() for a win
+   */
+  public static final int WIN = 1;
+
+  /**
+   * Score returned by solveWinLossDraw() for a draw
+   */
+  public static final int DRAW = 0;
+
+  /**
+   * Score returned by solveWinLossDraw() for a loss
+   */
+  public static final int LOSS = -1;
+
+  /**
+   * How many nodes to search between clock checks
+   */
+  private static final int CHECK_INTERVAL = 4096;
+
+  /**
+   * Empties at or below which moves are tried square by square in
+   * parity order without generating a move list
+   */
+  private static final int SHALLOW_EMPTIES = 4;
+
+  /**
+   * Empties above which moves are ordered by the opponent's mobility
+   */
+  private static final int MOBILITY_ORDER_EMPTIES = 7;
+
+  /**
+   * Empties at or above which results go in the transposition table
+   */
+  private static final int TABLE_EMPTIES = 9;
+
+  /**
+   * The four quadrants of the board
+   */
+  private static final long[] QUADRANTS = {
+    0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L
+  };
+
+  /**
+   * Ordering bonus for the four corners
+   */
+  private static final long CORNERS = 0x8100000000000081L;
+
+  /**
+   * Moves at each empty count, reused across nodes.  A pass keeps the
+   * empty count but leaves no moves behind, so it can share a row.
+   */
+  private final int[][] moves = new int[Constants.SIZE * Constants.SIZE + 1][Constants.SIZE * Constants.SIZE];
+
+  /**
+   * Ordering keys matching moves, reused across nodes
+   */
+  private final int[][] keys = new int[Constants.SIZE * Constants.SIZE + 1][Constants.SIZE * Constants.SIZE];
+
+  /**
+   * Results of earlier nodes, or null to solve without one
+   */
+  private final TranspositionTable table;
+
+  private long nodes;
+  private long deadline;
+  private int bestMove = -1;
+  private int score;
+  private boolean complete;
+  private long elapsedNanos;
+  private volatile boolean stopped;
+
+  /**
+   * Create a solver without a transposition table
+   */
+  public EndgameSolver() {
+    this(null);
+  }
+
+  /**
+   * Create a solver
+   * @param table Transposition table to use, or null for none.  Don't
+   *              share it with a Search, the scores are on a different
+   *              scale.
+   */
+  public EndgameSolver(TranspositionTable table) {
+    this.table = table;
+  }
+
+  /**
+   * Find the exact final disc difference with best play
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param timeLimit Time budget in milliseconds
+   * @return Own discs minus opposing discs at the end of the game, or 0
+   *         if the time ran out (see isComplete())
+   */
+  public int solve(long own, long opp, long timeLimit) {
+    return this.solveRoot(own, opp, -Constants.SIZE * Constants.SIZE,
+      Constants.SIZE * Constants.SIZE, timeLimit);
+  }
+
+  /**
+   * Find out only whether the side to move wins, loses or draws
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param timeLimit Time budget in milliseconds
+   * @return One of WIN, DRAW or LOSS, or DRAW if the time ran out (see
+   *         isComplete())
+   */
+  public int solveWinLossDraw(long own, long opp, long timeLimit) {
+    // Outside the window the score is only a bound, but its sign is right
+    this.score = Integer.signum(this.solveRoot(own, opp, LOSS, WIN, timeLimit));
+    return this.score;
+  }
+
+  /**
+   * Solve the root position inside a window and remember its best move
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param alpha Lower bound of the window
+   * @param beta Upper bound of the window
+   * @param timeLimit Time budget in milliseconds
+   * @return Score, exact if it falls inside the window
+   */
+  private int solveRoot(long own, long opp, int alpha, int beta, long timeLimit) {
+    long start = System.nanoTime();
+    SearchFlightEvent flight = null;
+    if (Search.FLIGHT_TYPE.isEnabled()) {
+      flight = new SearchFlightEvent();
+      flight.begin();
+    }
+    this.deadline = start + timeLimit * 1000000L;
+    this.nodes = 0;
+    this.bestMove = -1;
+    this.score = 0;
+    this.complete = false;
+    this.stopped = false;
+    if (this.table != null) {
+      this.table.newSearch();
+    }
+
+    int empties = Long.bitCount(~(own | opp));
+    int count = this.generate(own, opp, empties, -1);
+    int best;
+    if (count == 0) {
+      // Passing isn't a move, but the score is still worth knowing
+      best = -this.negamax(opp, own, -beta, -alpha, true);
+    } else {
+      int[] rootMoves = this.moves[empties];
+      best = -Constants.SIZE * Constants.SIZE - 1;
+      for (int i = 0; i < count && !this.stopped; i++) {
+        int move = rootMoves[i];
+        long flipped = BitBoard.flips(own, opp, move);
+        int result = -this.negamax(opp ^ flipped, own ^ flipped ^ (1L << move),
+          -beta, -alpha, false);
+        if (!this.stopped && result > best) {
+          best = result;
+          this.bestMove = move;
+          if (result > alpha) {
+            alpha = result;
+            if (alpha >= beta) {
+              break;
+            }
+          }
+        }
+      }
+    }
+    this.complete = !this.stopped;
+    this.score = this.complete ? best : 0;
+    this.elapsedNanos = System.nanoTime() - start;
+    if (Metrics.ENABLED) {
+      Metrics.SEARCH.record(this.elapsedNanos);
+      Metrics.SEARCH_NODES.add(this.nodes);
+    }
+    if (flight != null) {
+      flight.end();
+      if (flight.shouldCommit()) {
+        flight.engine = "EndgameSolver";
+        flight.depth = empties;
+        flight.move = this.bestMove < 0 ? null : GameRecord.squareName(this.bestMove);
+        flight.score = this.score;
+        flight.nodes = this.nodes;
+        flight.completed = this.complete;
+        flight.commit();
+      }
+    }
+    return this.score;
+  }
+
+  /**
+   * Ask a running solve to stop as soon as possible
+   */
+  public void stop() {
+    this.stopped = true;
+  }
+
+  /**
+   * Fail-soft negamax to the end of the game
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param alpha Lower bound of the search window
+   * @param beta Upper bound of the search window
+   * @param passed True if the other side passed to get here
+   * @return Final disc difference from the point of view of the side
+   *         to move, exact if it falls inside the window
+   */
+  private int negamax(long own, long opp, int alpha, int beta, boolean passed) {
+    this.nodes++;
+    if ((this.nodes & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() > this.deadline) {
+      this.stopped = true;
+    }
+    if (this.stopped) {
+      return 0;
+    }
+    long empty = ~(own | opp);
+    int empties = Long.bitCount(empty);
+    if (empties <= SHALLOW_EMPTIES) {
+      return this.shallow(own, opp, empty, alpha, beta, passed);
+    }
+
+    long hash = 0;
+    int hashMove = -1;
+    if (this.table != null && empties >= TABLE_EMPTIES) {
+      hash = hash(own, opp);
+      long entry = this.table.probe(hash);
+      if (entry != 0) {
+        hashMove = TranspositionTable.getMove(entry);
+        int score = TranspositionTable.getScore(entry);
+        switch (TranspositionTable.getBound(entry)) {
+          case TranspositionTable.EXACT:
+            return score;
+          case TranspositionTable.LOWER:
+            if (score >= beta) {
+              return score;
+            }
+            break;
+          case TranspositionTable.UPPER:
+            if (score <= alpha) {
+              return score;
+            }
+            break;
+        }
+      }
+    }
+
+    int count = this.generate(own, opp, empties, hashMove);
+    if (count == 0) {
+      if (passed) {
+        return finalScore(own, opp);
+      }
+      return -this.negamax(opp, own, -beta, -alpha, true);
+    }
+    int[] nodeMoves = this.moves[empties];
+    int originalAlpha = alpha;
+    int best = -Constants.SIZE * Constants.SIZE - 1;
+    int bestMove = -1;
+    for (int i = 0; i < count; i++) {
+      int move = nodeMoves[i];
+      long flipped = BitBoard.flips(own, opp, move);
+      int score = -this.negamax(opp ^ flipped, own ^ flipped ^ (1L << move),
+        -beta, -alpha, false);
+      if (score > best) {
+        best = score;
+        bestMove = move;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta) {
+            break;
+          }
+        }
+      }
+    }
+    if (hash != 0 && !this.stopped) {
+      int bound = best <= originalAlpha ? TranspositionTable.UPPER
+        : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+      this.table.store(hash, bestMove, empties, bound, best);
+    }
+    return best;
+  }
+
+  /**
+   * Solve the last few empties.  Each empty square is tried directly,
+   * squares in odd regions first; an empty square with no flips isn't
+   * a legal move.
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param empty Empty squares
+   * @param alpha Lower bound of the search window
+   * @param beta Upper bound of the search window
+   * @param passed True if the other side passed to get here
+   * @return Final disc difference from the point of view of the side
+   *         to move
+   */
+  private int shallow(long own, long opp, long empty, int alpha, int beta, boolean passed) {
+    if (Long.bitCount(empty) == 1) {
+      return lastMove(own, opp, Long.numberOfTrailingZeros(empty));
+    }
+    long odd = oddRegions(empty) & empty;
+    int best = -Constants.SIZE * Constants.SIZE - 1;
+    for (int round = 0; round < 2; round++) {
+      long squares = round == 0 ? odd : empty & ~odd;
+      while (squares != 0) {
+        int move = Long.numberOfTrailingZeros(squares);
+        squares &= squares - 1;
+        long flipped = BitBoard.flips(own, opp, move);
+        if (flipped == 0) {
+          continue;
+        }
+        this.nodes++;
+        long placed = flipped | (1L << move);
+        int score = -this.shallow(opp ^ flipped, own ^ placed, empty ^ (1L << move),
+          -beta, -alpha, false);
+        if (score > best) {
+          best = score;
+          if (score > alpha) {
+            alpha = score;
+            if (alpha >= beta) {
+              return best;
+            }
+          }
+        }
+      }
+    }
+    if (best > -Constants.SIZE * Constants.SIZE - 1) {
+      return best;
+    }
+    if (passed) {
+      return finalScore(own, opp);
+    }
+    this.nodes++;
+    return -this.shallow(opp, own, empty, -beta, -alpha, true);
+  }
+
+  /**
+   * Score the last empty square.  Only the number of flips matters, so
+   * the move is never made.
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param square The one empty square
+   * @return Final disc difference from the point of view of the side
+   *         to move
+   */
+  private int lastMove(long own, long opp, int square) {
+    this.nodes++;
+    // With one empty square, own + opp = 63
+    int ownCount = Long.bitCount(own);
+    int flips = Long.bitCount(BitBoard.flips(own, opp, square));
+    if (flips > 0) {
+      return 2 * (ownCount + flips) + 2 - Constants.SIZE * Constants.SIZE;
+    }
+    flips = Long.bitCount(BitBoard.flips(opp, own, square));
+    if (flips > 0) {
+      return 2 * (ownCount - flips) - Constants.SIZE * Constants.SIZE;
+    }
+    return finalScore(own, opp);
+  }
+
+  /**
+   * Generate and order the moves for a node
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param empties Number of empty squares, picks the row of moves
+   * @param hashMove Best move from the transposition table, or -1
+   * @return Number of moves stored in moves[empties]
+   */
+  private int generate(long own, long opp, int empties, int hashMove) {
+    int[] nodeMoves = this.moves[empties];
+    int[] nodeKeys = this.keys[empties];
+    long legal = BitBoard.legalMoves(own, opp);
+    long odd = oddRegions(~(own | opp));
+    int count = 0;
+    while (legal != 0) {
+      int move = Long.numberOfTrailingZeros(legal);
+      long bit = legal & -legal;
+      legal ^= bit;
+      int key = 0;
+      if (move == hashMove) {
+        key = Integer.MAX_VALUE;
+      } else {
+        if ((odd & bit) != 0) {
+          key += 8;
+        }
+        if ((CORNERS & bit) != 0) {
+          key += 4;
+        }
+        if (empties > MOBILITY_ORDER_EMPTIES) {
+          long flipped = BitBoard.flips(own, opp, move);
+          long replies = BitBoard.legalMoves(opp ^ flipped, own ^ flipped ^ bit);
+          // Corners the opponent could take count twice
+          key -= 16 * (Long.bitCount(replies) + Long.bitCount(replies & CORNERS));
+        }
+      }
+      nodeMoves[count] = move;
+      nodeKeys[count] = key;
+      count++;
+    }
+    // Insertion sort by descending key
+    for (int i = 1; i < count; i++) {
+      int move = nodeMoves[i];
+      int key = nodeKeys[i];
+      int j = i - 1;
+      while (j >= 0 && nodeKeys[j] < key) {
+        nodeMoves[j + 1] = nodeMoves[j];
+        nodeKeys[j + 1] = nodeKeys[j];
+        j--;
+      }
+      nodeMoves[j + 1] = move;
+      nodeKeys[j + 1] = key;
+    }
+    return count;
+  }
+
+  /**
+   * Find the quadrants holding an odd number of empty squares
+   * @param empty Empty squares
+   * @return Union of the odd quadrants
+   */
+  private static long oddRegions(long empty) {
+    long odd = 0;
+    for (long quadrant : QUADRANTS) {
+      if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+        odd |= quadrant;
+      }
+    }
+    return odd;
+  }
+
+  /**
+   * Score of a finished game, with the empty squares going to the
+   * winner
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @return Own discs minus opposing discs
+   */
+  static int finalScore(long own, long opp) {
+    int ownCount = Long.bitCount(own);
+    int oppCount = Long.bitCount(opp);
+    int empties = Constants.SIZE * Constants.SIZE - ownCount - oppCount;
+    int diff = ownCount - oppCount;
+    if (diff > 0) {
+      return diff + empties;
+    } else if (diff < 0) {
+      return diff - empties;
+    }
+    return 0;
+  }
+
+  /**
+   * Hash a position for the transposition table.  The solver doesn't
+   * track colors, so this mixes (own, opp) instead of using Zobrist
+   * keys.  Never returns 0, which marks positions that aren't stored.
+   */
+  private static long hash(long own, long opp) {
+    long h = own * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opp * 0xC2B2AE3D27D4EB4FL, 31);
+    h ^= h >>> 29;
+    h *= 0xBF58476D1CE4E5B9L;
+    h ^= h >>> 32;
+    return h != 0 ? h : 1;
+  }
+
+  /**
+   * Find out whether the last solve finished in time
+   * @return True if the score and best move are exact
+   */
+  public boolean isComplete() {
+    return this.complete;
+  }
+
+  /**
+   * Get the best move of the last solve
+   * @return Bit index of the move, or -1 if there was none or the
+   *         time ran out before the first move was solved
+   */
+  public int getBestMove() {
+    return this.bestMove;
+  }
+
+  /**
+   * Get the result of the last solve
+   * @return Disc difference, or WIN, DRAW or LOSS for a win/loss/draw
+   *         solve
+   */
+  public int getScore() {
+    return this.score;
+  }
+
+  /**
+   * Get the number of nodes visited in the last solve
+   * @return Node count
+   */
+  public long getNodes() {
+    return this.nodes;
+  }
+
+  /**
+   * Get the speed of the last solve
+   * @return Nodes per second
+   */
+  public long getNodesPerSecond() {
+    return this.elapsedNanos > 0 ? this.nodes * 1000000000L / this.elapsedNanos : 0;
+  }
+
+  /**
+   * Get the time the last solve took
+   * @return Milliseconds
+   */
+  public long getElapsedMillis() {
+    return this.elapsedNanos / 1000000L;
+  }
+
+  @Override
+  public String toString() {
+    return (this.complete ? "solved " + this.score : "unsolved") + ", " + this.nodes + " nodes, "
+      + this.getNodesPerSecond() + " nodes/sec, " + this.getElapsedMillis() + " ms";
+  }
+
+}
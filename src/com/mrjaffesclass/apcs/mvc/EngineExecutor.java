@@ -0,0 +1,339 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the game off the Swing event dispatch thread.  Every change to
+ * the Model, whether from a click or from a computer player, happens
+ * on one engine thread, and computer players work out their moves on
+ * that thread too.  The window stays responsive however long a player
+ * thinks; the Model's events reach the View through the Controller's
+ * CoalescingDispatcher as before.
+ *
+ * Each side is a human (no player) or a computer Player.  A move being
+ * worked out can be
+ *   cut short with moveNow(): the player plays its best move so far
+ *   cancelled with cancel(): nothing is played and computer moves stay
+ *     paused until resume()
+ *   limited by a deadline: moveNow() happens by itself when it passes
+ * Stopping is cooperative.  Player.stop() is called every few
+ * milliseconds until getNextMove returns, so a stop that arrives while
+ * the player is between phases isn't lost.
+ *
+ * undo() and redo() step through the Model's history.  An undo takes
+ * back the computer's replies too, back to the last position a human
+ * has to move in, unless the computer players are paused.
+ *
+ * Computer players publish SearchProgressEvents on the Model's bus
+ * while they think.
+ *
+ * @version 1.0
+ */
+public class EngineExecutor
+{
+  /**
+   * System properties naming the computer players, as Tournament player
+   * specs such as AlphaBetaPlayer:2000.  A side without one is human.
+   */
+  public static final String WHITE_PROPERTY = "othello.white";
+  public static final String BLACK_PROPERTY = "othello.black";
+
+  /**
+   * System property with the per-move deadline in milliseconds
+   */
+  public static final String DEADLINE_PROPERTY = "othello.deadline";
+
+  /**
+   * How often a stop request is passed on to the player
+   */
+  private static final long STOP_POLL_MILLIS = 5;
+
+  private final EventBus events;
+  private final Model model;
+
+  /**
+   * The engine thread: all Model work and all thinking
+   */
+  private final ExecutorService engine;
+
+  /**
+   * Passes stop requests and deadlines on while a player thinks
+   */
+  private final ScheduledExecutorService timer;
+
+  // Used only on the engine thread
+  private final ClickEvent click = new ClickEvent();
+  private final Square[][] squares = new Square[Constants.SIZE][Constants.SIZE];
+
+  private volatile Player white;
+  private volatile Player black;
+  private volatile long deadlineMillis;
+  private volatile boolean paused;
+
+  // The move being worked out
+  private volatile Player thinking;
+  private volatile boolean stopRequested;
+  private volatile boolean cancelled;
+
+  private final Runnable continueGame = new Runnable() {
+    @Override
+    public void run() {
+      continueGame();
+    }
+  };
+
+  private final Runnable think = new Runnable() {
+    @Override
+    public void run() {
+      think();
+    }
+  };
+
+  /**
+   * Create an executor for a model.  Both sides start human.
+   * @param model Model to play on; from now on only the engine thread
+   *        may use it
+   * @param events Bus the Model listens for clicks on
+   */
+  public EngineExecutor(Model model, EventBus events) {
+    this.model = model;
+    this.events = events;
+    this.engine = Executors.newSingleThreadExecutor(daemon("Othello engine"));
+    this.timer = Executors.newSingleThreadScheduledExecutor(daemon("Othello engine timer"));
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        this.squares[row][col] = new Square(Constants.EMPTY);
+      }
+    }
+    this.deadlineMillis = Long.getLong(DEADLINE_PROPERTY, 0);
+  }
+
+  /**
+   * Set up the computer players named by the othello.white and
+   * othello.black system properties
+   */
+  public void configure() {
+    String spec = System.getProperty(WHITE_PROPERTY);
+    this.setPlayer(Constants.WHITE, spec == null ? null : Tournament.createPlayer(spec, Constants.WHITE));
+    spec = System.getProperty(BLACK_PROPERTY);
+    this.setPlayer(Constants.BLACK, spec == null ? null : Tournament.createPlayer(spec, Constants.BLACK));
+  }
+
+  /**
+   * Choose who plays a side.  Takes effect from that side's next move.
+   * @param color One of Constants.WHITE or Constants.BLACK
+   * @param player Computer player, or null for a human
+   */
+  public void setPlayer(int color, Player player) {
+    if (player != null) {
+      player.setProgress(this.events);
+    }
+    if (color == Constants.WHITE) {
+      this.white = player;
+    } else {
+      this.black = player;
+    }
+    this.engine.execute(this.continueGame);
+  }
+
+  /**
+   * Get who plays a side
+   * @param color One of Constants.WHITE or Constants.BLACK
+   * @return Computer player, or null for a human
+   */
+  public Player getPlayer(int color) {
+    return color == Constants.WHITE ? this.white : this.black;
+  }
+
+  /**
+   * Set the longest a computer player may think about one move.  The
+   * player's own time budget still applies if it is shorter.
+   * @param millis Deadline in milliseconds, 0 for none
+   */
+  public void setDeadline(long millis) {
+    this.deadlineMillis = Math.max(0, millis);
+  }
+
+  /**
+   * A human clicked a square.  Ignored while it's a computer player's
+   * turn.
+   * @param row Row of the square
+   * @param col Column of the square
+   */
+  public void click(final int row, final int col) {
+    this.engine.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (getPlayer(model.getSideToMove()) == null) {
+          events.publish(click.set(row, col));
+          continueGame();
+        }
+      }
+    });
+  }
+
+  /**
+   * Make the player thinking play its best move so far
+   */
+  public void moveNow() {
+    this.stopRequested = true;
+    Player player = this.thinking;
+    if (player != null) {
+      player.stop();
+    }
+  }
+
+  /**
+   * Abandon the move being worked out and pause the computer players
+   */
+  public void cancel() {
+    this.paused = true;
+    this.cancelled = true;
+    this.moveNow();
+  }
+
+  /**
+   * Let the computer players move again after cancel()
+   */
+  public void resume() {
+    this.paused = false;
+    this.engine.execute(this.continueGame);
+  }
+
+  /**
+   * Take back the last move.  A move being worked out is abandoned
+   * without pausing the computer players.
+   */
+  public void undo() {
+    this.discardThinking();
+    this.engine.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (model.undo()) {
+          while (!paused && getPlayer(model.getSideToMove()) != null && model.undo()) {
+          }
+        }
+        continueGame();
+      }
+    });
+  }
+
+  /**
+   * Make the last move taken back again
+   */
+  public void redo() {
+    this.discardThinking();
+    this.engine.execute(new Runnable() {
+      @Override
+      public void run() {
+        model.redo();
+        continueGame();
+      }
+    });
+  }
+
+  /**
+   * Abandon the move being worked out, if any, and leave the pause
+   * state alone
+   */
+  private void discardThinking() {
+    if (this.thinking != null) {
+      this.cancelled = true;
+      this.moveNow();
+    }
+  }
+
+  /**
+   * Is a computer player working out a move?
+   * @return True while getNextMove runs
+   */
+  public boolean isThinking() {
+    return this.thinking != null;
+  }
+
+  /**
+   * Stop the engine threads.  A move being worked out is abandoned.
+   */
+  public void shutdown() {
+    this.cancel();
+    this.engine.shutdown();
+    this.timer.shutdown();
+  }
+
+  /**
+   * Start the next computer move if it's a computer player's turn.
+   * Runs on the engine thread.
+   */
+  private void continueGame() {
+    if (!this.paused && !this.model.isGameOver() && this.getPlayer(this.model.getSideToMove()) != null
+        && this.thinking == null) {
+      this.engine.execute(this.think);
+    }
+  }
+
+  /**
+   * Work out and play one computer move.  Runs on the engine thread.
+   */
+  private void think() {
+    final Player player = this.getPlayer(this.model.getSideToMove());
+    if (this.paused || this.model.isGameOver() || player == null || this.thinking != null) {
+      return;
+    }
+    this.stopRequested = false;
+    this.cancelled = false;
+    this.thinking = player;
+    long deadline = this.deadlineMillis;
+    final long stopAt = deadline > 0 ? System.nanoTime() + deadline * 1000000L : Long.MAX_VALUE;
+    ScheduledFuture<?> stopper = this.timer.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        if (stopRequested || System.nanoTime() >= stopAt) {
+          player.stop();
+        }
+      }
+    }, STOP_POLL_MILLIS, STOP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    Position move = null;
+    try {
+      Board board = new Board(this.model.getSnapshot().toSquares(this.squares));
+      move = player.getNextMove(board);
+    } catch (RuntimeException e) {
+      Log.error(player + " failed to pick a move", e);
+      this.paused = true;
+    } finally {
+      stopper.cancel(false);
+      this.thinking = null;
+    }
+    if (this.cancelled || this.paused) {
+      return;
+    }
+    if (move == null || !BitBoard.onBoard(move.getRow(), move.getCol())
+        || !this.model.isLegalMove(player, move)) {
+      Log.log(Log.WARN, "%s picked an illegal move %s; computer moves paused", player, move);
+      this.paused = true;
+      return;
+    }
+    this.events.publish(this.click.set(move.getRow(), move.getCol()));
+    this.continueGame();
+  }
+
+  /**
+   * Make a factory for daemon threads, so the engine never keeps the
+   * program running
+   */
+  private static ThreadFactory daemon(final String name) {
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+
+}
@@ -0,0 +1,16 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Receives one type of event from an EventBus
+ *
+ * @param <E> Type of event handled
+ * @version 1.0
+ */
+public interface EventHandler<E extends GameEvent>
+{
+  /**
+   * Handle an event.  The event may be reused once this returns.
+   * @param event Event that was published
+   */
+  void handle(E event);
+}
@@ -0,0 +1,109 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Frame time and frame rate of a component's painting.  Each paint is
+ * timed by the caller and recorded here; once a second the last
+ * second's figures are logged at DEBUG level.
+ *
+ * Only the painting thread records frames, so nothing is locked; the
+ * getters may be a frame behind when read from another thread.
+ *
+ * @version 1.0
+ */
+public class FrameTimer
+{
+  private static final long SECOND = 1000000000L;
+
+  private final String name;
+
+  private volatile long frames;
+  private volatile long totalNanos;
+  private volatile long maxNanos;
+
+  // The current one second window
+  private long windowStart;
+  private long windowFrames;
+  private long windowNanos;
+  private long windowMax;
+
+  private volatile double framesPerSecond;
+
+  /**
+   * Create a timer
+   * @param name Shown in the log messages
+   */
+  public FrameTimer(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Record one frame
+   * @param start System.nanoTime() when the frame started
+   * @param end System.nanoTime() when it was done
+   */
+  public void record(long start, long end) {
+    long nanos = end - start;
+    this.frames++;
+    this.totalNanos += nanos;
+    if (nanos > this.maxNanos) {
+      this.maxNanos = nanos;
+    }
+    if (this.windowFrames == 0) {
+      this.windowStart = start;
+    }
+    this.windowFrames++;
+    this.windowNanos += nanos;
+    this.windowMax = Math.max(this.windowMax, nanos);
+    long elapsed = end - this.windowStart;
+    if (elapsed >= SECOND) {
+      this.framesPerSecond = this.windowFrames * (double) SECOND / elapsed;
+      if (Log.DEBUG_COMPILED && Log.isEnabled(Log.DEBUG)) {
+        Log.log(Log.DEBUG, "%s: %.1f frames/sec, %.3f ms average, %.3f ms max", this.name,
+          this.framesPerSecond, this.windowNanos / 1e6 / this.windowFrames, this.windowMax / 1e6);
+      }
+      this.windowFrames = 0;
+      this.windowNanos = 0;
+      this.windowMax = 0;
+    }
+  }
+
+  /**
+   * Get the number of frames recorded
+   * @return Frame count
+   */
+  public long getFrames() {
+    return this.frames;
+  }
+
+  /**
+   * Get the average frame time
+   * @return Milliseconds per frame over every frame recorded
+   */
+  public double getAverageMillis() {
+    long count = this.frames;
+    return count == 0 ? 0 : this.totalNanos / 1e6 / count;
+  }
+
+  /**
+   * Get the longest frame time
+   * @return Milliseconds
+   */
+  public double getMaxMillis() {
+    return this.maxNanos / 1e6;
+  }
+
+  /**
+   * Get the frame rate of the last full second that had frames
+   * @return Frames per second
+   */
+  public double getFramesPerSecond() {
+    return this.framesPerSecond;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %d frames, %.3f ms average, %.3f ms max, %.1f frames/sec",
+      this.name, this.getFrames(), this.getAverageMillis(), this.getMaxMillis(), this.getFramesPerSecond());
+  }
+
+}
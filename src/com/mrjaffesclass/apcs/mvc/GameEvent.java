@@ -0,0 +1,34 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Base class of the events sent over an EventBus.  Events are
+ * dispatched by their exact class, so each kind of event is its own
+ * subclass.
+ *
+ * Events are mutable and meant to be reused: a sender keeps one
+ * instance of each event it sends and fills it in again before every
+ * publish, so sending an event allocates nothing.  A handler must copy
+ * anything it wants to keep, because the event will change under it
+ * after it returns.  Boards travel as BoardSnapshots, which never
+ * change, so a handler can keep those as they are.
+ *
+ * @version 1.0
+ */
+public abstract class GameEvent
+{
+  /**
+   * Make this event a copy of another event of the same class.  The
+   * copy stays valid after the other event is reused.
+   * @param other Event to copy, of the same class as this one
+   */
+  public abstract void copyFrom(GameEvent other);
+
+  /**
+   * Can a newer event of the same class replace this one before it is
+   * delivered?  True for events that only describe the latest state.
+   * @return True if only the newest event of this class matters
+   */
+  public boolean isMergeable() {
+    return false;
+  }
+}
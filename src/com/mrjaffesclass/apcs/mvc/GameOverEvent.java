@@ -0,0 +1,43 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Neither side has a legal move
+ *
+ * @version 1.0
+ */
+public class GameOverEvent extends GameEvent
+{
+  private BoardSnapshot board;
+
+  /**
+   * Fill in the event
+   * @param board Final position
+   * @return This event
+   */
+  public GameOverEvent set(BoardSnapshot board) {
+    this.board = board;
+    return this;
+  }
+
+  @Override
+  public void copyFrom(GameEvent other) {
+    this.set(((GameOverEvent) other).board);
+  }
+
+  /**
+   * Get the final position.  It can't change, so it may be kept.
+   * @return Snapshot of the board
+   */
+  public BoardSnapshot getBoard() {
+    return this.board;
+  }
+
+  public int getBlackCount() {
+    return this.board.countSquares(Constants.BLACK);
+  }
+
+  public int getWhiteCount() {
+    return this.board.countSquares(Constants.WHITE);
+  }
+
+}
@@ -0,0 +1,31 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for the end of a game
+ *
+ * @version 1.0
+ */
+@Name("com.mrjaffesclass.apcs.mvc.GameOver")
+@Label("Game Over")
+@Category({ "Othello", "Model" })
+@Description("Neither side can move")
+@Enabled(false)
+@StackTrace(false)
+public class GameOverFlightEvent extends jdk.jfr.Event
+{
+  @Label("Black Discs")
+  int black;
+
+  @Label("White Discs")
+  int white;
+
+  @Label("Moves")
+  int moves;
+}
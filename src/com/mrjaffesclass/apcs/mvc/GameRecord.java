@@ -0,0 +1,136 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.Arrays;
+
+/**
+ * A game stored as its list of moves.  Each move is one byte, the bit
+ * index of the square (row * 8 + col); passes aren't stored because a
+ * replay can tell when a side has no move.  Together with the side
+ * that moved first and the result, a full game fits in 63 bytes.
+ *
+ * Every game starts from the usual four discs.  The Model starts with
+ * white to move, games from other programs usually with black.
+ *
+ * @version 1.0
+ */
+public class GameRecord
+{
+  /**
+   * Most moves a game can have
+   */
+  public static final int MAX_MOVES = Constants.SIZE * Constants.SIZE - 4;
+
+  /**
+   * Result of a game that isn't finished or wasn't scored
+   */
+  public static final int NO_RESULT = Byte.MIN_VALUE;
+
+  private final int firstSide;
+  private final byte[] moves;
+  private final int result;
+
+  /**
+   * Create a record
+   * @param firstSide Side that moved first, Constants.WHITE or
+   *                  Constants.BLACK
+   * @param moves Moves as bit indexes; the array is copied
+   * @param moveCount Number of moves in the array to use
+   * @param result Black's discs minus white's at the end, or NO_RESULT
+   */
+  public GameRecord(int firstSide, byte[] moves, int moveCount, int result) {
+    if (moveCount > MAX_MOVES) {
+      throw new IllegalArgumentException("A game can't have " + moveCount + " moves");
+    }
+    this.firstSide = firstSide;
+    this.moves = Arrays.copyOf(moves, moveCount);
+    this.result = result;
+  }
+
+  /**
+   * Get the side that moved first
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getFirstSide() {
+    return this.firstSide;
+  }
+
+  /**
+   * Get the number of moves, not counting passes
+   * @return Move count
+   */
+  public int getMoveCount() {
+    return this.moves.length;
+  }
+
+  /**
+   * Get one move
+   * @param i Move number, from 0
+   * @return Bit index of the square
+   */
+  public int getMove(int i) {
+    return this.moves[i];
+  }
+
+  /**
+   * Get the result
+   * @return Black's discs minus white's at the end, or NO_RESULT
+   */
+  public int getResult() {
+    return this.result;
+  }
+
+  /**
+   * Play every move on a board
+   * @return Final position
+   * @throws IllegalArgumentException if a move is illegal
+   */
+  public BitBoard replay() {
+    return this.replay(this.moves.length);
+  }
+
+  /**
+   * Play the first moves on a board, passing whenever the side to move
+   * has no legal move
+   * @param count Number of moves to play
+   * @return Position after the moves
+   * @throws IllegalArgumentException if a move is illegal
+   */
+  public BitBoard replay(int count) {
+    BitBoard board = new BitBoard();
+    board.setSideToMove(this.firstSide);
+    for (int i = 0; i < count; i++) {
+      int side = board.getSideToMove();
+      if (board.legalMoves(side) == 0) {
+        board.pass();
+        side = -side;
+      }
+      if (board.makeMove(side, this.moves[i]) == 0) {
+        throw new IllegalArgumentException("Move " + (i + 1) + " "
+          + squareName(this.moves[i]) + " is illegal");
+      }
+    }
+    return board;
+  }
+
+  /**
+   * Get the usual name of a square, column letter then row number
+   * @param index Bit index of the square
+   * @return Name such as "f5"
+   */
+  public static String squareName(int index) {
+    return "" + (char) ('a' + index % Constants.SIZE) + (index / Constants.SIZE + 1);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder(3 * this.moves.length + 16);
+    for (byte move : this.moves) {
+      text.append(squareName(move));
+    }
+    if (this.result != NO_RESULT) {
+      text.append(' ').append(this.result > 0 ? "+" : "").append(this.result);
+    }
+    return text.toString();
+  }
+
+}
@@ -0,0 +1,125 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads game records written by GameRecordWriter one at a time, so
+ * files of millions of games can be processed in constant memory.
+ *
+ * Usage: java com.mrjaffesclass.apcs.mvc.GameRecordReader file
+ *   replays every game in the file and prints a summary
+ *
+ * @version 1.0
+ */
+public class GameRecordReader implements Closeable
+{
+  private final DataInputStream in;
+  private final byte[] moves = new byte[GameRecord.MAX_MOVES];
+  private long count;
+
+  /**
+   * Open a file of games
+   * @param fileName File to read
+   * @throws IOException if the file can't be read or doesn't hold games
+   */
+  public GameRecordReader(String fileName) throws IOException {
+    this(new FileInputStream(fileName));
+  }
+
+  /**
+   * Start reading games from a stream
+   * @param in Stream to read; it is closed with the reader
+   * @throws IOException if the stream doesn't hold games
+   */
+  public GameRecordReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    try {
+      if (this.in.readInt() != GameRecordWriter.MAGIC) {
+        throw new IOException("Not a game record file");
+      }
+      if (this.in.readInt() != GameRecordWriter.VERSION) {
+        throw new IOException("Unsupported game record version");
+      }
+    } catch (IOException e) {
+      this.in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Read the next game
+   * @return Game, or null at the end of the stream
+   * @throws IOException if the stream ends in the middle of a game
+   */
+  public GameRecord read() throws IOException {
+    int flags = this.in.read();
+    if (flags < 0) {
+      return null;
+    }
+    try {
+      int moveCount = this.in.readUnsignedByte();
+      int result = this.in.readByte();
+      if (moveCount > GameRecord.MAX_MOVES) {
+        throw new IOException("Game " + (this.count + 1) + " has " + moveCount + " moves");
+      }
+      this.in.readFully(this.moves, 0, moveCount);
+      this.count++;
+      return new GameRecord((flags & GameRecordWriter.WHITE_FIRST) != 0 ? Constants.WHITE : Constants.BLACK,
+        this.moves, moveCount, result);
+    } catch (EOFException e) {
+      throw new IOException("Game " + (this.count + 1) + " is cut short", e);
+    }
+  }
+
+  /**
+   * Get the number of games read so far
+   * @return Game count
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.in.close();
+  }
+
+  /**
+   * Program entry
+   * @param args File to read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Usage: GameRecordReader file");
+      System.exit(2);
+    }
+    long start = System.nanoTime();
+    long moves = 0;
+    long illegal = 0;
+    long[] results = new long[3];
+    try (GameRecordReader reader = new GameRecordReader(args[0])) {
+      GameRecord record;
+      while ((record = reader.read()) != null) {
+        try {
+          BitBoard end = record.replay();
+          int diff = end.countSquares(Constants.BLACK) - end.countSquares(Constants.WHITE);
+          results[diff > 0 ? 0 : diff == 0 ? 1 : 2]++;
+          moves += record.getMoveCount();
+        } catch (IllegalArgumentException e) {
+          illegal++;
+        }
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.println(String.format("%d games, %d moves, %d illegal, black %d / draw %d / white %d",
+        reader.getCount(), moves, illegal, results[0], results[1], results[2]));
+      System.out.println(String.format("%.2f s, %.0f games/sec", seconds, reader.getCount() / seconds));
+    }
+  }
+
+}
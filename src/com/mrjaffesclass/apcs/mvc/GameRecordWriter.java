@@ -0,0 +1,94 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes game records to a stream one at a time, so any number of
+ * games can be written without holding them in memory.
+ *
+ * Stream layout:
+ *   header: int MAGIC, int VERSION
+ *   each game:
+ *     byte flags (bit 0 set if white moved first)
+ *     byte move count
+ *     byte result (black minus white, or GameRecord.NO_RESULT)
+ *     one byte per move, the bit index of the square
+ *
+ * @version 1.0
+ */
+public class GameRecordWriter implements Closeable
+{
+  /**
+   * "OGR1"
+   */
+  static final int MAGIC = 0x4F475231;
+
+  static final int VERSION = 1;
+
+  /**
+   * Flag bit set when white moved first
+   */
+  static final int WHITE_FIRST = 1;
+
+  private final DataOutputStream out;
+  private long count;
+
+  /**
+   * Start a new file of games
+   * @param fileName File to write, replaced if it exists
+   */
+  public GameRecordWriter(String fileName) throws IOException {
+    this(new FileOutputStream(fileName));
+  }
+
+  /**
+   * Start writing games to a stream
+   * @param out Stream to write to; it is closed with the writer
+   */
+  public GameRecordWriter(OutputStream out) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    this.out.writeInt(MAGIC);
+    this.out.writeInt(VERSION);
+  }
+
+  /**
+   * Write one game
+   * @param record Game to write
+   */
+  public void write(GameRecord record) throws IOException {
+    int moveCount = record.getMoveCount();
+    this.out.writeByte(record.getFirstSide() == Constants.WHITE ? WHITE_FIRST : 0);
+    this.out.writeByte(moveCount);
+    this.out.writeByte(record.getResult());
+    for (int i = 0; i < moveCount; i++) {
+      this.out.writeByte(record.getMove(i));
+    }
+    this.count++;
+  }
+
+  /**
+   * Get the number of games written
+   * @return Game count
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Write out anything buffered
+   */
+  public void flush() throws IOException {
+    this.out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.out.close();
+  }
+
+}
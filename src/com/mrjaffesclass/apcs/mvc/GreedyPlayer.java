@@ -0,0 +1,72 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Player that takes the move turning over the most discs, the first
+ * one found on a tie.  It looks no further ahead, so it is a cheap
+ * opponent a step up from RandomPlayer, and it plays boards of any
+ * size.
+ *
+ * @version 1.0
+ */
+public class GreedyPlayer extends Player
+{
+  /**
+   * Player constructor
+   * @param color   One of Constants.WHITE or Constants.BLACK
+   */
+  public GreedyPlayer(int color) {
+    super(color);
+  }
+
+  /**
+   * Pick the legal move that turns over the most discs
+   * @param board Game board
+   * @return A position coordinate pair of the next move. Returns null
+   *          if no move is available
+   */
+  @Override
+  Position getNextMove(Board board) {
+    BitBoard bits = board.toBitBoard();
+    long own = bits.getDiscs(this.getColor());
+    long opp = bits.getDiscs(-this.getColor());
+    long moves = bits.legalMoves(this.getColor());
+    int best = -1;
+    int bestCount = 0;
+    while (moves != 0) {
+      int move = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      int count = Long.bitCount(BitBoard.flips(own, opp, move));
+      if (count > bestCount) {
+        best = move;
+        bestCount = count;
+      }
+    }
+    return best < 0 ? null : BitBoard.toPosition(best);
+  }
+
+  /**
+   * Pick the legal move that turns over the most discs on a board of
+   * any size
+   * @param board Game board
+   * @return A position coordinate pair of the next move. Returns null
+   *          if no move is available
+   */
+  @Override
+  Position getNextMove(WideBitBoard board) {
+    long[] moves = board.newMask();
+    long[] flipped = board.newMask();
+    board.legalMoves(this.getColor(), moves);
+    int best = -1;
+    int bestCount = 0;
+    for (int move = WideBitBoard.nextSquare(moves, 0); move >= 0;
+        move = WideBitBoard.nextSquare(moves, move + 1)) {
+      int count = board.flips(this.getColor(), move, flipped);
+      if (count > bestCount) {
+        best = move;
+        bestCount = count;
+      }
+    }
+    return best < 0 ? null : new Position(board.getRow(best), board.getCol(best));
+  }
+
+}
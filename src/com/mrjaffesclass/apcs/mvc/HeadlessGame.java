@@ -0,0 +1,103 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * One game between two players with no user interface.  Each game
+ * keeps its own board, so any number of games can run on different
+ * threads at once.  A player that returns null, a square off the
+ * board or an illegal move while it has a legal one forfeits the
+ * game.
+ *
+ * @version 1.0
+ */
+public class HeadlessGame
+{
+  private final Player black;
+  private final Player white;
+  private final BitBoard board;
+  private final Square[][] squares = new Square[Constants.SIZE][Constants.SIZE];
+  private final byte[] moves = new byte[GameRecord.MAX_MOVES];
+  private int forfeit = Constants.EMPTY;
+  private int moveCount;
+
+  /**
+   * Set up a game
+   * @param black Player with the black discs
+   * @param white Player with the white discs
+   * @param start Position to start from; it is not changed
+   */
+  public HeadlessGame(Player black, Player white, BitBoard start) {
+    this.black = black;
+    this.white = white;
+    this.board = start.copy();
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        this.squares[row][col] = new Square(Constants.EMPTY);
+      }
+    }
+  }
+
+  /**
+   * Play the game to the end
+   * @return Black's discs minus white's discs.  A forfeit counts as
+   *         64 discs to nothing.
+   */
+  public int play() {
+    while (true) {
+      int side = this.board.getSideToMove();
+      long moves = this.board.legalMoves(side);
+      if (moves == 0) {
+        if (this.board.legalMoves(-side) == 0) {
+          break;
+        }
+        this.board.pass();
+        continue;
+      }
+      Player player = side == Constants.BLACK ? this.black : this.white;
+      Position move = player.getNextMove(new Board(this.board.toSquares(this.squares)));
+      if (move == null || !BitBoard.onBoard(move.getRow(), move.getCol())
+          || (moves & BitBoard.bit(move.getRow(), move.getCol())) == 0) {
+        this.forfeit = side;
+        return side == Constants.BLACK ? -64 : 64;
+      }
+      int index = BitBoard.index(move.getRow(), move.getCol());
+      this.board.makeMove(side, index);
+      this.moves[this.moveCount++] = (byte) index;
+    }
+    return this.board.countSquares(Constants.BLACK) - this.board.countSquares(Constants.WHITE);
+  }
+
+  /**
+   * Get the current position
+   * @return The game's board; don't change it
+   */
+  public BitBoard getBoard() {
+    return this.board;
+  }
+
+  /**
+   * Get the color that forfeited
+   * @return Constants.WHITE or Constants.BLACK, or Constants.EMPTY if
+   *         nobody forfeited
+   */
+  public int getForfeit() {
+    return this.forfeit;
+  }
+
+  /**
+   * Get one of the moves played
+   * @param i Move number, from 0
+   * @return Bit index of the square
+   */
+  public int getMove(int i) {
+    return this.moves[i];
+  }
+
+  /**
+   * Get the number of moves played, not counting passes
+   * @return Move count
+   */
+  public int getMoveCount() {
+    return this.moveCount;
+  }
+
+}
@@ -0,0 +1,142 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of a duration in nanoseconds, in power-of-two buckets:
+ * bucket i counts the values below 2^i that didn't fit in bucket i-1.
+ * Recording one value is a leading-zero count and a few uncontended
+ * atomic adds, with no locking and no allocation, so a histogram can
+ * stay switched on in a hot path.  Percentiles are accurate to within
+ * a factor of two, which is enough to tell a slow path from a fast one.
+ *
+ * Any thread may record and read at any time.  A reading taken while
+ * values are being recorded may be off by those values.
+ *
+ * @version 1.0
+ */
+public final class Histogram
+{
+  /**
+   * Number of buckets; the last one takes everything from 2^62 up
+   */
+  public static final int BUCKETS = 64;
+
+  private final String name;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Create an empty histogram
+   * @param name Name shown in dumps and over JMX
+   */
+  public Histogram(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Get the histogram's name
+   * @return Name given to the constructor
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Record one duration
+   * @param nanos Duration in nanoseconds; negative values count as 0
+   */
+  public void record(long nanos) {
+    nanos = Math.max(0, nanos);
+    this.buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos)));
+    this.count.incrementAndGet();
+    this.totalNanos.addAndGet(nanos);
+    long max = this.maxNanos.get();
+    while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+      max = this.maxNanos.get();
+    }
+  }
+
+  /**
+   * Get the number of values recorded
+   * @return Value count
+   */
+  public long getCount() {
+    return this.count.get();
+  }
+
+  /**
+   * Get the sum of the values recorded
+   * @return Nanoseconds
+   */
+  public long getTotalNanos() {
+    return this.totalNanos.get();
+  }
+
+  /**
+   * Get the largest value recorded
+   * @return Nanoseconds
+   */
+  public long getMaxNanos() {
+    return this.maxNanos.get();
+  }
+
+  /**
+   * Get the mean of the values recorded
+   * @return Nanoseconds, 0 if nothing was recorded
+   */
+  public double getMeanNanos() {
+    long n = this.count.get();
+    return n == 0 ? 0 : this.totalNanos.get() / (double) n;
+  }
+
+  /**
+   * Estimate a percentile
+   * @param percent Percentile wanted, 0 to 100
+   * @return Upper bound of the bucket holding that percentile, in
+   *         nanoseconds, 0 if nothing was recorded
+   */
+  public long getPercentileNanos(double percent) {
+    long[] counts = new long[BUCKETS];
+    long n = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = this.buckets.get(i);
+      n += counts[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(n * Math.max(0, Math.min(100, percent)) / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] > 0) {
+        return Math.min((1L << i) - 1, this.getMaxNanos());
+      }
+    }
+    return this.getMaxNanos();
+  }
+
+  /**
+   * Forget everything recorded
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.buckets.set(i, 0);
+    }
+    this.count.set(0);
+    this.totalNanos.set(0);
+    this.maxNanos.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %d, mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us", this.name,
+      this.getCount(), this.getMeanNanos() / 1e3, this.getPercentileNanos(50) / 1e3,
+      this.getPercentileNanos(99) / 1e3, this.getMaxNanos() / 1e3);
+  }
+
+}
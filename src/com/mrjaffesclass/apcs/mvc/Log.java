@@ -0,0 +1,414 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.invoke.VarHandle;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.IllegalFormatException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Diagnostic log kept in a fixed-size ring buffer in memory.
+ *
+ * Logging a message only stores its format string and arguments in the
+ * next slot of the ring; nothing is formatted and nothing is written to
+ * a stream.  The text is built when the ring is dumped, or by a
+ * background thread that copies the ring to the console when console
+ * output is turned on.  Once the ring is full the oldest messages are
+ * overwritten.
+ *
+ * Messages are gated twice.  COMPILED_LEVEL is a constant, so a call
+ * guarded with one of the *_COMPILED flags below it is removed by the
+ * compiler:
+ *
+ *   if (Log.TRACE_COMPILED && Log.isEnabled(Log.TRACE)) {
+ *     Log.log(Log.TRACE, "Painted %s", board);
+ *   }
+ *
+ * The runtime level is checked by every log call and can be changed at
+ * any time.  Arguments are formatted when the message is, so pass
+ * values that won't change in the meantime.
+ *
+ * System properties, read once:
+ *   othello.log          runtime level: trace, debug, info, warn, error
+ *                        or off (default info)
+ *   othello.log.size     ring size in messages, rounded up to a power
+ *                        of two (default 4096)
+ *   othello.log.console  true to copy messages to System.err as they
+ *                        arrive
+ *   othello.log.exit     true to dump the ring to System.err when the
+ *                        program exits
+ *
+ * @version 1.0
+ */
+public final class Log
+{
+  public static final int TRACE = 0;
+  public static final int DEBUG = 1;
+  public static final int INFO = 2;
+  public static final int WARN = 3;
+  public static final int ERROR = 4;
+  public static final int OFF = 5;
+
+  /**
+   * Lowest level compiled in.  Calls guarded by a *_COMPILED flag that
+   * is false are dropped by the compiler.
+   */
+  public static final int COMPILED_LEVEL = DEBUG;
+
+  public static final boolean TRACE_COMPILED = COMPILED_LEVEL <= TRACE;
+  public static final boolean DEBUG_COMPILED = COMPILED_LEVEL <= DEBUG;
+  public static final boolean INFO_COMPILED = COMPILED_LEVEL <= INFO;
+
+  public static final String LEVEL_PROPERTY = "othello.log";
+  public static final String SIZE_PROPERTY = "othello.log.size";
+  public static final String CONSOLE_PROPERTY = "othello.log.console";
+  public static final String EXIT_PROPERTY = "othello.log.exit";
+
+  private static final String[] LEVEL_NAMES = { "TRACE", "DEBUG", "INFO", "WARN", "ERROR", "OFF" };
+
+  /**
+   * How often the console thread looks for new messages
+   */
+  private static final long CONSOLE_MILLIS = 50;
+
+  private static final Object[] NO_ARGS = new Object[0];
+
+  private static volatile int level = parseLevel(System.getProperty(LEVEL_PROPERTY), INFO);
+
+  private static final int size = ringSize(Integer.getInteger(SIZE_PROPERTY, 4096));
+  private static final int mask = size - 1;
+
+  // The ring, one array per field.  seqs holds the sequence number of
+  // the message in each slot, or -1 while the slot is being written.
+  private static final AtomicLongArray seqs = new AtomicLongArray(size);
+  private static final long[] times = new long[size];
+  private static final int[] levels = new int[size];
+  private static final String[] threads = new String[size];
+  private static final String[] formats = new String[size];
+  private static final Object[] args = new Object[3 * size];
+  private static final int[] argCounts = new int[size];
+
+  /**
+   * Sequence number of the next message
+   */
+  private static final AtomicLong next = new AtomicLong();
+
+  static {
+    for (int i = 0; i < size; i++) {
+      seqs.set(i, -1);
+    }
+    if (Boolean.getBoolean(CONSOLE_PROPERTY)) {
+      Thread console = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          copyToConsole();
+        }
+      }, "Log console");
+      console.setDaemon(true);
+      console.start();
+    }
+    if (Boolean.getBoolean(EXIT_PROPERTY)) {
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          dump(System.err);
+        }
+      }, "Log dump"));
+    }
+  }
+
+  private Log() {
+  }
+
+  /**
+   * Will messages of a level be kept?
+   * @param messageLevel One of TRACE, DEBUG, INFO, WARN or ERROR
+   * @return True if the runtime level lets them through
+   */
+  public static boolean isEnabled(int messageLevel) {
+    return messageLevel >= level;
+  }
+
+  /**
+   * Get the runtime level
+   * @return Lowest level kept, or OFF
+   */
+  public static int getLevel() {
+    return level;
+  }
+
+  /**
+   * Set the runtime level.  Levels below COMPILED_LEVEL can be set but
+   * guarded calls at those levels are no longer in the program.
+   * @param newLevel Lowest level to keep, or OFF to keep nothing
+   */
+  public static void setLevel(int newLevel) {
+    level = Math.max(TRACE, Math.min(OFF, newLevel));
+  }
+
+  /**
+   * Log a message
+   * @param messageLevel Level of the message
+   * @param message Message text
+   */
+  public static void log(int messageLevel, String message) {
+    if (messageLevel >= level) {
+      append(messageLevel, message, null, null, null, 0);
+    }
+  }
+
+  /**
+   * Log a message with one argument.  Avoids the varargs array.
+   * @param messageLevel Level of the message
+   * @param format String.format pattern, applied when the message is
+   *        written out
+   * @param arg Argument for the pattern
+   */
+  public static void log(int messageLevel, String format, Object arg) {
+    if (messageLevel >= level) {
+      append(messageLevel, format, arg, null, null, 1);
+    }
+  }
+
+  /**
+   * Log a message with two arguments
+   * @param messageLevel Level of the message
+   * @param format String.format pattern
+   * @param arg1 First argument
+   * @param arg2 Second argument
+   */
+  public static void log(int messageLevel, String format, Object arg1, Object arg2) {
+    if (messageLevel >= level) {
+      append(messageLevel, format, arg1, arg2, null, 2);
+    }
+  }
+
+  /**
+   * Log a message with three arguments
+   * @param messageLevel Level of the message
+   * @param format String.format pattern
+   * @param arg1 First argument
+   * @param arg2 Second argument
+   * @param arg3 Third argument
+   */
+  public static void log(int messageLevel, String format, Object arg1, Object arg2, Object arg3) {
+    if (messageLevel >= level) {
+      append(messageLevel, format, arg1, arg2, arg3, 3);
+    }
+  }
+
+  /**
+   * Log a message with any number of arguments
+   * @param messageLevel Level of the message
+   * @param format String.format pattern
+   * @param args Arguments for the pattern; the array is kept
+   */
+  public static void log(int messageLevel, String format, Object... args) {
+    if (messageLevel >= level) {
+      append(messageLevel, format, args, null, null, -1);
+    }
+  }
+
+  /**
+   * Log an error with its stack trace
+   * @param message Message text
+   * @param thrown Exception to show after the message
+   */
+  public static void error(String message, Throwable thrown) {
+    if (ERROR >= level) {
+      append(ERROR, message, thrown, null, null, 0);
+    }
+  }
+
+  /**
+   * Store a message in the next slot.  The slot's sequence number is
+   * cleared while it's filled in, so a reader never takes a half
+   * written message for a whole one.
+   * @param argCount Arguments for the format, 0 for none (arg1 may
+   *        then hold a Throwable), or -1 if arg1 is an Object[]
+   */
+  private static void append(int messageLevel, String format, Object arg1, Object arg2, Object arg3,
+      int argCount) {
+    long seq = next.getAndIncrement();
+    int slot = (int) seq & mask;
+    seqs.set(slot, -1);
+    // Keep the fields below from being written before the slot is
+    // marked
+    VarHandle.storeStoreFence();
+    times[slot] = System.currentTimeMillis();
+    levels[slot] = messageLevel;
+    threads[slot] = Thread.currentThread().getName();
+    formats[slot] = format;
+    args[3 * slot] = arg1;
+    args[3 * slot + 1] = arg2;
+    args[3 * slot + 2] = arg3;
+    argCounts[slot] = argCount;
+    seqs.set(slot, seq);
+  }
+
+  /**
+   * Write every message still in the ring, oldest first
+   * @param out Where to write them
+   */
+  public static void dump(PrintStream out) {
+    long end = next.get();
+    long start = Math.max(0, end - size);
+    StringBuilder line = new StringBuilder();
+    SimpleDateFormat clock = new SimpleDateFormat("HH:mm:ss.SSS");
+    out.println("---- log: messages " + start + " to " + end + " ----");
+    for (long seq = start; seq < end; seq++) {
+      if (format(seq, line, clock)) {
+        out.print(line);
+      }
+    }
+    out.println("---- end of log ----");
+    out.flush();
+  }
+
+  /**
+   * Get the number of messages logged since the program started
+   * @return Message count, including overwritten ones
+   */
+  public static long getCount() {
+    return next.get();
+  }
+
+  /**
+   * Dump the ring to System.err when a thread dies from an uncaught
+   * exception, then hand the exception to the handler that was there
+   * before.
+   */
+  public static void installCrashHandler() {
+    final Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+    Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+      @Override
+      public void uncaughtException(Thread thread, Throwable thrown) {
+        // Logged whatever the runtime level, so the dump shows it
+        append(ERROR, "Uncaught exception in " + thread.getName(), thrown, null, null, 0);
+        dump(System.err);
+        if (previous != null) {
+          previous.uncaughtException(thread, thrown);
+        } else {
+          System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+          thrown.printStackTrace();
+        }
+      }
+    });
+  }
+
+  /**
+   * Format one message into a line
+   * @param seq Sequence number of the message
+   * @param line Replaced by the message text and a line break
+   * @param clock Formats the time
+   * @return False if the slot has been overwritten or is being written
+   */
+  private static boolean format(long seq, StringBuilder line, SimpleDateFormat clock) {
+    int slot = (int) seq & mask;
+    if (seqs.get(slot) != seq) {
+      return false;
+    }
+    long time = times[slot];
+    int messageLevel = levels[slot];
+    String thread = threads[slot];
+    String format = formats[slot];
+    Object arg1 = args[3 * slot];
+    Object arg2 = args[3 * slot + 1];
+    Object arg3 = args[3 * slot + 2];
+    int argCount = argCounts[slot];
+    // Keep the reads above from moving past the second check
+    VarHandle.acquireFence();
+    if (seqs.get(slot) != seq) {
+      return false;
+    }
+    line.setLength(0);
+    line.append(clock.format(new Date(time))).append(' ')
+      .append(LEVEL_NAMES[messageLevel]).append(" [").append(thread).append("] ");
+    Object[] values;
+    switch (argCount) {
+      case -1: values = (Object[]) arg1; break;
+      case 1: values = new Object[] { arg1 }; break;
+      case 2: values = new Object[] { arg1, arg2 }; break;
+      case 3: values = new Object[] { arg1, arg2, arg3 }; break;
+      default: values = NO_ARGS; break;
+    }
+    if (values.length == 0) {
+      line.append(format);
+    } else {
+      try {
+        line.append(String.format(format, values));
+      } catch (IllegalFormatException e) {
+        line.append(format).append(' ').append(Arrays.toString(values));
+      }
+    }
+    line.append(System.lineSeparator());
+    if (argCount == 0 && arg1 instanceof Throwable) {
+      StringWriter trace = new StringWriter();
+      ((Throwable) arg1).printStackTrace(new PrintWriter(trace));
+      line.append(trace);
+    }
+    return true;
+  }
+
+  /**
+   * Body of the console thread: follow the ring and print each message
+   * once it's complete.  Messages overwritten before they could be
+   * printed are counted instead.
+   */
+  private static void copyToConsole() {
+    StringBuilder line = new StringBuilder();
+    SimpleDateFormat clock = new SimpleDateFormat("HH:mm:ss.SSS");
+    long cursor = 0;
+    while (true) {
+      long end = next.get();
+      if (end - cursor > size) {
+        System.err.println("---- log: " + (end - size - cursor) + " messages lost ----");
+        cursor = end - size;
+      }
+      while (cursor < end) {
+        if (seqs.get((int) cursor & mask) < cursor) {
+          // Claimed but not written yet
+          break;
+        }
+        if (format(cursor, line, clock)) {
+          System.err.print(line);
+        }
+        cursor++;
+      }
+      try {
+        Thread.sleep(CONSOLE_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Read a level name
+   * @param name Level name in any case, or null
+   * @param otherwise Level to use if the name isn't one
+   * @return Level
+   */
+  static int parseLevel(String name, int otherwise) {
+    if (name != null) {
+      for (int i = 0; i < LEVEL_NAMES.length; i++) {
+        if (LEVEL_NAMES[i].equalsIgnoreCase(name.trim())) {
+          return i;
+        }
+      }
+    }
+    return otherwise;
+  }
+
+  private static int ringSize(int requested) {
+    int clamped = Math.max(16, Math.min(1 << 24, requested));
+    int size = Integer.highestOneBit(clamped);
+    return size < clamped ? size << 1 : size;
+  }
+
+}
@@ -1,78 +1,313 @@
 package com.mrjaffesclass.apcs.mvc;
 
-import com.mrjaffesclass.apcs.messenger.*;
+import jdk.jfr.EventType;
 
 /**
  * The model represents the data that the app uses.
  * @author Roger Jaffe
  * @version 1.0
  */
-public class Model implements MessageHandler {
+public class Model implements EventHandler<ClickEvent> {
 
-    // Messaging system for the MVC
-    private final Messenger mvcMessaging;
+    // Flight Recorder event types, checked before each event is made so
+    // nothing is allocated while they are off
+    private static final EventType MOVE_TYPE = EventType.getEventType(MoveFlightEvent.class);
+    private static final EventType PASS_TYPE = EventType.getEventType(PassFlightEvent.class);
+    private static final EventType GAME_OVER_TYPE = EventType.getEventType(GameOverFlightEvent.class);
+
+    // Event bus for the MVC
+    private final EventBus events;
+
+    // Events this model sends, filled in again for every send
+    private final BoardUpdateEvent boardUpdate = new BoardUpdateEvent();
+    private final PassEvent pass = new PassEvent();
+    private final GameOverEvent gameOver = new GameOverEvent();
 
     private boolean whoseTurn = true;
     
     private Square[][] squares = new Square[Constants.SIZE][Constants.SIZE];
 
+    // Same discs as squares, used for all move generation
+    private final BitBoard bitBoard = new BitBoard();
+
+    // Legal moves for each side, regenerated after every move
+    private long whiteMoves;
+    private long blackMoves;
+
+    // Disc counts, adjusted by the flips of every move
+    private int whiteCount;
+    private int blackCount;
+
+    // Every move played so far, as bit indexes, for the game record
+    private final byte[] moveList = new byte[GameRecord.MAX_MOVES];
+    private int movesPlayed;
+
+    // Position as of the last move or pass, safe to read from any thread
+    private volatile BoardSnapshot snapshot;
+
+    // Every move and pass made, for undo and redo.  The first
+    // historyCursor are on the board; the rest were undone and can be
+    // redone until a new move replaces them.  Each move can be followed
+    // by at most one pass, so there are never more than twice
+    // MAX_MOVES.
+    private final MoveRecord[] history = new MoveRecord[2 * GameRecord.MAX_MOVES];
+    private int historyCursor;
+    private int historySize;
+
     /**
      * Model constructor: Create the data representation of the program
-     * @param messages Messaging class instantiated by the Controller for 
-     *   local messages between Model, View, and controller
+     * @param events Event bus created by the Controller for events
+     *   between Model, View, and controller
      */
-    public Model(Messenger messages) {
-      mvcMessaging = messages;
+    public Model(EventBus events) {
+      this.events = events;
       
       squares = this.initBoard(squares);
+      bitBoard.setSideToMove(getSideToMove());
+      whiteCount = bitBoard.countSquares(Constants.WHITE);
+      blackCount = bitBoard.countSquares(Constants.BLACK);
+      updateLegalMoves();
+      snapshot = new BoardSnapshot(bitBoard, BoardSnapshot.NO_MOVE, 0);
     }
 
     /**
-     * Initialize the model here and subscribe to any required messages
+     * Initialize the model here and subscribe to any required events
      */
     public void init() {
-        mvcMessaging.subscribe("MouseClicked", this);
+        events.subscribe(ClickEvent.class, this);
     }
     
     @Override
-    public void messageHandler(String messageName, Object messagePayload) {
-      if (messagePayload != null) {
-        System.out.println("MSG: received by model: "+messageName+" | "+messagePayload.toString());
-      } else {
-        System.out.println("MSG: received by model: "+messageName+" | No data sent");
-      }
+    public void handle(ClickEvent click) {
+      Position pos = new Position(click.getRow(), click.getCol());
+      int color = getSideToMove();
+      Player player = new Player(color);
 
-      if (messageName.equals("MouseClicked")){
-//          mvcMessaging.notify("BoardUpdate", squares);
-          String message = messagePayload.toString();
-          int x = Integer.parseInt(message.substring(0, 1));
-          int y = Integer.parseInt(message.substring(2));
-
-          Position pos = new Position(x, y);
-          Player player;
-          if (this.whoseTurn){
-              player = new Player(Constants.WHITE);
-          }else{
-              player = new Player(Constants.BLACK);
+      long start = Metrics.ENABLED ? System.nanoTime() : 0;
+      boolean legal = isLegalMove(player, pos);
+      if (Metrics.ENABLED) {
+          long end = System.nanoTime();
+          Metrics.MOVE_VALIDATION.record(end - start);
+          start = end;
+      }
+      if (legal){
+          MoveFlightEvent moved = null;
+          if (MOVE_TYPE.isEnabled()) {
+              moved = new MoveFlightEvent();
+              moved.begin();
           }
-
-          if (isLegalMove(player, pos)){
-              makeMove(player, pos);
-              this.whoseTurn = !this.whoseTurn;
-              System.out.println("Sent Message");
-              mvcMessaging.notify("BoardUpdate", squares);
+          makeMove(player, pos);
+          if (moved != null) {
+              moved.end();
+          }
+          if (Metrics.ENABLED) {
+              Metrics.MAKE_MOVE.record(System.nanoTime() - start);
+          }
+          if (moved != null && moved.shouldCommit()) {
+              MoveRecord move = history[historyCursor - 1];
+              moved.color = color;
+              moved.square = GameRecord.squareName(move.getSquare());
+              moved.flipped = Long.bitCount(move.getFlipped());
+              moved.moveNumber = movesPlayed;
+              moved.commit();
+          }
+          this.whoseTurn = !this.whoseTurn;
+          events.publish(boardUpdate.set(snapshot, color));
+      }
+      
+      if (isGameOver()){
+          if (GAME_OVER_TYPE.isEnabled()) {
+              GameOverFlightEvent over = new GameOverFlightEvent();
+              over.black = blackCount;
+              over.white = whiteCount;
+              over.moves = movesPlayed;
+              over.commit();
           }
-          
-          boolean noMovesWhite = noMovesAvailable(new Player(Constants.WHITE));
-          boolean noMovesBlack = noMovesAvailable(new Player(Constants.BLACK));
-          
-          if (noMovesWhite && noMovesBlack){
-              mvcMessaging.notify("GameOver", squares);
-          }else if (noMovesAvailable(new Player(!this.whoseTurn  ? 1 : -1))){
-              this.whoseTurn = !this.whoseTurn;
-              mvcMessaging.notify("NoMoves", squares);
+          events.publish(gameOver.set(snapshot));
+      }else if (mustPass()){
+          int passing = getSideToMove();
+          this.whoseTurn = !this.whoseTurn;
+          bitBoard.pass();
+          record(MoveRecord.pass(passing));
+          snapshot = new BoardSnapshot(bitBoard, snapshot.getLastMove(), movesPlayed);
+          if (PASS_TYPE.isEnabled()) {
+              PassFlightEvent passed = new PassFlightEvent();
+              passed.color = passing;
+              passed.moveNumber = movesPlayed;
+              passed.commit();
           }
+          events.publish(pass.set(snapshot, passing));
+      }
+    }
+
+    /**
+     * Take back the last move, and the pass that followed it if there
+     * was one, so the side that made it is to move again
+     * @return False if there is nothing to undo
+     */
+    public boolean undo() {
+      if (historyCursor == 0) {
+        return false;
+      }
+      MoveRecord move;
+      do {
+        move = history[--historyCursor];
+        bitBoard.unmakeMove(move);
+        if (!move.isPass()) {
+          movesPlayed--;
+          long flipped = move.getFlipped();
+          squares[move.getSquare() / Constants.SIZE][move.getSquare() % Constants.SIZE]
+            .setStatus(Constants.EMPTY);
+          setSquares(flipped, -move.getColor());
+          countDiscs(move.getColor(), -Long.bitCount(flipped), -1);
+        }
+      } while (move.isPass() && historyCursor > 0);
+      afterHistoryChange();
+      return true;
+    }
+
+    /**
+     * Make the last undone move again, and the pass that followed it
+     * if there was one
+     * @return False if there is nothing to redo
+     */
+    public boolean redo() {
+      if (historyCursor == historySize) {
+        return false;
+      }
+      do {
+        MoveRecord move = history[historyCursor++];
+        if (move.isPass()) {
+          bitBoard.pass();
+        } else {
+          applyMove(move.getColor(), move.getSquare(), bitBoard.makeMove(move.getColor(), move.getSquare()));
+        }
+      } while (historyCursor < historySize && history[historyCursor].isPass());
+      afterHistoryChange();
+      if (isGameOver()) {
+        events.publish(gameOver.set(snapshot));
       }
+      return true;
+    }
+
+    /**
+     * Can a move be undone?
+     * @return True if a move has been made
+     */
+    public boolean canUndo() {
+      return historyCursor > 0;
+    }
+
+    /**
+     * Can a move be redone?
+     * @return True if moves have been undone and not replaced
+     */
+    public boolean canRedo() {
+      return historyCursor < historySize;
+    }
+
+    /**
+     * Bring everything derived from the board up to date after undo
+     * or redo and show the board
+     */
+    private void afterHistoryChange() {
+      whoseTurn = bitBoard.getSideToMove() == Constants.WHITE;
+      updateLegalMoves();
+      snapshot = new BoardSnapshot(bitBoard,
+        movesPlayed > 0 ? moveList[movesPlayed - 1] : BoardSnapshot.NO_MOVE, movesPlayed);
+      events.publish(boardUpdate.set(snapshot, -getSideToMove()));
+    }
+
+    /**
+     * Add a move or pass to the history, dropping any undone moves
+     */
+    private void record(MoveRecord move) {
+      history[historyCursor++] = move;
+      historySize = historyCursor;
+    }
+
+    /**
+     * Get the position as of the last move or pass.  Snapshots never
+     * change, so this may be called from any thread and the result
+     * kept.
+     * @return Current position
+     */
+    public BoardSnapshot getSnapshot() {
+      return snapshot;
+    }
+
+    /**
+     * Get the color whose turn it is
+     * @return One of Constants.WHITE or Constants.BLACK
+     */
+    public int getSideToMove() {
+      return this.whoseTurn ? Constants.WHITE : Constants.BLACK;
+    }
+
+    /**
+     * Get every legal move for a side.  The set is kept up to date
+     * after each move, so this only reads a field.
+     * @param color One of Constants.WHITE or Constants.BLACK
+     * @return Mask of the legal squares, bit (row * Constants.SIZE + col)
+     */
+    public long getLegalMoves(int color) {
+      return color == Constants.WHITE ? whiteMoves : blackMoves;
+    }
+
+    /**
+     * Get the number of legal moves for a side
+     * @param color One of Constants.WHITE or Constants.BLACK
+     * @return Number of legal moves
+     */
+    public int getMoveCount(int color) {
+      return Long.bitCount(getLegalMoves(color));
+    }
+
+    /**
+     * Get the number of discs a side has on the board
+     * @param color One of Constants.WHITE or Constants.BLACK
+     * @return Number of discs
+     */
+    public int getDiscCount(int color) {
+      return color == Constants.WHITE ? whiteCount : blackCount;
+    }
+
+    /**
+     * Does the side to move have to pass?
+     * @return True if the side to move has no legal move but the
+     *         other side does
+     */
+    public boolean mustPass() {
+      return getLegalMoves(getSideToMove()) == 0 && !isGameOver();
+    }
+
+    /**
+     * Is the game over?
+     * @return True if neither side has a legal move
+     */
+    public boolean isGameOver() {
+      return whiteMoves == 0 && blackMoves == 0;
+    }
+
+    /**
+     * Get the game so far as a record.  The Model's games start with
+     * white to move.
+     * @return Moves played so far, with the result once the game is
+     *         over
+     */
+    public GameRecord getRecord() {
+      int result = isGameOver() ? blackCount - whiteCount : GameRecord.NO_RESULT;
+      return new GameRecord(Constants.WHITE, moveList, movesPlayed, result);
+    }
+
+    /**
+     * Regenerate both sides' legal moves from the bitboard.  Each side
+     * takes a single shift-based pass, so there's no need to track
+     * which squares the last move touched.
+     */
+    private void updateLegalMoves() {
+      whiteMoves = bitBoard.legalMoves(Constants.WHITE);
+      blackMoves = bitBoard.legalMoves(Constants.BLACK);
     }
     
     private Square[][] initBoard(Square[][] squares)
@@ -93,8 +328,26 @@ public class Model implements MessageHandler {
       return 0 <= idx && idx < Constants.SIZE;
     }
 
+    /**
+     * Put a disc of the player's color on a square without making a
+     * move, for setting up positions.  The bitboard, legal moves, disc
+     * counts and snapshot are brought up to date.  The moves made so far
+     * can't be taken back across the change, so the undo history is
+     * cleared.
+     * @param player Player whose color we should set
+     * @param position Position of the cell to set
+     */
     protected void setSquare(Player player, Position position) {
-      this.squares[position.getRow()][position.getCol()].setStatus(player.getColor());
+      int row = position.getRow();
+      int col = position.getCol();
+      this.squares[row][col].setStatus(player.getColor());
+      bitBoard.setStatus(row, col, player.getColor());
+      whiteCount = bitBoard.countSquares(Constants.WHITE);
+      blackCount = bitBoard.countSquares(Constants.BLACK);
+      updateLegalMoves();
+      historyCursor = 0;
+      historySize = 0;
+      snapshot = new BoardSnapshot(bitBoard, snapshot.getLastMove(), movesPlayed);
     }
 
     /**
@@ -106,8 +359,7 @@ public class Model implements MessageHandler {
      */
     public Square getSquare(Player player, int row, int col) {
       if (this.indexInRange(row) && this.indexInRange(col)) {
-        Position pos = new Position(row, col);
-        return this.getSquare(pos);
+        return this.squares[row][col];
       } else {
         System.out.println("**** INDEX INTO THE BOARD IS OUT OF RANGE ["+row+","+col+"]");
         System.out.println(player.toString()+" MESSED UP. YOU LOSE");
@@ -129,20 +381,15 @@ public class Model implements MessageHandler {
      * Is this a legal move?
      * @param player Player asking
      * @param positionToCheck Position of the move being checked
-     * @return True if this space is a legal move
+     * @return True if this space is a legal move; false if it is off
+     *         the board
      */
     public boolean isLegalMove(Player player, Position positionToCheck) {
-      // If the space isn't empty, it's not a legal move
-      if (getSquare(positionToCheck).getStatus() != Constants.EMPTY)
+      if (!BitBoard.onBoard(positionToCheck.getRow(), positionToCheck.getCol())) {
         return false;
-      // Check all directions to see if the move is legal
-      for (String direction : Directions.getDirections()) {
-        Position directionVector = Directions.getVector(direction);
-        if (step(player, positionToCheck, directionVector, 0)) {
-          return true;
-        }
       }
-      return false;
+      long mask = BitBoard.bit(positionToCheck.getRow(), positionToCheck.getCol());
+      return (getLegalMoves(player.getColor()) & mask) != 0;
     }
 
     /**
@@ -151,15 +398,7 @@ public class Model implements MessageHandler {
      * @return True if moves are available
      */
     public boolean noMovesAvailable(Player player) {
-      for (int row = 0; row < Constants.SIZE; row++) {
-        for (int col = 0; col < Constants.SIZE; col++) {
-          Position pos = new Position(row, col);
-          if (isLegalMove(player, pos)) {
-            return false;
-          }
-        }
-      }
-      return true;
+      return getLegalMoves(player.getColor()) == 0;
     }
 
     /**
@@ -179,92 +418,67 @@ public class Model implements MessageHandler {
      * @return True if we find a legal move
      */
     protected boolean step(Player player, Position position, Position direction, int count) {
-        Position newPosition = position.translate(direction);
-        
-        while (!newPosition.isOffBoard()) {
-            
-            if (this.getSquare(newPosition).getStatus() == Constants.EMPTY){
-                return false;
-            }else if (!player.isThisPlayer(this.getSquare(newPosition).getStatus()) && this.getSquare(newPosition).getStatus() != Constants.EMPTY) {
-             // If space has opposing player then move to next space in same direction
-                return step(player, newPosition, direction, count+1);
-            }else if (player.isThisPlayer(this.getSquare(newPosition).getStatus())){
-                return count > 0;
-            }
-            
-            newPosition = position.translate(direction);
-        }
-        return false;      
-//            int color = player.getColor();
-//        
-//            if ((this.getSquare(newPosition).getStatus() == Constants.EMPTY) && (count == 0)) {
-//             // If empty space AND adjacent to position then not legal
-//                return false;
-//            } else if (!player.isThisPlayer(this.getSquare(newPosition).getStatus()) && this.getSquare(newPosition).getStatus() != Constants.EMPTY) {
-//             // If space has opposing player then move to next space in same direction
-//                return step(player, newPosition, direction, count+1);
-//            } else if (player.isThisPlayer(this.getSquare(newPosition).getStatus())) {
-//             // If space has this player and we've moved more than one space then it's legal,
-//             // otherwise it's not legal
-//                return count > 0;
-//            } else {
-//             // Didn't pass any other test, not legal move
-//                return false;
-//            }
-        
-        
-    }
-
-    /**
-     * Traverses the board in the provided direction. Checks the status of
-     * each space: 
-     * a. If it's the opposing player then we'll move to the next
-     *    space to see if there's a blank space
-     * b. If it's the same player then this direction doesn't represent
-     *    a legal move
-     * c. If it's a blank AND if it's not the adjacent square then this
-     *    direction is a legal move. Otherwise, it's not.
-     * If the move is legal, then this changes the pieces based on the 
-     * the move
-     * 
-     * @param player  Player making the request
-     * @param position Position being checked
-     * @param direction Direction to move
-     * @param count Number of steps we've made so far
-     * @return True if we find a legal move
-     */
-    private boolean makeMoveStep(Player player, Position position, Position direction, int count) {
-      Position newPosition = position.translate(direction);
-      int color = player.getColor();
-      if (newPosition.isOffBoard()) {
-        return false;
-      } else if (this.getSquare(newPosition).getStatus() == -color) {
-        boolean valid = makeMoveStep(player, newPosition, direction, count+1);
-        if (valid) {
-          this.setSquare(player, newPosition);
-        }
-        return valid;
-      } else if (this.getSquare(newPosition).getStatus() == color) {
-        return count > 0;
-      } else {
-        return false;
-      }    
+      int run = Board.run(squares, player.getColor(),
+        Board.index(position.getRow(), position.getCol()), Directions.getDirection(direction));
+      return run >= 0 && run + count > 0;
     }
 
     /**
      * Make the move.  Scan all directions and switch the piece colors
-     * of the ones as appropriate
+     * of the ones as appropriate, then bring the legal moves and disc
+     * counts up to date
      * @param playerToMove Player asking
      * @param positionToMove Position of the new move
      */
     public void makeMove(Player playerToMove, Position positionToMove) {
-      for (String direction : Directions.getDirections()) {
-        Position directionVector = Directions.getVector(direction);
-        if (makeMoveStep(playerToMove, positionToMove, directionVector, 0)) {
-          this.setSquare(playerToMove, positionToMove);      
-  //      } else {
-  //        System.out.println("**** THIS SPACE IS NOT A VALID MOVE. YOU LOSE!");
-        }
+      MoveRecord move = bitBoard.makeMove(playerToMove, positionToMove);
+      if (move == null) {
+        return;
+      }
+      record(move);
+      applyMove(move.getColor(), move.getSquare(), move.getFlipped());
+      updateLegalMoves();
+      snapshot = new BoardSnapshot(bitBoard, move.getSquare(), movesPlayed);
+    }
+
+    /**
+     * Copy a move already made on the bitboard to the squares, the
+     * game record and the disc counts
+     * @param color Color that moved
+     * @param index Bit index of the move
+     * @param flipped Discs it turned over
+     */
+    private void applyMove(int color, int index, long flipped) {
+      moveList[movesPlayed++] = (byte) index;
+      // Copy only the squares that changed
+      setSquares(flipped | (1L << index), color);
+      countDiscs(color, Long.bitCount(flipped), 1);
+    }
+
+    /**
+     * Set every square in a mask to one status
+     */
+    private void setSquares(long mask, int status) {
+      while (mask != 0) {
+        int square = Long.numberOfTrailingZeros(mask);
+        squares[square / Constants.SIZE][square % Constants.SIZE].setStatus(status);
+        mask &= mask - 1;
+      }
+    }
+
+    /**
+     * Adjust the disc counts for a move or its undo
+     * @param color Color that moved
+     * @param flipped Discs turned over, negative to take them back
+     * @param placed 1 for the disc placed, -1 to take it back
+     */
+    private void countDiscs(int color, int flipped, int placed) {
+      if (color == Constants.WHITE) {
+        whiteCount += flipped + placed;
+        blackCount -= flipped;
+      } else {
+        blackCount += flipped + placed;
+        whiteCount -= flipped;
       }
     }
 
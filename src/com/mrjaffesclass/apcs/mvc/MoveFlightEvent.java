@@ -0,0 +1,40 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a move the Model applied.  Its duration is
+ * the time makeMove took.
+ *
+ * Like every Othello flight event it is off unless a recording turns
+ * it on (see the Readme), and a disabled event costs one check.
+ *
+ * @version 1.0
+ */
+@Name("com.mrjaffesclass.apcs.mvc.Move")
+@Label("Move")
+@Category({ "Othello", "Model" })
+@Description("A move applied by the Model")
+@Enabled(false)
+@StackTrace(false)
+public class MoveFlightEvent extends jdk.jfr.Event
+{
+  @Label("Color")
+  @Description("Side that moved, -1 white or 1 black")
+  int color;
+
+  @Label("Square")
+  String square;
+
+  @Label("Flipped")
+  @Description("Discs turned over")
+  int flipped;
+
+  @Label("Move Number")
+  int moveNumber;
+}
@@ -0,0 +1,105 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Everything needed to take a move back: the square played, the mask
+ * of the discs it turned over, and whose turn it was before.  Made by
+ * the makeMove methods of Board and BitBoard and taken back by their
+ * unmakeMove methods, so a position can be walked forwards and back
+ * without copying it.  A pass is a record too, with square PASS.
+ *
+ * Records never change, so a list of them is a full undo/redo history
+ * at a few words per move.
+ *
+ * @version 1.0
+ */
+public final class MoveRecord
+{
+  /**
+   * Square of a pass
+   */
+  public static final int PASS = -1;
+
+  private final int color;
+  private final int square;
+  private final long flipped;
+  private final int sideBefore;
+
+  /**
+   * Record a move
+   * @param color Color that moved
+   * @param square Bit index of the disc placed, or PASS
+   * @param flipped Mask of the discs turned over
+   * @param sideBefore Side to move before the move
+   */
+  public MoveRecord(int color, int square, long flipped, int sideBefore) {
+    this.color = color;
+    this.square = square;
+    this.flipped = flipped;
+    this.sideBefore = sideBefore;
+  }
+
+  /**
+   * Record a pass
+   * @param color Color that passes
+   * @return Record of the pass
+   */
+  public static MoveRecord pass(int color) {
+    return new MoveRecord(color, PASS, 0, color);
+  }
+
+  /**
+   * Get the color that moved
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getColor() {
+    return this.color;
+  }
+
+  /**
+   * Get the square played
+   * @return Bit index, row * 8 + col, or PASS
+   */
+  public int getSquare() {
+    return this.square;
+  }
+
+  /**
+   * Get the discs turned over
+   * @return Mask of the squares that changed color
+   */
+  public long getFlipped() {
+    return this.flipped;
+  }
+
+  /**
+   * Get the side to move before the move
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getSideBefore() {
+    return this.sideBefore;
+  }
+
+  /**
+   * Is this a pass?
+   * @return True if no disc was placed
+   */
+  public boolean isPass() {
+    return this.square == PASS;
+  }
+
+  /**
+   * Get the squares the move changed
+   * @return Mask of the disc placed and the discs turned over
+   */
+  public long getChanged() {
+    return this.isPass() ? 0 : this.flipped | (1L << this.square);
+  }
+
+  @Override
+  public String toString() {
+    String side = this.color == Constants.BLACK ? "B" : "W";
+    return this.isPass() ? side + " pass"
+      : side + " " + GameRecord.squareName(this.square) + " x" + Long.bitCount(this.flipped);
+  }
+
+}
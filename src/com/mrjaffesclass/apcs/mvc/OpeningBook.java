@@ -0,0 +1,316 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Opening book read from a memory-mapped file.  Opening a book only
+ * maps the file, so it takes the same time however large the book is,
+ * and pages are read from disk as lookups touch them.  The mapping is
+ * read-only, so any number of processes can share one book through
+ * the operating system's page cache.
+ *
+ * Positions are stored in their canonical form (see Symmetry), so one
+ * record covers all 8 symmetric images of a position.  A lookup maps
+ * the position to its canonical form, binary searches the records and
+ * maps the moves it finds back to the position's own frame.
+ *
+ * File layout, big-endian:
+ *   header, HEADER_BYTES bytes:
+ *     int MAGIC, int VERSION, int RECORD_BYTES, int unused, long count
+ *   count records, RECORD_BYTES bytes each, sorted by unsigned (own,
+ *   opp) and then move:
+ *     long own, long opp, int score, byte move, byte depth, 2 unused
+ *
+ * @version 1.0
+ */
+public class OpeningBook implements Closeable
+{
+  /**
+   * System property holding the path of the book AlphaBetaPlayer uses
+   */
+  public static final String BOOK_PROPERTY = "othello.book";
+
+  /**
+   * "OBK1"
+   */
+  static final int MAGIC = 0x4F424B31;
+
+  static final int VERSION = 1;
+
+  static final int HEADER_BYTES = 24;
+
+  static final int RECORD_BYTES = 24;
+
+  private static OpeningBook defaultBook;
+  private static boolean defaultLoaded;
+
+  private final RandomAccessFile file;
+  private final ByteBuffer buffer;
+  private final int size;
+
+  /**
+   * Map a book file
+   * @param fileName Book file to open
+   * @throws IOException if the file can't be read or isn't a book
+   */
+  public OpeningBook(String fileName) throws IOException {
+    this.file = new RandomAccessFile(fileName, "r");
+    try {
+      FileChannel channel = this.file.getChannel();
+      long length = channel.size();
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException(fileName + " is too large to map");
+      }
+      this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      if (length < HEADER_BYTES || this.buffer.getInt(0) != MAGIC) {
+        throw new IOException(fileName + " isn't an opening book");
+      }
+      if (this.buffer.getInt(4) != VERSION || this.buffer.getInt(8) != RECORD_BYTES) {
+        throw new IOException(fileName + " is an unsupported book version");
+      }
+      long count = this.buffer.getLong(16);
+      if (HEADER_BYTES + count * RECORD_BYTES != length) {
+        throw new IOException(fileName + " is truncated");
+      }
+      this.size = (int) count;
+    } catch (IOException e) {
+      this.file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Get the book named by the othello.book system property.  It is
+   * opened the first time and shared after that.
+   * @return Book, or null if the property isn't set or the book can't
+   *         be opened
+   */
+  public static synchronized OpeningBook getDefault() {
+    if (!defaultLoaded) {
+      defaultLoaded = true;
+      String fileName = System.getProperty(BOOK_PROPERTY);
+      if (fileName != null) {
+        try {
+          defaultBook = new OpeningBook(fileName);
+        } catch (IOException e) {
+          Log.log(Log.WARN, "Opening book not used: %s", e.getMessage());
+        }
+      }
+    }
+    return defaultBook;
+  }
+
+  /**
+   * Find every book move for a position
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @return Moves in the position's own frame, empty if the position
+   *         isn't in the book
+   */
+  public List<BookEntry> lookup(long own, long opp) {
+    int symmetry = Symmetry.canonical(own, opp);
+    int inverse = Symmetry.inverse(symmetry);
+    long canonicalOwn = Symmetry.transform(own, symmetry);
+    long canonicalOpp = Symmetry.transform(opp, symmetry);
+    List<BookEntry> moves = new ArrayList<BookEntry>();
+    for (int i = this.find(canonicalOwn, canonicalOpp); i < this.size; i++) {
+      int offset = HEADER_BYTES + i * RECORD_BYTES;
+      if (this.buffer.getLong(offset) != canonicalOwn || this.buffer.getLong(offset + 8) != canonicalOpp) {
+        break;
+      }
+      int move = Symmetry.transformSquare(this.buffer.get(offset + 20), inverse);
+      moves.add(new BookEntry(own, opp, move, this.buffer.getInt(offset + 16),
+        this.buffer.get(offset + 21) & 0xFF));
+    }
+    return moves;
+  }
+
+  /**
+   * Find the best scoring book move for a position
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @return Move in the position's own frame, or null if the position
+   *         isn't in the book
+   */
+  public BookEntry getBestMove(long own, long opp) {
+    BookEntry best = null;
+    for (BookEntry entry : this.lookup(own, opp)) {
+      if (best == null || entry.getScore() > best.getScore()) {
+        best = entry;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Binary search for the first record of a canonical position
+   * @return Index of the first record not below the position
+   */
+  private int find(long own, long opp) {
+    int low = 0;
+    int high = this.size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int offset = HEADER_BYTES + mid * RECORD_BYTES;
+      if (Symmetry.compare(this.buffer.getLong(offset), this.buffer.getLong(offset + 8), own, opp) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Read one record as stored, in its canonical frame
+   * @param index Record number
+   * @return Entry
+   */
+  public BookEntry getEntry(int index) {
+    int offset = HEADER_BYTES + index * RECORD_BYTES;
+    return new BookEntry(this.buffer.getLong(offset), this.buffer.getLong(offset + 8),
+      this.buffer.get(offset + 20), this.buffer.getInt(offset + 16), this.buffer.get(offset + 21) & 0xFF);
+  }
+
+  /**
+   * Get the number of records
+   * @return Number of (position, move) pairs in the book
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Close the file.  The mapping itself is released when the book is
+   * garbage collected.
+   */
+  @Override
+  public void close() throws IOException {
+    this.file.close();
+  }
+
+  /**
+   * Write a book file.  Entries are made canonical and sorted; if the
+   * same move of the same position appears twice, the deeper one is
+   * kept.  The book is written to a temporary file and renamed into
+   * place, so a process that has the old book mapped keeps a complete
+   * copy.
+   * @param fileName Book file to write
+   * @param entries Entries in any frame and order
+   * @return Number of records written
+   */
+  public static int write(String fileName, Collection<BookEntry> entries) throws IOException {
+    List<BookEntry> sorted = new ArrayList<BookEntry>(entries.size());
+    for (BookEntry entry : entries) {
+      sorted.add(entry.canonical());
+    }
+    Collections.sort(sorted);
+    List<BookEntry> unique = new ArrayList<BookEntry>(sorted.size());
+    for (BookEntry entry : sorted) {
+      int last = unique.size() - 1;
+      if (last >= 0 && unique.get(last).compareTo(entry) == 0) {
+        if (entry.getDepth() >= unique.get(last).getDepth()) {
+          unique.set(last, entry);
+        }
+      } else {
+        unique.add(entry);
+      }
+    }
+
+    File target = new File(fileName);
+    File temp = new File(fileName + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(RECORD_BYTES);
+      out.writeInt(0);
+      out.writeLong(unique.size());
+      for (BookEntry entry : unique) {
+        writeRecord(out, entry);
+      }
+    }
+    if (!temp.renameTo(target)) {
+      // Windows won't rename over an existing file
+      if (!target.delete() || !temp.renameTo(target)) {
+        throw new IOException("Can't replace " + fileName);
+      }
+    }
+    return unique.size();
+  }
+
+  /**
+   * Write one entry in the record layout
+   * @param out Stream to write to
+   * @param entry Entry, written as it is
+   */
+  static void writeRecord(DataOutputStream out, BookEntry entry) throws IOException {
+    out.writeLong(entry.getOwn());
+    out.writeLong(entry.getOpp());
+    out.writeInt(entry.getScore());
+    out.writeByte(entry.getMove());
+    out.writeByte(Math.min(entry.getDepth(), 255));
+    out.writeShort(0);
+  }
+
+  /**
+   * Read one entry in the record layout
+   * @param in Stream to read from
+   * @return Entry, as it was written
+   */
+  static BookEntry readRecord(DataInputStream in) throws IOException {
+    long own = in.readLong();
+    long opp = in.readLong();
+    int score = in.readInt();
+    int move = in.readByte();
+    int depth = in.readByte() & 0xFF;
+    in.readShort();
+    return new BookEntry(own, opp, move, score, depth);
+  }
+
+  /**
+   * Print the size of a book and the moves it has for a position
+   * Usage: java com.mrjaffesclass.apcs.mvc.OpeningBook file
+   *          ["64 squares and side to move"]
+   * @param args Book file and optional position
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Usage: OpeningBook file [\"squares side\"]");
+      System.exit(2);
+    }
+    BitBoard board;
+    if (args.length > 1) {
+      board = BitBoard.parse(args[1]);
+    } else {
+      board = new BitBoard();
+      board.setSideToMove(Constants.WHITE);
+    }
+    try (OpeningBook book = new OpeningBook(args[0])) {
+      System.out.println(args[0] + ": " + book.size() + " moves");
+      int color = board.getSideToMove();
+      long start = System.nanoTime();
+      List<BookEntry> moves = book.lookup(board.getDiscs(color), board.getDiscs(-color));
+      long nanos = System.nanoTime() - start;
+      System.out.println(board.toText() + ": " + moves.size() + " moves, lookup "
+        + nanos / 1000 + " us");
+      for (BookEntry entry : moves) {
+        System.out.println("  " + entry);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,32 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one View.paintComponent call
+ *
+ * @version 1.0
+ */
+@Name("com.mrjaffesclass.apcs.mvc.Paint")
+@Label("Paint")
+@Category({ "Othello", "View" })
+@Description("Time spent painting the board")
+@Enabled(false)
+@StackTrace(false)
+public class PaintFlightEvent extends jdk.jfr.Event
+{
+  @Label("Cached")
+  @Description("Drawn from BoardRenderer's cached images")
+  boolean cached;
+
+  @Label("Clip Width")
+  int clipWidth;
+
+  @Label("Clip Height")
+  int clipHeight;
+}
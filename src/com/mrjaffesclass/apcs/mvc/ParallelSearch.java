@@ -0,0 +1,240 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lazy SMP search.  Every thread runs its own iterative deepening
+ * search of the same position and they cooperate only through one
+ * shared, lock-free transposition table.  Results one thread stores
+ * let the others skip work, which is where the speedup comes from.
+ * When the main thread finishes, the helpers are told to stop and the
+ * deepest finished result is played.
+ *
+ * The thread count is fixed when the search is created.  Use the
+ * othello.threads system property to pick it per deployment.
+ *
+ * @version 1.0
+ */
+public class ParallelSearch
+{
+  /**
+   * System property holding the default number of search threads
+   */
+  public static final String THREADS_PROPERTY = "othello.threads";
+
+  private final TranspositionTable table;
+  private final Search[] searches;
+  private final ForkJoinPool pool;
+  private final AtomicBoolean abort = new AtomicBoolean();
+
+  private int depthReached;
+  private int bestMove = -1;
+  private int bestScore;
+  private long elapsedNanos;
+
+  /**
+   * Create a search
+   * @param threads Number of threads to search with, at least 1
+   * @param table Transposition table shared by every thread, or null
+   *              for none (only sensible with one thread)
+   */
+  public ParallelSearch(int threads, TranspositionTable table) {
+    threads = Math.max(1, threads);
+    this.table = table;
+    this.searches = new Search[threads];
+    for (int i = 0; i < threads; i++) {
+      this.searches[i] = threads == 1 ? new Search(table) : new Search(table, i, this.abort);
+    }
+    this.pool = threads == 1 ? null : new ForkJoinPool(threads);
+  }
+
+  /**
+   * Get the thread count from the othello.threads system property
+   * @return Number of threads, 1 if the property isn't set
+   */
+  public static int defaultThreads() {
+    return Math.max(1, Integer.getInteger(THREADS_PROPERTY, 1));
+  }
+
+  /**
+   * Search a position until the time runs out or the depth is reached
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param color Color of the side to move
+   * @param timeLimit Time budget in milliseconds
+   * @param maxDepth Deepest iteration to run
+   * @return Bit index of the best move found, or -1 if there is no
+   *         legal move
+   */
+  public int search(final long own, final long opp, final int color,
+      final long timeLimit, final int maxDepth) {
+    long start = System.nanoTime();
+    if (this.pool == null) {
+      Search search = this.searches[0];
+      search.search(own, opp, color, timeLimit, maxDepth);
+      this.depthReached = search.getDepthReached();
+      this.bestMove = search.getBestMove();
+      this.bestScore = search.getBestScore();
+      this.elapsedNanos = System.nanoTime() - start;
+      return this.bestMove;
+    }
+
+    if (this.table != null) {
+      this.table.newSearch();
+    }
+    this.abort.set(false);
+    ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[this.searches.length];
+    for (int i = 0; i < this.searches.length; i++) {
+      final Search search = this.searches[i];
+      tasks[i] = this.pool.submit(new Runnable() {
+        @Override
+        public void run() {
+          search.search(own, opp, color, timeLimit, maxDepth);
+        }
+      });
+    }
+    try {
+      tasks[0].get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Main search thread failed", e.getCause());
+    } finally {
+      this.abort.set(true);
+      for (ForkJoinTask<?> task : tasks) {
+        task.join();
+      }
+    }
+
+    // Play the deepest finished result, preferring the main thread's
+    Search best = this.searches[0];
+    for (Search search : this.searches) {
+      if (search.getDepthReached() > best.getDepthReached() && search.getBestMove() >= 0) {
+        best = search;
+      }
+    }
+    this.depthReached = best.getDepthReached();
+    this.bestMove = best.getBestMove();
+    this.bestScore = best.getBestScore();
+    this.elapsedNanos = System.nanoTime() - start;
+    return this.bestMove;
+  }
+
+  /**
+   * Report every iteration the main thread finishes as a
+   * SearchProgressEvent
+   * @param progress Bus to publish on, or null to stop reporting
+   */
+  public void setProgress(EventBus progress) {
+    this.searches[0].setProgress(progress);
+  }
+
+  /**
+   * Score the leaves with pattern tables on every thread
+   * @param weights Tables to score from, or null for the square-value
+   *        evaluation
+   */
+  public void setPatterns(PatternWeights weights) {
+    for (Search search : this.searches) {
+      search.setPatterns(weights);
+    }
+  }
+
+  /**
+   * Ask a running search to stop as soon as possible
+   */
+  public void stop() {
+    this.abort.set(true);
+    for (Search search : this.searches) {
+      search.stop();
+    }
+  }
+
+  /**
+   * Stop the worker threads.  The search can't be used afterwards.
+   */
+  public void shutdown() {
+    if (this.pool != null) {
+      this.pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Get the number of threads
+   * @return Thread count
+   */
+  public int getThreads() {
+    return this.searches.length;
+  }
+
+  /**
+   * Get the transposition table
+   * @return Table shared by every thread, or null if there is none
+   */
+  public TranspositionTable getTable() {
+    return this.table;
+  }
+
+  /**
+   * Get the depth of the result that was played
+   * @return Depth in plies
+   */
+  public int getDepthReached() {
+    return this.depthReached;
+  }
+
+  /**
+   * Get the best move of the last search
+   * @return Bit index of the move, or -1 if there was none
+   */
+  public int getBestMove() {
+    return this.bestMove;
+  }
+
+  /**
+   * Get the score of the best move of the last search
+   * @return Score from the point of view of the side to move
+   */
+  public int getBestScore() {
+    return this.bestScore;
+  }
+
+  /**
+   * Get the number of nodes every thread visited in the last search
+   * @return Node count
+   */
+  public long getNodes() {
+    long nodes = 0;
+    for (Search search : this.searches) {
+      nodes += search.getNodes();
+    }
+    return nodes;
+  }
+
+  /**
+   * Get the combined search speed of every thread in the last search
+   * @return Nodes per second
+   */
+  public long getNodesPerSecond() {
+    return this.elapsedNanos > 0 ? this.getNodes() * 1000000000L / this.elapsedNanos : 0;
+  }
+
+  /**
+   * Get the time the last search took
+   * @return Milliseconds
+   */
+  public long getElapsedMillis() {
+    return this.elapsedNanos / 1000000L;
+  }
+
+  @Override
+  public String toString() {
+    return "depth " + this.depthReached + ", " + this.getNodes() + " nodes, "
+      + this.getNodesPerSecond() + " nodes/sec, " + this.getElapsedMillis() + " ms, "
+      + this.searches.length + " threads";
+  }
+
+}
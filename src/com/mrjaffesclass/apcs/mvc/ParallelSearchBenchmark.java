@@ -0,0 +1,119 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.Random;
+
+/**
+ * Measures how ParallelSearch scales with the thread count.  Every
+ * position of a fixed suite is searched to the same depth with 1, 2,
+ * 4, ... threads and the speedup is the 1-thread time divided by the
+ * N-thread time.  The table is cleared before every position so each
+ * run starts cold.
+ *
+ * Usage: java com.mrjaffesclass.apcs.mvc.ParallelSearchBenchmark
+ *          [depth] [max threads] [table MB]
+ *
+ * @version 1.0
+ */
+public class ParallelSearchBenchmark
+{
+  /**
+   * Seed for the suite.  Fixed so every run searches the same positions.
+   */
+  private static final long SEED = 20141003L;
+
+  /**
+   * Number of random moves played to reach each suite position
+   */
+  private static final int[] SUITE_PLIES = {8, 12, 16, 20, 24, 28, 32, 36};
+
+  /**
+   * Program entry
+   * @param args Optional depth, maximum thread count and table size
+   */
+  public static void main(String[] args) {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+      : Runtime.getRuntime().availableProcessors();
+    int tableSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+    BitBoard[] suite = suite();
+    System.out.println("Parallel search: " + suite.length + " positions, depth " + depth
+      + ", " + tableSize + " MB table");
+    System.out.println("threads |    time ms |        nodes |    nodes/sec | speedup");
+
+    TranspositionTable table = new TranspositionTable(tableSize);
+    // Warm up the JIT so the first row isn't penalized
+    run(suite, Math.min(depth, 6), 1, table);
+
+    double baseline = 0;
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      long[] result = run(suite, depth, threads, table);
+      double millis = result[0] / 1e6;
+      if (threads == 1) {
+        baseline = millis;
+      }
+      System.out.println(String.format("%7d | %10.1f | %12d | %12d | %7.2f",
+        threads, millis, result[1], (long) (result[1] / (millis / 1000)), baseline / millis));
+      if (threads < maxThreads && threads * 2 > maxThreads) {
+        threads = maxThreads / 2;
+      }
+    }
+  }
+
+  /**
+   * Search every suite position to a fixed depth
+   * @param suite Positions to search
+   * @param depth Depth to search each position to
+   * @param threads Number of threads
+   * @param table Transposition table shared by the threads
+   * @return Total nanoseconds and total nodes
+   */
+  private static long[] run(BitBoard[] suite, int depth, int threads, TranspositionTable table) {
+    ParallelSearch search = new ParallelSearch(threads, table);
+    long nanos = 0;
+    long nodes = 0;
+    try {
+      for (BitBoard board : suite) {
+        table.clear();
+        int color = board.getSideToMove();
+        long start = System.nanoTime();
+        search.search(board.getDiscs(color), board.getDiscs(-color), color, Long.MAX_VALUE / 2000000L, depth);
+        nanos += System.nanoTime() - start;
+        nodes += search.getNodes();
+      }
+    } finally {
+      search.shutdown();
+    }
+    return new long[] {nanos, nodes};
+  }
+
+  /**
+   * Build the benchmark positions by playing seeded random moves from
+   * the starting position
+   * @return Positions with the side to move set, each with a legal move
+   */
+  static BitBoard[] suite() {
+    Random random = new Random(SEED);
+    BitBoard[] suite = new BitBoard[SUITE_PLIES.length];
+    for (int i = 0; i < SUITE_PLIES.length; i++) {
+      BitBoard board;
+      do {
+        board = new BitBoard();
+        for (int ply = 0; ply < SUITE_PLIES[i]; ply++) {
+          long moves = board.legalMoves(board.getSideToMove());
+          if (moves == 0) {
+            board.pass();
+            continue;
+          }
+          for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+            moves &= moves - 1;
+          }
+          board.makeMove(board.getSideToMove(), Long.numberOfTrailingZeros(moves));
+        }
+      } while (board.legalMoves(board.getSideToMove()) == 0);
+      suite[i] = board;
+    }
+    return suite;
+  }
+
+}
@@ -0,0 +1,47 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * The side to move has no legal move and passes
+ *
+ * @version 1.0
+ */
+public class PassEvent extends GameEvent
+{
+  private BoardSnapshot board;
+  private int color;
+
+  /**
+   * Fill in the event
+   * @param board Current position, with the other side to move
+   * @param color Color that passes
+   * @return This event
+   */
+  public PassEvent set(BoardSnapshot board, int color) {
+    this.board = board;
+    this.color = color;
+    return this;
+  }
+
+  @Override
+  public void copyFrom(GameEvent other) {
+    PassEvent pass = (PassEvent) other;
+    this.set(pass.board, pass.color);
+  }
+
+  /**
+   * Get the current position.  It can't change, so it may be kept.
+   * @return Snapshot of the board
+   */
+  public BoardSnapshot getBoard() {
+    return this.board;
+  }
+
+  /**
+   * Get the color that passes
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getColor() {
+    return this.color;
+  }
+
+}
@@ -0,0 +1,29 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a side that had to pass
+ *
+ * @version 1.0
+ */
+@Name("com.mrjaffesclass.apcs.mvc.Pass")
+@Label("Pass")
+@Category({ "Othello", "Model" })
+@Description("A side with no legal move passed")
+@Enabled(false)
+@StackTrace(false)
+public class PassFlightEvent extends jdk.jfr.Event
+{
+  @Label("Color")
+  @Description("Side that passed, -1 white or 1 black")
+  int color;
+
+  @Label("Move Number")
+  int moveNumber;
+}
@@ -0,0 +1,291 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Evaluates positions from edge, corner, line and diagonal patterns.
+ * Each pattern is a fixed list of squares; the contents of those
+ * squares, read as a base-3 number (0 empty, 1 black, 2 white), index
+ * a table of learned scores in PatternWeights.  The score of a
+ * position is the sum of its patterns' scores for the current phase
+ * of the game, so evaluating costs one array lookup per pattern and
+ * nothing else.
+ *
+ * The pattern indexes are kept up to date as moves are made and taken
+ * back: each square has a precomputed list of the patterns it is in
+ * and what it is worth in each, so a move adds or subtracts a few
+ * powers of 3 instead of reading the board again.
+ *
+ * Every pattern type is placed on the board in each of its symmetric
+ * positions (see Symmetry), with its squares listed in the matching
+ * order, so all the copies of a type share one table.
+ *
+ * An evaluator holds one position's indexes and must only be used by
+ * one thread at a time; the tables are shared.
+ *
+ * @version 1.0
+ */
+public class PatternEvaluator
+{
+  /**
+   * Squares of one copy of each pattern type, as bit indexes
+   * row * 8 + col.  The other copies are its symmetric images.
+   */
+  static final int[][] TYPE_SQUARES = {
+    // Edge plus the two X squares
+    { 0, 1, 2, 3, 4, 5, 6, 7, 9, 14 },
+    // 3x3 corner
+    { 0, 1, 2, 8, 9, 10, 16, 17, 18 },
+    // 2x5 corner
+    { 0, 1, 2, 3, 4, 8, 9, 10, 11, 12 },
+    // Second, third and fourth rows
+    { 8, 9, 10, 11, 12, 13, 14, 15 },
+    { 16, 17, 18, 19, 20, 21, 22, 23 },
+    { 24, 25, 26, 27, 28, 29, 30, 31 },
+    // Diagonals of 8 down to 4 squares
+    { 0, 9, 18, 27, 36, 45, 54, 63 },
+    { 1, 10, 19, 28, 37, 46, 55 },
+    { 2, 11, 20, 29, 38, 47 },
+    { 3, 12, 21, 30, 39 },
+    { 4, 13, 22, 31 }
+  };
+
+  static final String[] TYPE_NAMES = {
+    "edge+2X", "corner3x3", "corner2x5", "line2", "line3", "line4",
+    "diag8", "diag7", "diag6", "diag5", "diag4"
+  };
+
+  /**
+   * Number of game phases with their own weights
+   */
+  public static final int PHASES = 6;
+
+  /**
+   * Largest score evaluate() returns, kept below the score of a won
+   * game
+   */
+  public static final int MAX_SCORE = Search.WIN_SCORE - 1;
+
+  /**
+   * Start of each type's table within one phase's weights
+   */
+  static final int[] TYPE_OFFSETS = new int[TYPE_SQUARES.length];
+
+  /**
+   * Entries in one phase's weights: 3^n for each type of n squares
+   */
+  static final int CONFIGS;
+
+  /**
+   * Number of patterns placed on the board
+   */
+  static final int FEATURES;
+
+  /**
+   * Type of each feature, its squares in index order, and the start
+   * of its table within one phase's weights
+   */
+  static final int[] FEATURE_TYPES;
+  static final int[][] FEATURE_SQUARES;
+  private static final int[] FEATURE_OFFSETS;
+
+  /**
+   * For each square, the features it is in and the power of 3 it
+   * carries in each.  The entries for square s run from
+   * SQUARE_START[s] to SQUARE_START[s + 1] - 1.
+   */
+  private static final int[] SQUARE_START = new int[65];
+  private static final int[] SQUARE_FEATURES;
+  private static final int[] SQUARE_POWERS;
+
+  static {
+    int configs = 0;
+    for (int type = 0; type < TYPE_SQUARES.length; type++) {
+      TYPE_OFFSETS[type] = configs;
+      configs += pow3(TYPE_SQUARES[type].length);
+    }
+    CONFIGS = configs;
+
+    // Place each type in every symmetric position it has
+    int[] types = new int[TYPE_SQUARES.length * Symmetry.COUNT];
+    int[][] squares = new int[types.length][];
+    long[] masks = new long[types.length];
+    int features = 0;
+    for (int type = 0; type < TYPE_SQUARES.length; type++) {
+      for (int s = 0; s < Symmetry.COUNT; s++) {
+        int[] placed = new int[TYPE_SQUARES[type].length];
+        long mask = 0;
+        for (int k = 0; k < placed.length; k++) {
+          placed[k] = Symmetry.transformSquare(TYPE_SQUARES[type][k], s);
+          mask |= 1L << placed[k];
+        }
+        boolean seen = false;
+        for (int f = 0; f < features && !seen; f++) {
+          seen = types[f] == type && masks[f] == mask;
+        }
+        if (!seen) {
+          types[features] = type;
+          squares[features] = placed;
+          masks[features] = mask;
+          features++;
+        }
+      }
+    }
+    FEATURES = features;
+    FEATURE_TYPES = new int[features];
+    FEATURE_SQUARES = new int[features][];
+    FEATURE_OFFSETS = new int[features];
+    int entries = 0;
+    for (int f = 0; f < features; f++) {
+      FEATURE_TYPES[f] = types[f];
+      FEATURE_SQUARES[f] = squares[f];
+      FEATURE_OFFSETS[f] = TYPE_OFFSETS[types[f]];
+      entries += squares[f].length;
+    }
+
+    SQUARE_FEATURES = new int[entries];
+    SQUARE_POWERS = new int[entries];
+    int next = 0;
+    for (int square = 0; square < 64; square++) {
+      SQUARE_START[square] = next;
+      for (int f = 0; f < features; f++) {
+        int[] placed = FEATURE_SQUARES[f];
+        for (int k = 0; k < placed.length; k++) {
+          if (placed[k] == square) {
+            SQUARE_FEATURES[next] = f;
+            SQUARE_POWERS[next] = pow3(k);
+            next++;
+          }
+        }
+      }
+    }
+    SQUARE_START[64] = next;
+  }
+
+  private final short[] weights;
+
+  /**
+   * Index of each feature in its type's table
+   */
+  private final int[] indexes = new int[FEATURES];
+
+  private int discs;
+
+  /**
+   * Create an evaluator for the starting position
+   * @param weights Tables to score from
+   */
+  public PatternEvaluator(PatternWeights weights) {
+    this.weights = weights.getWeights();
+    BitBoard start = new BitBoard();
+    this.setPosition(start.getDiscs(Constants.BLACK), start.getDiscs(Constants.WHITE));
+  }
+
+  /**
+   * Read a position from scratch
+   * @param black Mask of the black discs
+   * @param white Mask of the white discs
+   */
+  public void setPosition(long black, long white) {
+    for (int f = 0; f < FEATURES; f++) {
+      int[] placed = FEATURE_SQUARES[f];
+      int index = 0;
+      for (int k = placed.length - 1; k >= 0; k--) {
+        long bit = 1L << placed[k];
+        index = index * 3 + ((black & bit) != 0 ? 1 : (white & bit) != 0 ? 2 : 0);
+      }
+      this.indexes[f] = index;
+    }
+    this.discs = Long.bitCount(black | white);
+  }
+
+  /**
+   * Bring the indexes up to date after a move
+   * @param color Color that moved
+   * @param square Bit index of the disc placed
+   * @param flipped Mask of the discs turned over
+   */
+  public void makeMove(int color, int square, long flipped) {
+    int[] indexes = this.indexes;
+    // The placed disc goes from 0 to 1 (black) or 2 (white); each
+    // flipped disc goes from 2 to 1 when black moves, 1 to 2 when white
+    int placed = color == Constants.BLACK ? 1 : 2;
+    int turned = color == Constants.BLACK ? -1 : 1;
+    for (int i = SQUARE_START[square]; i < SQUARE_START[square + 1]; i++) {
+      indexes[SQUARE_FEATURES[i]] += placed * SQUARE_POWERS[i];
+    }
+    while (flipped != 0) {
+      int s = Long.numberOfTrailingZeros(flipped);
+      flipped &= flipped - 1;
+      for (int i = SQUARE_START[s]; i < SQUARE_START[s + 1]; i++) {
+        indexes[SQUARE_FEATURES[i]] += turned * SQUARE_POWERS[i];
+      }
+    }
+    this.discs++;
+  }
+
+  /**
+   * Put the indexes back as they were before a move
+   * @param color Color that moved
+   * @param square Bit index of the disc placed
+   * @param flipped Mask of the discs turned over
+   */
+  public void unmakeMove(int color, int square, long flipped) {
+    int[] indexes = this.indexes;
+    int placed = color == Constants.BLACK ? 1 : 2;
+    int turned = color == Constants.BLACK ? -1 : 1;
+    for (int i = SQUARE_START[square]; i < SQUARE_START[square + 1]; i++) {
+      indexes[SQUARE_FEATURES[i]] -= placed * SQUARE_POWERS[i];
+    }
+    while (flipped != 0) {
+      int s = Long.numberOfTrailingZeros(flipped);
+      flipped &= flipped - 1;
+      for (int i = SQUARE_START[s]; i < SQUARE_START[s + 1]; i++) {
+        indexes[SQUARE_FEATURES[i]] -= turned * SQUARE_POWERS[i];
+      }
+    }
+    this.discs--;
+  }
+
+  /**
+   * Score the position: one table lookup per feature
+   * @param color Side to score for
+   * @return Score from that side's point of view, within MAX_SCORE
+   */
+  public int evaluate(int color) {
+    short[] weights = this.weights;
+    int base = phase(this.discs) * CONFIGS;
+    int[] indexes = this.indexes;
+    int score = 0;
+    for (int f = 0; f < FEATURES; f++) {
+      score += weights[base + FEATURE_OFFSETS[f] + indexes[f]];
+    }
+    score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+    return color == Constants.BLACK ? score : -score;
+  }
+
+  /**
+   * Get the index of one feature, for checking and training
+   * @param feature Feature number, 0 to FEATURES - 1
+   * @return Base-3 index into the feature's type table
+   */
+  public int getIndex(int feature) {
+    return this.indexes[feature];
+  }
+
+  /**
+   * Get the phase of the game
+   * @param discs Discs on the board, 4 to 64
+   * @return Phase, 0 to PHASES - 1
+   */
+  public static int phase(int discs) {
+    return Math.min(PHASES - 1, Math.max(0, (discs - 4) * PHASES / 61));
+  }
+
+  static int pow3(int n) {
+    int p = 1;
+    for (int i = 0; i < n; i++) {
+      p *= 3;
+    }
+    return p;
+  }
+
+}
@@ -0,0 +1,217 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Score tables for PatternEvaluator, one set per game phase, held in a
+ * single flat array of shorts.  Entry
+ *   phase * PatternEvaluator.CONFIGS + type offset + index
+ * is the score, from black's point of view, of one pattern type with
+ * its squares filled as the base-3 index says.
+ *
+ * The file is read in one go into the array when the weights are
+ * loaded, so evaluating never touches anything but primitive arrays.
+ * File layout, big-endian:
+ *   int MAGIC, int VERSION, int PHASES, int CONFIGS
+ *   PHASES * CONFIGS shorts, phase by phase, in the order above
+ *
+ * Weights are learned elsewhere.  seed() builds a starting set from
+ * Search's square values so a file can be written and loaded without
+ * training; main() writes one.
+ *
+ * @version 1.0
+ */
+public class PatternWeights
+{
+  /**
+   * System property holding the path of the weights AlphaBetaPlayer
+   * uses
+   */
+  public static final String WEIGHTS_PROPERTY = "othello.weights";
+
+  /**
+   * "OPW1"
+   */
+  static final int MAGIC = 0x4F505731;
+
+  static final int VERSION = 1;
+
+  static final int HEADER_BYTES = 16;
+
+  private static PatternWeights defaultWeights;
+  private static boolean defaultLoaded;
+
+  private final short[] weights;
+
+  /**
+   * Wrap weights already in memory
+   * @param weights PatternEvaluator.PHASES * PatternEvaluator.CONFIGS
+   *        scores, laid out as in the file
+   */
+  public PatternWeights(short[] weights) {
+    if (weights.length != PatternEvaluator.PHASES * PatternEvaluator.CONFIGS) {
+      throw new IllegalArgumentException("Expected " + PatternEvaluator.PHASES * PatternEvaluator.CONFIGS
+        + " weights, got " + weights.length);
+    }
+    this.weights = weights;
+  }
+
+  /**
+   * Load a weights file
+   * @param fileName File to read
+   * @throws IOException if the file can't be read or doesn't match
+   *         this evaluator's patterns
+   */
+  public PatternWeights(String fileName) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(fileName)));
+    if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+      throw new IOException(fileName + " isn't a pattern weights file");
+    }
+    if (buffer.getInt() != VERSION || buffer.getInt() != PatternEvaluator.PHASES
+        || buffer.getInt() != PatternEvaluator.CONFIGS) {
+      throw new IOException(fileName + " is for a different version or set of patterns");
+    }
+    this.weights = new short[PatternEvaluator.PHASES * PatternEvaluator.CONFIGS];
+    if (buffer.remaining() != this.weights.length * 2) {
+      throw new IOException(fileName + " is the wrong length");
+    }
+    buffer.asShortBuffer().get(this.weights);
+  }
+
+  /**
+   * Get the weights named by the othello.weights system property.
+   * They are loaded the first time and shared after that.
+   * @return Weights, or null if the property isn't set or the file
+   *         can't be loaded
+   */
+  public static synchronized PatternWeights getDefault() {
+    if (!defaultLoaded) {
+      defaultLoaded = true;
+      String fileName = System.getProperty(WEIGHTS_PROPERTY);
+      if (fileName != null) {
+        try {
+          defaultWeights = new PatternWeights(fileName);
+        } catch (IOException e) {
+          Log.log(Log.WARN, "Pattern weights not used: %s", e.getMessage());
+        }
+      }
+    }
+    return defaultWeights;
+  }
+
+  /**
+   * Build weights from Search's square values.  Each square's value
+   * is shared out over the patterns it is in, so the sum over every
+   * pattern is about the square-value score; every phase gets the same
+   * scores.
+   * @return New weights
+   */
+  public static PatternWeights seed() {
+    short[] weights = new short[PatternEvaluator.PHASES * PatternEvaluator.CONFIGS];
+    // How many placed patterns cover each square
+    int[] covering = new int[64];
+    for (int[] squares : PatternEvaluator.FEATURE_SQUARES) {
+      for (int square : squares) {
+        covering[square]++;
+      }
+    }
+    for (int type = 0; type < PatternEvaluator.TYPE_SQUARES.length; type++) {
+      int[] squares = PatternEvaluator.TYPE_SQUARES[type];
+      int configs = PatternEvaluator.pow3(squares.length);
+      for (int index = 0; index < configs; index++) {
+        double score = 0;
+        int digits = index;
+        for (int square : squares) {
+          int digit = digits % 3;
+          digits /= 3;
+          if (digit != 0) {
+            double share = (double) Search.SQUARE_VALUES[square] / covering[square];
+            score += digit == 1 ? share : -share;
+          }
+        }
+        short value = (short) Math.round(score);
+        for (int phase = 0; phase < PatternEvaluator.PHASES; phase++) {
+          weights[phase * PatternEvaluator.CONFIGS + PatternEvaluator.TYPE_OFFSETS[type] + index] = value;
+        }
+      }
+    }
+    return new PatternWeights(weights);
+  }
+
+  /**
+   * Get the flat score array.  It is the weights' own array, shared by
+   * every evaluator using them.
+   * @return Scores, laid out as in the file
+   */
+  short[] getWeights() {
+    return this.weights;
+  }
+
+  /**
+   * Write the weights to a file.  They are written to a temporary file
+   * and renamed into place.
+   * @param fileName File to write
+   */
+  public void write(String fileName) throws IOException {
+    File target = new File(fileName);
+    File temp = new File(fileName + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(PatternEvaluator.PHASES);
+      out.writeInt(PatternEvaluator.CONFIGS);
+      for (short weight : this.weights) {
+        out.writeShort(weight);
+      }
+    }
+    if (!temp.renameTo(target)) {
+      // Windows won't rename over an existing file
+      if (!target.delete() || !temp.renameTo(target)) {
+        throw new IOException("Can't replace " + fileName);
+      }
+    }
+  }
+
+  /**
+   * Write seed weights, or describe a weights file
+   * Usage: java com.mrjaffesclass.apcs.mvc.PatternWeights -seed file
+   *        java com.mrjaffesclass.apcs.mvc.PatternWeights file
+   * @param args Option and file name
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 2 && args[0].equals("-seed")) {
+      seed().write(args[1]);
+      System.out.println(args[1] + ": seed weights, " + PatternEvaluator.FEATURES + " patterns, "
+        + PatternEvaluator.PHASES + " phases of " + PatternEvaluator.CONFIGS + " entries");
+    } else if (args.length == 1) {
+      long start = System.nanoTime();
+      PatternWeights weights = new PatternWeights(args[0]);
+      long nanos = System.nanoTime() - start;
+      PatternEvaluator evaluator = new PatternEvaluator(weights);
+      System.out.println(args[0] + ": loaded in " + nanos / 1000 + " us, start position scores "
+        + evaluator.evaluate(Constants.BLACK) + " for black");
+      for (int type = 0; type < PatternEvaluator.TYPE_SQUARES.length; type++) {
+        int copies = 0;
+        for (int featureType : PatternEvaluator.FEATURE_TYPES) {
+          if (featureType == type) {
+            copies++;
+          }
+        }
+        System.out.println("  " + PatternEvaluator.TYPE_NAMES[type] + ": "
+          + PatternEvaluator.TYPE_SQUARES[type].length + " squares, " + copies + " on the board");
+      }
+    } else {
+      System.out.println("Usage: PatternWeights [-seed] file");
+      System.exit(2);
+    }
+  }
+
+}
@@ -0,0 +1,292 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Counts every legal move sequence to a fixed depth (perft) to check
+ * and time move generation.  A pass counts as one ply when the side to
+ * move has no move but the other side does.  A finished game counts
+ * as one leaf at whatever depth it ends.  These are the rules behind
+ * the published Othello perft numbers, which the counts from the
+ * starting position are checked against.
+ *
+ * Three move generators can be counted and timed against each other:
+ * "bitboard" (BitBoard, the default) and "board" (the Square-array
+ * routines in Board) on the 8x8 board, and "wide" (WideBitBoard),
+ * which also counts the other board sizes.  Any size but 8 uses
+ * "wide".  Results are reported per size; only 8x8 has reference
+ * counts to check against.
+ *
+ * Usage: java com.mrjaffesclass.apcs.mvc.Perft [-backend bitboard|board|wide]
+ *          [-size n] [-position "64 squares and side to move"] depth
+ *
+ * @version 1.0
+ */
+public class Perft
+{
+  /**
+   * Published perft counts from the starting position, index = depth
+   */
+  static final long[] REFERENCE = {
+    1L, 4L, 12L, 56L, 244L, 1396L, 8200L, 55092L, 390216L, 3005288L,
+    24571284L, 212258800L, 1939886636L, 18429641748L, 184042084512L
+  };
+
+  /**
+   * Square array for the "board" backend.  Moves are made and taken
+   * back on it, so it is never copied.
+   */
+  private final Square[][] squares = new Square[Constants.SIZE][Constants.SIZE];
+
+  // Board for the "wide" backend, and the moves and flipped discs of
+  // each ply so counting allocates nothing
+  private WideBitBoard wide;
+  private long[][] wideMoves;
+  private long[][] wideFlipped;
+
+  /**
+   * Create a perft counter
+   */
+  public Perft() {
+    for (int row = 0; row < Constants.SIZE; row++) {
+      for (int col = 0; col < Constants.SIZE; col++) {
+        this.squares[row][col] = new Square(Constants.EMPTY);
+      }
+    }
+  }
+
+  /**
+   * Count with the bitboard move generator
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param depth Plies to count
+   * @param passed True if the other side passed to get here
+   * @return Number of leaves
+   */
+  public static long perft(long own, long opp, int depth, boolean passed) {
+    long moves = BitBoard.legalMoves(own, opp);
+    if (moves == 0) {
+      if (passed) {
+        return 1;
+      }
+      return depth == 1 ? 1 : perft(opp, own, depth - 1, true);
+    }
+    if (depth == 1) {
+      return Long.bitCount(moves);
+    }
+    long count = 0;
+    while (moves != 0) {
+      int move = Long.numberOfTrailingZeros(moves);
+      moves &= moves - 1;
+      long flipped = BitBoard.flips(own, opp, move);
+      count += perft(opp ^ flipped, own ^ flipped ^ (1L << move), depth - 1, false);
+    }
+    return count;
+  }
+
+  /**
+   * Count with the Square-array move generator in Board
+   * @param color Color of the side to move
+   * @param depth Plies to count
+   * @param passed True if the other side passed to get here
+   * @return Number of leaves
+   */
+  long perftSquares(int color, int depth, boolean passed) {
+    Square[][] squares = this.squares;
+    if (Board.noMovesAvailable(squares, color)) {
+      if (passed) {
+        return 1;
+      }
+      if (depth == 1) {
+        return 1;
+      }
+      return perftSquares(-color, depth - 1, true);
+    }
+    long count = 0;
+    for (int index = 0; index < Constants.SIZE * Constants.SIZE; index++) {
+      if (Board.isLegalMove(squares, color, index)) {
+        if (depth == 1) {
+          count++;
+        } else {
+          long flipped = Board.makeMove(squares, color, index);
+          count += perftSquares(-color, depth - 1, false);
+          Board.unmakeMove(squares, color, index, flipped);
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Count with the multi-word move generator in WideBitBoard
+   * @param depth Plies to count
+   * @param passed True if the other side passed to get here
+   * @param ply Plies from the root, to pick the masks to use
+   * @return Number of leaves
+   */
+  long perftWide(int depth, boolean passed, int ply) {
+    WideBitBoard board = this.wide;
+    int color = board.getSideToMove();
+    long[] moves = this.wideMoves[ply];
+    int count = board.legalMoves(color, moves);
+    if (count == 0) {
+      if (passed || depth == 1) {
+        return 1;
+      }
+      board.pass();
+      long leaves = perftWide(depth - 1, true, ply + 1);
+      board.pass();
+      return leaves;
+    }
+    if (depth == 1) {
+      return count;
+    }
+    long leaves = 0;
+    long[] flipped = this.wideFlipped[ply];
+    for (int move = WideBitBoard.nextSquare(moves, 0); move >= 0; move = WideBitBoard.nextSquare(moves, move + 1)) {
+      board.makeMove(color, move, flipped);
+      leaves += perftWide(depth - 1, false, ply + 1);
+      board.unmakeMove(color, move, flipped);
+    }
+    return leaves;
+  }
+
+  /**
+   * Count a board of any size with WideBitBoard
+   * @param board Position to count from; it is left as it was
+   * @param depth Plies to count
+   * @return Number of leaves
+   */
+  public long count(WideBitBoard board, int depth) {
+    if (depth == 0) {
+      return 1;
+    }
+    this.wide = board;
+    this.wideMoves = new long[depth][];
+    this.wideFlipped = new long[depth][];
+    for (int ply = 0; ply < depth; ply++) {
+      this.wideMoves[ply] = board.newMask();
+      this.wideFlipped[ply] = board.newMask();
+    }
+    return perftWide(depth, false, 0);
+  }
+
+  /**
+   * Count a position with one of the backends
+   * @param board Position to count from
+   * @param depth Plies to count
+   * @param backend "bitboard", "board" or "wide"
+   * @return Number of leaves
+   */
+  public long count(BitBoard board, int depth, String backend) {
+    if (depth == 0) {
+      return 1;
+    }
+    int color = board.getSideToMove();
+    if ("wide".equals(backend)) {
+      WideBitBoard wide = new WideBitBoard(Constants.SIZE);
+      for (int row = 0; row < Constants.SIZE; row++) {
+        for (int col = 0; col < Constants.SIZE; col++) {
+          wide.setStatus(row, col, board.getStatus(row, col));
+        }
+      }
+      wide.setSideToMove(color);
+      return count(wide, depth);
+    }
+    if ("board".equals(backend)) {
+      board.toSquares(this.squares);
+      return perftSquares(color, depth, false);
+    }
+    return perft(board.getDiscs(color), board.getDiscs(-color), depth, false);
+  }
+
+  /**
+   * Program entry
+   * @param args Options and depth, see the class comment
+   */
+  public static void main(String[] args) {
+    String backend = "bitboard";
+    BitBoard board = null;
+    int size = Constants.SIZE;
+    int depth = -1;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-backend") && i + 1 < args.length) {
+        backend = args[++i];
+      } else if (args[i].equals("-size") && i + 1 < args.length) {
+        size = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-position") && i + 1 < args.length) {
+        board = BitBoard.parse(args[++i]);
+      } else {
+        depth = Integer.parseInt(args[i]);
+      }
+    }
+    if (size != Constants.SIZE) {
+      backend = "wide";
+    }
+    if (depth < 0 || !(backend.equals("bitboard") || backend.equals("board") || backend.equals("wide"))
+        || size < WideBitBoard.MIN_SIZE || size > WideBitBoard.MAX_SIZE || size % 2 != 0
+        || (board != null && size != Constants.SIZE)) {
+      System.out.println("Usage: Perft [-backend bitboard|board|wide] [-size n] [-position \"squares side\"] depth");
+      System.out.println("  -size takes an even size from " + WideBitBoard.MIN_SIZE + " to " + WideBitBoard.MAX_SIZE
+        + "; -position is for 8x8 only");
+      System.exit(2);
+    }
+    if (size != Constants.SIZE) {
+      countSize(size, depth);
+      return;
+    }
+    // The starting position the Model sets up, white to move
+    if (board == null) {
+      board = new BitBoard();
+      board.setSideToMove(Constants.WHITE);
+    }
+    // The start is symmetric, so the reference counts hold for either side
+    BitBoard initial = new BitBoard();
+    boolean fromStart = board.getDiscs(Constants.BLACK) == initial.getDiscs(Constants.BLACK)
+      && board.getDiscs(Constants.WHITE) == initial.getDiscs(Constants.WHITE);
+
+    System.out.println("Perft 8x8 " + board.toText() + " (" + backend + ")");
+    System.out.println("depth |            nodes |    time ms |    nodes/sec | check");
+    Perft perft = new Perft();
+    boolean ok = true;
+    for (int d = 1; d <= depth; d++) {
+      long start = System.nanoTime();
+      long nodes = perft.count(board, d, backend);
+      long nanos = Math.max(1, System.nanoTime() - start);
+      String check = "";
+      if (fromStart && d < REFERENCE.length) {
+        if (nodes == REFERENCE[d]) {
+          check = "OK";
+        } else {
+          check = "MISMATCH, expected " + REFERENCE[d];
+          ok = false;
+        }
+      }
+      System.out.println(String.format("%5d | %16d | %10.1f | %12d | %s",
+        d, nodes, nanos / 1e6, nodes * 1000000000L / nanos, check));
+    }
+    if (!ok) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Count and time the starting position of another board size, white
+   * to move as in the Model
+   * @param size Squares along each side
+   * @param depth Deepest count
+   */
+  private static void countSize(int size, int depth) {
+    WideBitBoard board = new WideBitBoard(size);
+    board.setSideToMove(Constants.WHITE);
+    System.out.println("Perft " + size + "x" + size + " start (wide)");
+    System.out.println("depth |            nodes |    time ms |    nodes/sec");
+    Perft perft = new Perft();
+    for (int d = 1; d <= depth; d++) {
+      long start = System.nanoTime();
+      long nodes = perft.count(board, d);
+      long nanos = Math.max(1, System.nanoTime() - start);
+      System.out.println(String.format("%5d | %16d | %10.1f | %12d",
+        d, nodes, nanos / 1e6, nodes * 1000000000L / nanos));
+    }
+  }
+
+}
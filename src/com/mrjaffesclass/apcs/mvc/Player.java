@@ -44,6 +44,34 @@ public class Player
   Position getNextMove(Board board) {
     return null;
   };
+
+  /**
+   * Players that can play boards other than 8x8 override this as well.
+   * The default returns null, so the player forfeits those games.
+   * @param board Game board of any size; it is the player's own copy
+   * @return A position coordinate pair of the next move. Returns null
+   *          if no move is available
+   */
+  Position getNextMove(WideBitBoard board) {
+    return null;
+  }
+
+  /**
+   * Ask a getNextMove that is running on another thread to return as
+   * soon as it can, with the best move it has found so far.  Players
+   * that answer straight away don't need to override this.
+   */
+  public void stop() {
+  }
+
+  /**
+   * Give the player a bus to publish SearchProgressEvents on while it
+   * works out a move.  Players that don't search don't need to
+   * override this.
+   * @param progress Bus to publish on, or null to stop reporting
+   */
+  public void setProgress(EventBus progress) {
+  }
   
   /**
    * Are this player and the passed-in player the same?
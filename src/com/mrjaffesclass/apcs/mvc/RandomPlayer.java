@@ -0,0 +1,60 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Player that picks uniformly among its legal moves.  Useful as a
+ * baseline opponent and for generating varied games.  It plays boards
+ * of any size.
+ *
+ * @version 1.0
+ */
+public class RandomPlayer extends Player
+{
+  /**
+   * Player constructor
+   * @param color   One of Constants.WHITE or Constants.BLACK
+   */
+  public RandomPlayer(int color) {
+    super(color);
+  }
+
+  /**
+   * Pick a random legal move
+   * @param board Game board
+   * @return A position coordinate pair of the next move. Returns null
+   *          if no move is available
+   */
+  @Override
+  Position getNextMove(Board board) {
+    long moves = board.toBitBoard().legalMoves(this.getColor());
+    if (moves == 0) {
+      return null;
+    }
+    for (int skip = ThreadLocalRandom.current().nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+      moves &= moves - 1;
+    }
+    return BitBoard.toPosition(Long.numberOfTrailingZeros(moves));
+  }
+
+  /**
+   * Pick a random legal move on a board of any size
+   * @param board Game board
+   * @return A position coordinate pair of the next move. Returns null
+   *          if no move is available
+   */
+  @Override
+  Position getNextMove(WideBitBoard board) {
+    long[] moves = board.newMask();
+    int count = board.legalMoves(this.getColor(), moves);
+    if (count == 0) {
+      return null;
+    }
+    int index = WideBitBoard.nextSquare(moves, 0);
+    for (int skip = ThreadLocalRandom.current().nextInt(count); skip > 0; skip--) {
+      index = WideBitBoard.nextSquare(moves, index + 1);
+    }
+    return new Position(board.getRow(index), board.getCol(index));
+  }
+
+}
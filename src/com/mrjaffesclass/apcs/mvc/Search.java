@@ -0,0 +1,573 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import jdk.jfr.EventType;
+
+/**
+ * Negamax alpha-beta search over bitboards with iterative deepening.
+ * Positions are always passed as (own, opp): the discs of the side to
+ * move and the discs of the other side, so the same code searches for
+ * either color.  The color is only needed to keep the Zobrist hash of
+ * each node up to date for the transposition table.  A Search object
+ * keeps per-search scratch arrays and counters and must only be used
+ * by one thread at a time.
+ *
+ * @version 1.0
+ */
+public class Search
+{
+  /**
+   * Score for a won game before the disc difference is added.  Larger
+   * than any value evaluate() can return.
+   */
+  public static final int WIN_SCORE = 100000;
+
+  /**
+   * Bound used for the initial search window
+   */
+  public static final int INFINITY = 1000000;
+
+  /**
+   * Deepest search iterative deepening will try
+   */
+  public static final int MAX_DEPTH = 60;
+
+  /**
+   * How many nodes to search between clock checks
+   */
+  private static final int CHECK_INTERVAL = 1024;
+
+  /**
+   * Depth remaining at which moves are ordered by the opponent's
+   * mobility instead of by square value alone
+   */
+  private static final int MOBILITY_ORDER_DEPTH = 3;
+
+  /**
+   * Checked before each iteration, so no SearchFlightEvent is made
+   * while the event is off
+   */
+  static final EventType FLIGHT_TYPE = EventType.getEventType(SearchFlightEvent.class);
+
+  /**
+   * Value of owning each square.  Corners are good, the squares next
+   * to them are bad until the corner is taken.
+   */
+  static final int[] SQUARE_VALUES = {
+    100, -20,  10,   5,   5,  10, -20, 100,
+    -20, -50,  -2,  -2,  -2,  -2, -50, -20,
+     10,  -2,   1,   1,   1,   1,  -2,  10,
+      5,  -2,   1,   0,   0,   1,  -2,   5,
+      5,  -2,   1,   0,   0,   1,  -2,   5,
+     10,  -2,   1,   1,   1,   1,  -2,  10,
+    -20, -50,  -2,  -2,  -2,  -2, -50, -20,
+    100, -20,  10,   5,   5,  10, -20, 100
+  };
+
+  /**
+   * Moves generated at each ply, reused across nodes.  Passes don't
+   * use up depth, so a search can be up to twice as many plies deep.
+   */
+  private final int[][] moves = new int[2 * MAX_DEPTH + 2][Constants.SIZE * Constants.SIZE];
+
+  /**
+   * Ordering keys matching moves, reused across nodes
+   */
+  private final int[][] keys = new int[2 * MAX_DEPTH + 2][Constants.SIZE * Constants.SIZE];
+
+  /**
+   * Results of earlier nodes, or null to search without one
+   */
+  private final TranspositionTable table;
+
+  /**
+   * 0 for a search running on its own or the main thread of a
+   * parallel search, 1 and up for its helper threads
+   */
+  private final int helperId;
+
+  /**
+   * Stop signal shared by every thread of a parallel search, or null
+   */
+  private final AtomicBoolean abort;
+
+  private long nodes;
+  private long deadline;
+  private int depthReached;
+  private int bestMove = -1;
+  private int bestScore;
+  private long elapsedNanos;
+  private volatile boolean stopped;
+
+  /**
+   * Bus to report each finished iteration on, or null
+   */
+  private EventBus progress;
+  private final SearchProgressEvent progressEvent = new SearchProgressEvent();
+
+  /**
+   * Pattern evaluator for the leaves, or null to use evaluate()
+   */
+  private PatternEvaluator patterns;
+
+  /**
+   * Create a search without a transposition table
+   */
+  public Search() {
+    this(null);
+  }
+
+  /**
+   * Create a search
+   * @param table Transposition table to use, or null for none
+   */
+  public Search(TranspositionTable table) {
+    this(table, 0, null);
+  }
+
+  /**
+   * Create one thread's search for ParallelSearch.  Helpers start
+   * their iterations at different depths and with the root moves in a
+   * different order so they fill the shared table with different
+   * parts of the tree.
+   * @param table Transposition table shared by every thread
+   * @param helperId 0 for the main thread, 1 and up for helpers
+   * @param abort Stop signal shared by every thread
+   */
+  Search(TranspositionTable table, int helperId, AtomicBoolean abort) {
+    this.table = table;
+    this.helperId = helperId;
+    this.abort = abort;
+  }
+
+  /**
+   * Search a position until the time runs out
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param color Color of the side to move
+   * @param timeLimit Time budget in milliseconds
+   * @return Bit index of the best move found, or -1 if there is no
+   *         legal move
+   */
+  public int search(long own, long opp, int color, long timeLimit) {
+    return search(own, opp, color, timeLimit, MAX_DEPTH);
+  }
+
+  /**
+   * Search a position until the time runs out or the depth is reached
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param color Color of the side to move
+   * @param timeLimit Time budget in milliseconds
+   * @param maxDepth Deepest iteration to run
+   * @return Bit index of the best move found, or -1 if there is no
+   *         legal move
+   */
+  public int search(long own, long opp, int color, long timeLimit, int maxDepth) {
+    long start = System.nanoTime();
+    this.deadline = start + timeLimit * 1000000L;
+    this.nodes = 0;
+    this.depthReached = 0;
+    this.bestMove = -1;
+    this.bestScore = 0;
+    this.stopped = false;
+    // A parallel search ages the shared table once for all its threads
+    if (this.table != null && this.abort == null) {
+      this.table.newSearch();
+    }
+    long hash = color == Constants.BLACK
+      ? Zobrist.hash(own, opp, color)
+      : Zobrist.hash(opp, own, color);
+    if (this.patterns != null) {
+      if (color == Constants.BLACK) {
+        this.patterns.setPosition(own, opp);
+      } else {
+        this.patterns.setPosition(opp, own);
+      }
+    }
+
+    int count = generate(own, opp, 0, true, -1);
+    if (count > 0) {
+      // Always have something to play, even if depth 1 doesn't finish
+      this.bestMove = this.moves[0][0];
+      int[] rootMoves = this.moves[0];
+      int[] rootScores = new int[count];
+      int empties = Long.bitCount(~(own | opp));
+      if (this.helperId > 0) {
+        rotate(rootMoves, this.helperId % count, count);
+      }
+      int firstDepth = 1 + (this.helperId & 1);
+      for (int depth = firstDepth; depth <= Math.min(maxDepth, empties); depth++) {
+        SearchFlightEvent flight = null;
+        if (FLIGHT_TYPE.isEnabled()) {
+          flight = new SearchFlightEvent();
+          flight.begin();
+        }
+        int alpha = -INFINITY;
+        int iterationBest = -1;
+        for (int i = 0; i < count; i++) {
+          int move = rootMoves[i];
+          long flipped = BitBoard.flips(own, opp, move);
+          if (this.patterns != null) {
+            this.patterns.makeMove(color, move, flipped);
+          }
+          int score = -negamax(opp ^ flipped, own ^ flipped ^ (1L << move), -color,
+            hash ^ Zobrist.move(color, move, flipped), depth - 1, 1, -INFINITY, -alpha, false);
+          if (this.patterns != null) {
+            this.patterns.unmakeMove(color, move, flipped);
+          }
+          if (this.stopped) {
+            break;
+          }
+          rootScores[i] = score;
+          if (score > alpha) {
+            alpha = score;
+            iterationBest = move;
+          }
+        }
+        if (flight != null) {
+          flight.end();
+          if (flight.shouldCommit()) {
+            this.commitIteration(flight, color, depth, iterationBest, alpha);
+          }
+        }
+        if (this.stopped) {
+          break;
+        }
+        this.bestMove = iterationBest;
+        this.bestScore = alpha;
+        this.depthReached = depth;
+        if (this.progress != null) {
+          this.progress.publish(this.progressEvent.set(color, depth, iterationBest, alpha, this.nodes,
+            (System.nanoTime() - start) / 1000000));
+        }
+        // Search the best moves from this iteration first next time
+        sort(rootMoves, rootScores, count);
+        // The next iteration takes several times longer than this one,
+        // so don't start it unless most of the budget is left
+        long now = System.nanoTime();
+        if (now - start > (this.deadline - start) / 2) {
+          break;
+        }
+      }
+    }
+    this.elapsedNanos = System.nanoTime() - start;
+    if (Metrics.ENABLED) {
+      Metrics.SEARCH.record(this.elapsedNanos);
+      Metrics.SEARCH_NODES.add(this.nodes);
+    }
+    return this.bestMove;
+  }
+
+  /**
+   * Fill in a flight event for an iteration and record it
+   */
+  private void commitIteration(SearchFlightEvent flight, int color, int depth, int move, int score) {
+    flight.engine = "Search";
+    flight.color = color;
+    flight.depth = depth;
+    flight.move = move < 0 ? null : GameRecord.squareName(move);
+    flight.score = score;
+    flight.nodes = this.nodes;
+    flight.completed = !this.stopped;
+    flight.commit();
+  }
+
+  /**
+   * Report every finished iteration as a SearchProgressEvent.  The
+   * event is published on the searching thread.
+   * @param progress Bus to publish on, or null to stop reporting
+   */
+  public void setProgress(EventBus progress) {
+    this.progress = progress;
+  }
+
+  /**
+   * Score the leaves with pattern tables instead of evaluate().  The
+   * pattern indexes are updated as the search makes and takes back
+   * moves, so a leaf costs one lookup per pattern.
+   * @param weights Tables to score from, or null to go back to
+   *        evaluate()
+   */
+  public void setPatterns(PatternWeights weights) {
+    this.patterns = weights != null ? new PatternEvaluator(weights) : null;
+  }
+
+  /**
+   * Ask a running search to stop as soon as possible.  The best move
+   * from the last completed iteration is kept.
+   */
+  public void stop() {
+    this.stopped = true;
+  }
+
+  /**
+   * Negamax with alpha-beta pruning.  Results are stored in the
+   * transposition table and a stored result that is deep enough and
+   * falls outside the window ends the node without searching it.
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param color Color of the side to move
+   * @param hash Zobrist hash of the position
+   * @param depth Plies left to search
+   * @param ply Plies from the root
+   * @param alpha Lower bound of the search window
+   * @param beta Upper bound of the search window
+   * @param passed True if the other side passed to get here
+   * @return Score from the point of view of the side to move
+   */
+  private int negamax(long own, long opp, int color, long hash, int depth, int ply,
+      int alpha, int beta, boolean passed) {
+    this.nodes++;
+    if ((this.nodes & (CHECK_INTERVAL - 1)) == 0
+        && (System.nanoTime() > this.deadline || (this.abort != null && this.abort.get()))) {
+      this.stopped = true;
+    }
+    if (this.stopped) {
+      return 0;
+    }
+    if (depth == 0) {
+      return this.patterns != null ? this.patterns.evaluate(color) : evaluate(own, opp);
+    }
+    int hashMove = -1;
+    if (this.table != null) {
+      long entry = this.table.probe(hash);
+      if (entry != 0) {
+        hashMove = TranspositionTable.getMove(entry);
+        if (TranspositionTable.getDepth(entry) >= depth) {
+          int score = TranspositionTable.getScore(entry);
+          switch (TranspositionTable.getBound(entry)) {
+            case TranspositionTable.EXACT:
+              return score;
+            case TranspositionTable.LOWER:
+              if (score >= beta) {
+                return score;
+              }
+              break;
+            case TranspositionTable.UPPER:
+              if (score <= alpha) {
+                return score;
+              }
+              break;
+          }
+        }
+      }
+    }
+    int count = generate(own, opp, ply, depth >= MOBILITY_ORDER_DEPTH, hashMove);
+    if (count == 0) {
+      if (passed) {
+        return finalScore(own, opp);
+      }
+      return -negamax(opp, own, -color, hash ^ Zobrist.SIDE_KEY, depth, ply + 1,
+        -beta, -alpha, true);
+    }
+    int[] plyMoves = this.moves[ply];
+    int originalAlpha = alpha;
+    int best = -INFINITY;
+    int bestMove = -1;
+    for (int i = 0; i < count; i++) {
+      int move = plyMoves[i];
+      long flipped = BitBoard.flips(own, opp, move);
+      if (this.patterns != null) {
+        this.patterns.makeMove(color, move, flipped);
+      }
+      int score = -negamax(opp ^ flipped, own ^ flipped ^ (1L << move), -color,
+        hash ^ Zobrist.move(color, move, flipped), depth - 1, ply + 1, -beta, -alpha, false);
+      if (this.patterns != null) {
+        this.patterns.unmakeMove(color, move, flipped);
+      }
+      if (score > best) {
+        best = score;
+        bestMove = move;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta) {
+            break;
+          }
+        }
+      }
+    }
+    if (this.table != null && !this.stopped) {
+      int bound = best <= originalAlpha ? TranspositionTable.UPPER
+        : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+      this.table.store(hash, bestMove, depth, bound, best);
+    }
+    return best;
+  }
+
+  /**
+   * Generate and order the moves for a ply.  The best move stored in
+   * the transposition table goes first.  After it, moves that leave
+   * the opponent the fewest replies are tried first, which keeps the
+   * tree narrow and finds cutoffs early.  Near the leaves, where that
+   * costs more than it saves, moves are ordered by square value only.
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @param ply Plies from the root
+   * @param byMobility True to order by the opponent's replies
+   * @param hashMove Best move from the transposition table, or -1
+   * @return Number of moves stored in moves[ply]
+   */
+  private int generate(long own, long opp, int ply, boolean byMobility, int hashMove) {
+    int[] plyMoves = this.moves[ply];
+    int[] plyKeys = this.keys[ply];
+    long legal = BitBoard.legalMoves(own, opp);
+    int count = 0;
+    while (legal != 0) {
+      int move = Long.numberOfTrailingZeros(legal);
+      legal &= legal - 1;
+      int key = SQUARE_VALUES[move];
+      if (move == hashMove) {
+        key = Integer.MAX_VALUE;
+      } else if (byMobility) {
+        long flipped = BitBoard.flips(own, opp, move);
+        long replies = BitBoard.legalMoves(opp ^ flipped, own ^ flipped ^ (1L << move));
+        key -= Long.bitCount(replies) * 16;
+      }
+      plyMoves[count] = move;
+      plyKeys[count] = key;
+      count++;
+    }
+    sort(plyMoves, plyKeys, count);
+    return count;
+  }
+
+  /**
+   * Insertion sort moves by descending key.  The lists are short
+   * enough that this beats anything fancier.
+   * @param moves Moves to sort
+   * @param keys Key for each move
+   * @param count Number of moves
+   */
+  private static void sort(int[] moves, int[] keys, int count) {
+    for (int i = 1; i < count; i++) {
+      int move = moves[i];
+      int key = keys[i];
+      int j = i - 1;
+      while (j >= 0 && keys[j] < key) {
+        moves[j + 1] = moves[j];
+        keys[j + 1] = keys[j];
+        j--;
+      }
+      moves[j + 1] = move;
+      keys[j + 1] = key;
+    }
+  }
+
+  /**
+   * Rotate moves left so a different move comes first
+   * @param moves Moves to rotate
+   * @param distance Number of places to rotate by
+   * @param count Number of moves
+   */
+  private static void rotate(int[] moves, int distance, int count) {
+    for (int step = 0; step < distance; step++) {
+      int first = moves[0];
+      System.arraycopy(moves, 1, moves, 0, count - 1);
+      moves[count - 1] = first;
+    }
+  }
+
+  /**
+   * Static evaluation: square values plus mobility
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @return Score from the point of view of the side to move
+   */
+  static int evaluate(long own, long opp) {
+    int score = 0;
+    long discs = own;
+    while (discs != 0) {
+      score += SQUARE_VALUES[Long.numberOfTrailingZeros(discs)];
+      discs &= discs - 1;
+    }
+    discs = opp;
+    while (discs != 0) {
+      score -= SQUARE_VALUES[Long.numberOfTrailingZeros(discs)];
+      discs &= discs - 1;
+    }
+    int ownMobility = Long.bitCount(BitBoard.legalMoves(own, opp));
+    int oppMobility = Long.bitCount(BitBoard.legalMoves(opp, own));
+    return score + 10 * (ownMobility - oppMobility);
+  }
+
+  /**
+   * Score of a finished game
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @return WIN_SCORE plus the disc difference for a win, minus for a
+   *         loss, 0 for a draw
+   */
+  static int finalScore(long own, long opp) {
+    int diff = Long.bitCount(own) - Long.bitCount(opp);
+    if (diff > 0) {
+      return WIN_SCORE + diff;
+    } else if (diff < 0) {
+      return -WIN_SCORE + diff;
+    }
+    return 0;
+  }
+
+  /**
+   * Get the deepest iteration that finished in the last search
+   * @return Depth in plies
+   */
+  public int getDepthReached() {
+    return this.depthReached;
+  }
+
+  /**
+   * Get the number of nodes visited in the last search
+   * @return Node count
+   */
+  public long getNodes() {
+    return this.nodes;
+  }
+
+  /**
+   * Get the search speed of the last search
+   * @return Nodes per second
+   */
+  public long getNodesPerSecond() {
+    return this.elapsedNanos > 0 ? this.nodes * 1000000000L / this.elapsedNanos : 0;
+  }
+
+  /**
+   * Get the time the last search took
+   * @return Milliseconds
+   */
+  public long getElapsedMillis() {
+    return this.elapsedNanos / 1000000L;
+  }
+
+  /**
+   * Get the transposition table
+   * @return Table shared by every search, or null if there is none
+   */
+  public TranspositionTable getTable() {
+    return this.table;
+  }
+
+  /**
+   * Get the best move of the last search
+   * @return Bit index of the move, or -1 if there was none
+   */
+  public int getBestMove() {
+    return this.bestMove;
+  }
+
+  /**
+   * Get the score of the best move of the last search
+   * @return Score from the point of view of the side to move
+   */
+  public int getBestScore() {
+    return this.bestScore;
+  }
+
+  @Override
+  public String toString() {
+    return "depth " + this.depthReached + ", " + this.nodes + " nodes, "
+      + this.getNodesPerSecond() + " nodes/sec, " + this.getElapsedMillis() + " ms";
+  }
+
+}
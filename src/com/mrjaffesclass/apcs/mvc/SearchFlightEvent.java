@@ -0,0 +1,50 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a finished step of an engine search: one
+ * iteration of Search, or a whole EndgameSolver solve.  Its duration
+ * is the time that step took.
+ *
+ * @version 1.0
+ */
+@Name("com.mrjaffesclass.apcs.mvc.SearchIteration")
+@Label("Search Iteration")
+@Category({ "Othello", "Engine" })
+@Description("An iteration of Search or an endgame solve")
+@Enabled(false)
+@StackTrace(false)
+public class SearchFlightEvent extends jdk.jfr.Event
+{
+  @Label("Engine")
+  @Description("Search or EndgameSolver")
+  String engine;
+
+  @Label("Color")
+  @Description("Side searching, -1 white or 1 black; 0 for EndgameSolver, which doesn't know")
+  int color;
+
+  @Label("Depth")
+  @Description("Plies searched, or empties solved")
+  int depth;
+
+  @Label("Best Move")
+  String move;
+
+  @Label("Score")
+  int score;
+
+  @Label("Nodes")
+  @Description("Nodes visited since the search started")
+  long nodes;
+
+  @Label("Completed")
+  @Description("False if the time ran out first")
+  boolean completed;
+}
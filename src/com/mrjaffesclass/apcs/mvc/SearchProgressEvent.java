@@ -0,0 +1,93 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * A computer player finished another step of its search: an iteration
+ * of Search, or an endgame solve
+ *
+ * @version 1.0
+ */
+public class SearchProgressEvent extends GameEvent
+{
+  private int color;
+  private int depth;
+  private int move;
+  private int score;
+  private long nodes;
+  private long elapsedMillis;
+
+  /**
+   * Fill in the event
+   * @param color Color of the side searching
+   * @param depth Depth finished, in plies
+   * @param move Bit index of the best move so far
+   * @param score Score of that move for the side searching
+   * @param nodes Nodes searched so far
+   * @param elapsedMillis Time spent so far on this move
+   * @return This event
+   */
+  public SearchProgressEvent set(int color, int depth, int move, int score, long nodes, long elapsedMillis) {
+    this.color = color;
+    this.depth = depth;
+    this.move = move;
+    this.score = score;
+    this.nodes = nodes;
+    this.elapsedMillis = elapsedMillis;
+    return this;
+  }
+
+  @Override
+  public void copyFrom(GameEvent other) {
+    SearchProgressEvent progress = (SearchProgressEvent) other;
+    this.set(progress.color, progress.depth, progress.move, progress.score, progress.nodes,
+      progress.elapsedMillis);
+  }
+
+  /**
+   * Only the latest progress needs to be shown
+   * @return True
+   */
+  @Override
+  public boolean isMergeable() {
+    return true;
+  }
+
+  /**
+   * Get the side searching
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getColor() {
+    return this.color;
+  }
+
+  public int getDepth() {
+    return this.depth;
+  }
+
+  /**
+   * Get the best move so far
+   * @return Bit index, row * 8 + col
+   */
+  public int getMove() {
+    return this.move;
+  }
+
+  public int getScore() {
+    return this.score;
+  }
+
+  public long getNodes() {
+    return this.nodes;
+  }
+
+  public long getElapsedMillis() {
+    return this.elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("depth %d, best %s, score %+d, %d nodes, %.1f s", this.depth,
+      this.move < 0 ? "none" : GameRecord.squareName(this.move), this.score, this.nodes,
+      this.elapsedMillis / 1000.0);
+  }
+
+}
@@ -0,0 +1,455 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates training games by self-play with no user interface.
+ * Worker threads play games between Player subclasses, each from a
+ * random opening, and one writer thread streams them to disk as shards
+ * in the GameRecordWriter format.  A record is the list of moves, so
+ * every position of the game, its side to move and the final result
+ * come back out of GameRecord.replay() at about one byte per position.
+ *
+ * Workers never touch the disk: they hand finished games to the
+ * writer through a bounded queue.  If the disk falls behind, the queue
+ * fills and workers wait for room, so memory stays bounded whatever
+ * the speed of either side.
+ *
+ * The games are split into shards of a fixed number of games.  Game
+ * i of shard s is game number s * shardSize + i and its opening is
+ * drawn from seed + game number, so each shard always holds the same
+ * openings.  Each worker takes a whole shard at a time; a shard is
+ * written to a .tmp file and renamed when its last game is in, so the
+ * directory only ever holds complete shards.  Running the same command
+ * again after a crash or Ctrl+C skips the complete shards and plays
+ * the rest.  The settings are kept in selfplay.properties, and a run
+ * with different settings is refused rather than mixed in.
+ *
+ * Games a player forfeits with an illegal move are counted but not
+ * written.
+ *
+ * Usage: java com.mrjaffesclass.apcs.mvc.SelfPlay [-games N] [-shard N]
+ *          [-threads N] [-plies N] [-seed N] [-queue N] [-out dir]
+ *          Player [Player]
+ *   Players are named as for Tournament; with one, it plays both
+ *   sides, with two, the first is black.
+ *
+ * @version 1.0
+ */
+public class SelfPlay
+{
+  /**
+   * Settings file kept next to the shards
+   */
+  static final String SETTINGS_FILE = "selfplay.properties";
+
+  private final String blackSpec;
+  private final String whiteSpec;
+  private final int games;
+  private final int shardSize;
+  private final int plies;
+  private final long seed;
+  private final File dir;
+  private final BlockingQueue<SelfPlayGame> queue;
+
+  /**
+   * Shards still to play, found by prepare()
+   */
+  private int[] pending = new int[0];
+  private final AtomicInteger nextShard = new AtomicInteger();
+
+  private final AtomicLong played = new AtomicLong();
+  private final AtomicLong forfeited = new AtomicLong();
+  private final AtomicLong moves = new AtomicLong();
+  private final AtomicLong stalls = new AtomicLong();
+  private final AtomicInteger shardsWritten = new AtomicInteger();
+
+  private volatile boolean workersDone;
+  private volatile boolean stopping;
+  private volatile IOException failure;
+
+  /**
+   * Set up a run
+   * @param blackSpec Player spec for black, see Tournament
+   * @param whiteSpec Player spec for white
+   * @param games Total games in the run
+   * @param shardSize Games per shard
+   * @param plies Random moves in each opening
+   * @param seed Seed for the openings
+   * @param dir Directory the shards go in
+   * @param queueSize Finished games that can wait for the writer
+   */
+  public SelfPlay(String blackSpec, String whiteSpec, int games, int shardSize, int plies, long seed,
+      File dir, int queueSize) {
+    if (games < 1 || shardSize < 1 || queueSize < 1) {
+      throw new IllegalArgumentException("Games, shard size and queue size must be at least 1");
+    }
+    this.blackSpec = blackSpec;
+    this.whiteSpec = whiteSpec;
+    this.games = games;
+    this.shardSize = shardSize;
+    this.plies = plies;
+    this.seed = seed;
+    this.dir = dir;
+    this.queue = new ArrayBlockingQueue<SelfPlayGame>(queueSize);
+  }
+
+  /**
+   * Get the directory ready and find the shards still to play.
+   * Leftover .tmp files from an interrupted run are deleted.
+   * @return Number of shards to play
+   * @throws IOException if the directory can't be used or holds a run
+   *         with different settings
+   */
+  public int prepare() throws IOException {
+    if (!this.dir.isDirectory() && !this.dir.mkdirs()) {
+      throw new IOException("Can't create " + this.dir);
+    }
+    Properties settings = new Properties();
+    settings.setProperty("black", this.blackSpec);
+    settings.setProperty("white", this.whiteSpec);
+    settings.setProperty("games", Integer.toString(this.games));
+    settings.setProperty("shard", Integer.toString(this.shardSize));
+    settings.setProperty("plies", Integer.toString(this.plies));
+    settings.setProperty("seed", Long.toString(this.seed));
+    File settingsFile = new File(this.dir, SETTINGS_FILE);
+    if (settingsFile.exists()) {
+      Properties previous = new Properties();
+      try (InputStream in = new FileInputStream(settingsFile)) {
+        previous.load(in);
+      }
+      if (!previous.equals(settings)) {
+        throw new IOException(this.dir + " holds a run with other settings: " + previous);
+      }
+    } else {
+      try (OutputStream out = new FileOutputStream(settingsFile)) {
+        settings.store(out, "SelfPlay settings");
+      }
+    }
+
+    File[] leftovers = this.dir.listFiles();
+    if (leftovers != null) {
+      for (File file : leftovers) {
+        if (file.getName().endsWith(".tmp") && !file.delete()) {
+          throw new IOException("Can't delete " + file);
+        }
+      }
+    }
+    List<Integer> todo = new ArrayList<Integer>();
+    for (int shard = 0; shard < this.shardCount(); shard++) {
+      if (!this.shardFile(shard).exists()) {
+        todo.add(shard);
+      }
+    }
+    this.pending = new int[todo.size()];
+    for (int i = 0; i < this.pending.length; i++) {
+      this.pending[i] = todo.get(i);
+    }
+    return this.pending.length;
+  }
+
+  /**
+   * Play every pending shard
+   * @param threads Number of games to play at once
+   * @return Wall-clock time in nanoseconds
+   * @throws IOException if a shard can't be written
+   */
+  public long run(int threads) throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    int expected = 0;
+    for (int shard : this.pending) {
+      expected += this.shardGames(shard);
+    }
+    final int total = expected;
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeShards(total);
+      }
+    }, "SelfPlay writer");
+    writer.start();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          playShards();
+        }
+      });
+    }
+    executor.shutdown();
+    while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+      long games = this.played.get() + this.forfeited.get();
+      System.out.println(String.format("%d / %d games, %d / %d shards, %.0f games/sec, queue %d",
+        games, total, this.shardsWritten.get(), this.pending.length,
+        games / ((System.nanoTime() - start) / 1e9), this.queue.size()));
+    }
+    this.workersDone = true;
+    writer.join();
+    if (this.failure != null) {
+      throw this.failure;
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Worker loop: take shards until they run out and play their games.
+   * Each worker creates its players once and reuses them for every
+   * game.
+   */
+  private void playShards() {
+    Player black = Tournament.createPlayer(this.blackSpec, Constants.BLACK);
+    Player white = Tournament.createPlayer(this.whiteSpec, Constants.WHITE);
+    byte[] gameMoves = new byte[GameRecord.MAX_MOVES];
+    int next;
+    while (!this.stopping && (next = this.nextShard.getAndIncrement()) < this.pending.length) {
+      int shard = this.pending[next];
+      for (int i = 0; i < this.shardGames(shard); i++) {
+        GameRecord record = this.play(black, white, (long) shard * this.shardSize + i, gameMoves);
+        if (!this.offer(new SelfPlayGame(shard, record))) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Play one game from its random opening
+   * @param black Player with the black discs
+   * @param white Player with the white discs
+   * @param game Game number, which picks the opening
+   * @param gameMoves Scratch array for the moves
+   * @return Record of the whole game, or null if it was forfeited
+   */
+  GameRecord play(Player black, Player white, long game, byte[] gameMoves) {
+    Random random = new Random(this.seed + game);
+    BitBoard board = new BitBoard();
+    int count = 0;
+    for (int ply = 0; ply < this.plies; ply++) {
+      long legal = board.legalMoves(board.getSideToMove());
+      if (legal == 0) {
+        if (board.legalMoves(-board.getSideToMove()) == 0) {
+          break;
+        }
+        board.pass();
+        continue;
+      }
+      for (int skip = random.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+        legal &= legal - 1;
+      }
+      int move = Long.numberOfTrailingZeros(legal);
+      board.makeMove(board.getSideToMove(), move);
+      gameMoves[count++] = (byte) move;
+    }
+    HeadlessGame headless = new HeadlessGame(black, white, board);
+    int diff = headless.play();
+    if (headless.getForfeit() != Constants.EMPTY) {
+      this.forfeited.incrementAndGet();
+      return null;
+    }
+    for (int i = 0; i < headless.getMoveCount(); i++) {
+      gameMoves[count++] = (byte) headless.getMove(i);
+    }
+    this.played.incrementAndGet();
+    this.moves.addAndGet(count);
+    return new GameRecord(Constants.BLACK, gameMoves, count, diff);
+  }
+
+  /**
+   * Hand a game to the writer, waiting while the queue is full
+   * @return False if the run is stopping and the game was dropped
+   */
+  private boolean offer(SelfPlayGame game) {
+    if (this.queue.offer(game)) {
+      return true;
+    }
+    this.stalls.incrementAndGet();
+    try {
+      while (!this.queue.offer(game, 100, TimeUnit.MILLISECONDS)) {
+        if (this.stopping) {
+          return false;
+        }
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Writer loop: append games to their shards' .tmp files and rename
+   * each shard into place when its last game arrives.  A write error
+   * stops the workers.
+   * @param expected Games in the pending shards
+   */
+  private void writeShards(int expected) {
+    Map<Integer, GameRecordWriter> open = new HashMap<Integer, GameRecordWriter>();
+    int[] received = new int[this.shardCount()];
+    List<SelfPlayGame> batch = new ArrayList<SelfPlayGame>();
+    int count = 0;
+    try {
+      while (count < expected) {
+        SelfPlayGame first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          if (this.workersDone && this.queue.isEmpty()) {
+            break;
+          }
+          continue;
+        }
+        batch.add(first);
+        this.queue.drainTo(batch);
+        for (SelfPlayGame game : batch) {
+          int shard = game.getShard();
+          GameRecordWriter writer = open.get(shard);
+          if (writer == null) {
+            writer = new GameRecordWriter(this.tempFile(shard).getPath());
+            open.put(shard, writer);
+          }
+          if (game.getRecord() != null) {
+            writer.write(game.getRecord());
+          }
+          count++;
+          if (++received[shard] == this.shardGames(shard)) {
+            open.remove(shard).close();
+            this.finishShard(shard);
+          }
+        }
+        batch.clear();
+      }
+    } catch (IOException e) {
+      this.failure = e;
+      this.stopping = true;
+    } catch (InterruptedException e) {
+      this.stopping = true;
+    } finally {
+      // Unfinished shards stay as .tmp files for the next run to delete
+      for (GameRecordWriter writer : open.values()) {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          // Already failed or stopping; the shard is redone anyway
+        }
+      }
+    }
+  }
+
+  /**
+   * Rename a complete shard into place
+   */
+  private void finishShard(int shard) throws IOException {
+    File temp = this.tempFile(shard);
+    if (!temp.renameTo(this.shardFile(shard))) {
+      throw new IOException("Can't rename " + temp);
+    }
+    this.shardsWritten.incrementAndGet();
+  }
+
+  /**
+   * Get the number of shards in the whole run
+   * @return Shard count
+   */
+  public int shardCount() {
+    return (this.games + this.shardSize - 1) / this.shardSize;
+  }
+
+  /**
+   * Get the number of games in a shard.  Only the last can be short.
+   * @param shard Shard number
+   * @return Game count
+   */
+  int shardGames(int shard) {
+    return Math.min(this.shardSize, this.games - shard * this.shardSize);
+  }
+
+  /**
+   * Get the file a complete shard is kept in
+   * @param shard Shard number
+   * @return File in the run's directory
+   */
+  public File shardFile(int shard) {
+    return new File(this.dir, String.format("shard-%05d.ogr", shard));
+  }
+
+  private File tempFile(int shard) {
+    return new File(this.dir, this.shardFile(shard).getName() + ".tmp");
+  }
+
+  /**
+   * Print a summary of the run
+   * @param nanos Time the run took
+   */
+  public void report(long nanos) {
+    double seconds = nanos / 1e9;
+    System.out.println(String.format("%d games (%d forfeited), %d positions, %d shards in %.1f s",
+      this.played.get() + this.forfeited.get(), this.forfeited.get(), this.moves.get(),
+      this.shardsWritten.get(), seconds));
+    System.out.println(String.format("%.1f games/sec, %.0f positions/sec, workers waited for the writer"
+      + " %d times", this.played.get() / seconds, this.moves.get() / seconds, this.stalls.get()));
+  }
+
+  /**
+   * Program entry
+   * @param args Options and player specs, see the class comment
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int games = 100000;
+    int shard = 10000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int plies = 8;
+    long seed = 1;
+    int queue = 1024;
+    String out = "selfplay";
+    List<String> players = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "-games":   games = Integer.parseInt(args[++i]); break;
+        case "-shard":   shard = Integer.parseInt(args[++i]); break;
+        case "-threads": threads = Integer.parseInt(args[++i]); break;
+        case "-plies":   plies = Integer.parseInt(args[++i]); break;
+        case "-seed":    seed = Long.parseLong(args[++i]); break;
+        case "-queue":   queue = Integer.parseInt(args[++i]); break;
+        case "-out":     out = args[++i]; break;
+        default:         players.add(args[i]);
+      }
+    }
+    if (players.isEmpty() || players.size() > 2) {
+      System.out.println("Usage: SelfPlay [-games N] [-shard N] [-threads N] [-plies N] [-seed N]"
+        + " [-queue N] [-out dir] Player [Player]");
+      System.exit(2);
+    }
+    String black = players.get(0);
+    String white = players.get(players.size() - 1);
+    // Fail now, not inside a worker, if a player can't be created
+    Tournament.createPlayer(black, Constants.BLACK);
+    Tournament.createPlayer(white, Constants.WHITE);
+
+    SelfPlay selfPlay = new SelfPlay(black, white, games, shard, plies, seed, new File(out), queue);
+    int pending = selfPlay.prepare();
+    if (pending < selfPlay.shardCount()) {
+      System.out.println("Resuming: " + (selfPlay.shardCount() - pending) + " of "
+        + selfPlay.shardCount() + " shards already written");
+    }
+    long nanos = selfPlay.run(threads);
+    selfPlay.report(nanos);
+  }
+
+}
@@ -0,0 +1,41 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * A finished self-play game on its way from a worker to the shard
+ * writer, tagged with the shard it belongs in
+ *
+ * @version 1.0
+ */
+public class SelfPlayGame
+{
+  private final int shard;
+  private final GameRecord record;
+
+  /**
+   * Create a game
+   * @param shard Shard number
+   * @param record Game, or null if it was forfeited and is only
+   *        counted, not written
+   */
+  public SelfPlayGame(int shard, GameRecord record) {
+    this.shard = shard;
+    this.record = record;
+  }
+
+  /**
+   * Get the shard the game belongs in
+   * @return Shard number
+   */
+  public int getShard() {
+    return this.shard;
+  }
+
+  /**
+   * Get the game
+   * @return Game, or null if it was forfeited
+   */
+  public GameRecord getRecord() {
+    return this.record;
+  }
+
+}
@@ -0,0 +1,152 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * The 8 symmetries of the board (rotations and reflections) on
+ * bitboards and bit indexes.  Symmetry s is built from three bits,
+ * applied in this order:
+ *   4  swap rows and columns (reflect in the main diagonal)
+ *   1  mirror left to right
+ *   2  flip top to bottom
+ * Symmetry 0 leaves the board unchanged.
+ *
+ * The canonical form of a position is the one of its 8 images with
+ * the smallest (own, opp) pair, so equivalent positions share one key.
+ *
+ * @version 1.0
+ */
+public class Symmetry
+{
+  /**
+   * Number of symmetries
+   */
+  public static final int COUNT = 8;
+
+  /**
+   * INVERSES[s] undoes symmetry s
+   */
+  private static final int[] INVERSES = new int[COUNT];
+
+  static {
+    for (int s = 0; s < COUNT; s++) {
+      for (int t = 0; t < COUNT; t++) {
+        boolean undoes = true;
+        for (int i = 0; i < Constants.SIZE * Constants.SIZE && undoes; i++) {
+          undoes = transformSquare(transformSquare(i, s), t) == i;
+        }
+        if (undoes) {
+          INVERSES[s] = t;
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Apply a symmetry to a bitboard
+   * @param bits Mask of squares
+   * @param symmetry Symmetry number, 0 to 7
+   * @return Transformed mask
+   */
+  public static long transform(long bits, int symmetry) {
+    if ((symmetry & 4) != 0) {
+      bits = transpose(bits);
+    }
+    if ((symmetry & 1) != 0) {
+      bits = mirror(bits);
+    }
+    if ((symmetry & 2) != 0) {
+      bits = Long.reverseBytes(bits);
+    }
+    return bits;
+  }
+
+  /**
+   * Apply a symmetry to one square
+   * @param index Bit index, row * 8 + col
+   * @param symmetry Symmetry number, 0 to 7
+   * @return Transformed bit index
+   */
+  public static int transformSquare(int index, int symmetry) {
+    int row = index / Constants.SIZE;
+    int col = index % Constants.SIZE;
+    if ((symmetry & 4) != 0) {
+      int swap = row;
+      row = col;
+      col = swap;
+    }
+    if ((symmetry & 1) != 0) {
+      col = Constants.SIZE - 1 - col;
+    }
+    if ((symmetry & 2) != 0) {
+      row = Constants.SIZE - 1 - row;
+    }
+    return row * Constants.SIZE + col;
+  }
+
+  /**
+   * Get the symmetry that undoes another
+   * @param symmetry Symmetry number, 0 to 7
+   * @return Inverse symmetry number
+   */
+  public static int inverse(int symmetry) {
+    return INVERSES[symmetry];
+  }
+
+  /**
+   * Find the symmetry that takes a position to its canonical form
+   * @param own Discs of the side to move
+   * @param opp Discs of the other side
+   * @return Symmetry number, 0 to 7
+   */
+  public static int canonical(long own, long opp) {
+    int best = 0;
+    long bestOwn = own;
+    long bestOpp = opp;
+    for (int s = 1; s < COUNT; s++) {
+      long o = transform(own, s);
+      long p = transform(opp, s);
+      int cmp = compare(o, p, bestOwn, bestOpp);
+      if (cmp < 0) {
+        best = s;
+        bestOwn = o;
+        bestOpp = p;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Order two positions as unsigned (own, opp) pairs
+   * @return Negative, zero or positive as the first position is
+   *         smaller than, equal to or larger than the second
+   */
+  public static int compare(long own1, long opp1, long own2, long opp2) {
+    if (own1 != own2) {
+      return Long.compare(own1 + Long.MIN_VALUE, own2 + Long.MIN_VALUE);
+    }
+    return Long.compare(opp1 + Long.MIN_VALUE, opp2 + Long.MIN_VALUE);
+  }
+
+  /**
+   * Reverse the columns of every row
+   */
+  private static long mirror(long bits) {
+    bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+    bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+    return ((bits >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((bits & 0x0F0F0F0F0F0F0F0FL) << 4);
+  }
+
+  /**
+   * Swap rows and columns by exchanging ever smaller blocks across the
+   * diagonal
+   */
+  private static long transpose(long bits) {
+    long t = 0x0F0F0F0F00000000L & (bits ^ (bits << 28));
+    bits ^= t ^ (t >>> 28);
+    t = 0x3333000033330000L & (bits ^ (bits << 14));
+    bits ^= t ^ (t >>> 14);
+    t = 0x5500550055005500L & (bits ^ (bits << 7));
+    return bits ^ t ^ (t >>> 7);
+  }
+
+}
@@ -0,0 +1,453 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays a round-robin match between Player subclasses without the user
+ * interface, spreading the games across threads.  Every opening is
+ * played twice with the colors swapped so neither player gets the
+ * better side of it more often.  Openings are either random moves from
+ * the starting position or positions read from a file, one per line in
+ * the BitBoard.parse() notation.
+ *
+ * Players are named by class, optionally followed by ':' and a number
+ * passed to the constructor after the color (for AlphaBetaPlayer, the
+ * time per move in milliseconds).
+ *
+ * With -size, the games are played on a WideBitBoard of that size
+ * instead, from random openings, by players that override
+ * getNextMove(WideBitBoard) such as RandomPlayer and GreedyPlayer.
+ *
+ * Usage: java com.mrjaffesclass.apcs.mvc.Tournament [-games N] [-threads N]
+ *          [-plies N] [-openings file] [-seed N] [-size N] [-out file.csv]
+ *          Player Player [Player ...]
+ *
+ * @version 1.0
+ */
+public class Tournament
+{
+  private static final String PACKAGE = "com.mrjaffesclass.apcs.mvc.";
+
+  /**
+   * z for a 95% confidence interval
+   */
+  private static final double Z95 = 1.96;
+
+  private final String[] players;
+  private final int size;
+  private final int[][] pairs;
+  private final int gamesPerPair;
+  private final int plies;
+  private final long seed;
+  private final List<BitBoard> book;
+
+  // Indexed [pair][0 = first player's wins, 1 = draws, 2 = losses]
+  private final long[][] results;
+
+  // Sum of the first player's disc difference per pair
+  private final long[] discs;
+
+  // Games per pair lost by making an illegal move
+  private final long[] forfeits;
+
+  private final AtomicInteger nextGame = new AtomicInteger();
+  private final AtomicInteger finished = new AtomicInteger();
+
+  /**
+   * Set up a tournament
+   * @param players Player specs, see the class comment
+   * @param gamesPerPair Games each pair plays, rounded up to an even number
+   * @param plies Random moves in each opening when there is no book
+   * @param seed Seed for the random openings
+   * @param book Start positions to use instead of random openings, or null
+   */
+  public Tournament(String[] players, int gamesPerPair, int plies, long seed, List<BitBoard> book) {
+    this(players, Constants.SIZE, gamesPerPair, plies, seed, book);
+  }
+
+  /**
+   * Set up a tournament on a board of any size
+   * @param players Player specs, see the class comment
+   * @param size Squares along each side; any size but Constants.SIZE
+   *        is played on a WideBitBoard
+   * @param gamesPerPair Games each pair plays, rounded up to an even number
+   * @param plies Random moves in each opening when there is no book
+   * @param seed Seed for the random openings
+   * @param book Start positions to use instead of random openings, or
+   *        null.  Only used on the 8x8 board.
+   */
+  public Tournament(String[] players, int size, int gamesPerPair, int plies, long seed,
+      List<BitBoard> book) {
+    this.players = players;
+    this.size = size;
+    this.gamesPerPair = (gamesPerPair + 1) / 2 * 2;
+    this.plies = plies;
+    this.seed = seed;
+    this.book = book;
+    List<int[]> pairList = new ArrayList<int[]>();
+    for (int i = 0; i < players.length; i++) {
+      for (int j = i + 1; j < players.length; j++) {
+        pairList.add(new int[] {i, j});
+      }
+    }
+    this.pairs = pairList.toArray(new int[pairList.size()][]);
+    this.results = new long[this.pairs.length][3];
+    this.discs = new long[this.pairs.length];
+    this.forfeits = new long[this.pairs.length];
+  }
+
+  /**
+   * Play every game
+   * @param threads Number of games to play at once
+   * @return Wall-clock time in nanoseconds
+   */
+  public long run(int threads) throws InterruptedException {
+    final int total = this.pairs.length * this.gamesPerPair;
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          playGames(total);
+        }
+      });
+    }
+    executor.shutdown();
+    while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+      System.out.println(this.finished.get() + " / " + total + " games");
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Worker loop: take game numbers until they run out.  Each worker
+   * creates its own players once and reuses them for every game.
+   * @param total Number of games in the tournament
+   */
+  private void playGames(int total) {
+    Player[][] cache = new Player[this.players.length][2];
+    int game;
+    while ((game = this.nextGame.getAndIncrement()) < total) {
+      int pair = game / this.gamesPerPair;
+      int round = game % this.gamesPerPair;
+      int first = this.pairs[pair][0];
+      int second = this.pairs[pair][1];
+      // Odd rounds replay the previous opening with the colors swapped
+      boolean firstIsBlack = round % 2 == 0;
+      Player black = player(cache, firstIsBlack ? first : second, Constants.BLACK);
+      Player white = player(cache, firstIsBlack ? second : first, Constants.WHITE);
+      int opening = pair * this.gamesPerPair / 2 + round / 2;
+      int diff;
+      boolean forfeit;
+      if (this.size == Constants.SIZE) {
+        HeadlessGame headless = new HeadlessGame(black, white, this.opening(opening));
+        diff = headless.play();
+        forfeit = headless.getForfeit() != Constants.EMPTY;
+      } else {
+        WideHeadlessGame wide = new WideHeadlessGame(black, white, this.wideOpening(opening));
+        diff = wide.play();
+        forfeit = wide.getForfeit() != Constants.EMPTY;
+      }
+      this.record(pair, firstIsBlack ? diff : -diff, forfeit);
+      this.finished.incrementAndGet();
+    }
+  }
+
+  /**
+   * Get a worker's player, creating it the first time
+   */
+  private Player player(Player[][] cache, int index, int color) {
+    int slot = color == Constants.BLACK ? 0 : 1;
+    if (cache[index][slot] == null) {
+      cache[index][slot] = createPlayer(this.players[index], color);
+    }
+    return cache[index][slot];
+  }
+
+  /**
+   * Add a finished game to the results
+   * @param pair Pair that played
+   * @param diff First player's discs minus the second player's
+   * @param forfeit True if the game ended on an illegal move
+   */
+  private synchronized void record(int pair, int diff, boolean forfeit) {
+    this.results[pair][diff > 0 ? 0 : diff == 0 ? 1 : 2]++;
+    this.discs[pair] += diff;
+    if (forfeit) {
+      this.forfeits[pair]++;
+    }
+  }
+
+  /**
+   * Get the start position for an opening
+   * @param opening Opening number
+   * @return Start position
+   */
+  BitBoard opening(int opening) {
+    if (this.book != null && !this.book.isEmpty()) {
+      return this.book.get(opening % this.book.size());
+    }
+    Random random = new Random(this.seed + opening);
+    BitBoard board = new BitBoard();
+    for (int ply = 0; ply < this.plies; ply++) {
+      long moves = board.legalMoves(board.getSideToMove());
+      if (moves == 0) {
+        if (board.legalMoves(-board.getSideToMove()) == 0) {
+          break;
+        }
+        board.pass();
+        continue;
+      }
+      for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+        moves &= moves - 1;
+      }
+      board.makeMove(board.getSideToMove(), Long.numberOfTrailingZeros(moves));
+    }
+    return board;
+  }
+
+  /**
+   * Get the start position for an opening on a board of another size
+   * @param opening Opening number
+   * @return Start position
+   */
+  WideBitBoard wideOpening(int opening) {
+    Random random = new Random(this.seed + opening);
+    WideBitBoard board = new WideBitBoard(this.size);
+    long[] moves = board.newMask();
+    long[] flipped = board.newMask();
+    for (int ply = 0; ply < this.plies; ply++) {
+      int count = board.legalMoves(board.getSideToMove(), moves);
+      if (count == 0) {
+        if (board.legalMoves(-board.getSideToMove(), moves) == 0) {
+          break;
+        }
+        board.pass();
+        continue;
+      }
+      int move = WideBitBoard.nextSquare(moves, 0);
+      for (int skip = random.nextInt(count); skip > 0; skip--) {
+        move = WideBitBoard.nextSquare(moves, move + 1);
+      }
+      board.makeMove(board.getSideToMove(), move, flipped);
+    }
+    return board;
+  }
+
+  /**
+   * Create a player from its spec
+   * @param spec Class name, optionally followed by ':' and a number
+   * @param color One of Constants.WHITE or Constants.BLACK
+   * @return New player
+   * @throws IllegalArgumentException if the player can't be created
+   */
+  static Player createPlayer(String spec, int color) {
+    String name = spec;
+    String arg = null;
+    int colon = spec.indexOf(':');
+    if (colon >= 0) {
+      name = spec.substring(0, colon);
+      arg = spec.substring(colon + 1);
+    }
+    if (name.indexOf('.') < 0) {
+      name = PACKAGE + name;
+    }
+    try {
+      Class<? extends Player> type = Class.forName(name).asSubclass(Player.class);
+      if (arg == null) {
+        return type.getConstructor(int.class).newInstance(color);
+      }
+      try {
+        Constructor<? extends Player> constructor = type.getConstructor(int.class, long.class);
+        return constructor.newInstance(color, Long.parseLong(arg));
+      } catch (NoSuchMethodException e) {
+        return type.getConstructor(int.class, int.class).newInstance(color, Integer.parseInt(arg));
+      }
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IllegalArgumentException("Can't create player " + spec + ": " + e, e);
+    }
+  }
+
+  /**
+   * Elo difference for an expected score
+   * @param score Score between 0 and 1
+   * @return Elo difference, infinite for 0 or 1
+   */
+  static double elo(double score) {
+    if (score <= 0) {
+      return Double.NEGATIVE_INFINITY;
+    } else if (score >= 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return -400 * Math.log10(1 / score - 1);
+  }
+
+  /**
+   * Print the results of one pair or one player's totals
+   * @param out Where to print
+   * @param name Row label
+   * @param wins Games won
+   * @param draws Games drawn
+   * @param losses Games lost
+   * @param discs Sum of disc differences
+   * @param csv CSV writer, or null
+   */
+  private static void report(PrintWriter out, String name, long wins, long draws, long losses,
+      long discs, PrintWriter csv) {
+    long games = wins + draws + losses;
+    double score = games > 0 ? (wins + 0.5 * draws) / games : 0.5;
+    // Standard error of the mean score per game
+    double variance = games > 0
+      ? (wins * sq(1 - score) + draws * sq(0.5 - score) + losses * sq(score)) / games : 0;
+    double error = games > 0 ? Math.sqrt(variance / games) : 0;
+    double elo = elo(score);
+    double low = elo(score - Z95 * error);
+    double high = elo(score + Z95 * error);
+    double avgDiscs = games > 0 ? (double) discs / games : 0;
+    out.println(String.format("%-40s %6d %6d %6d %+7.2f %6.1f%% %+8.1f [%+.1f, %+.1f]",
+      name, wins, draws, losses, avgDiscs, 100 * score, elo, low, high));
+    if (csv != null) {
+      csv.println(String.format("%s,%d,%d,%d,%.3f,%.4f,%.1f,%.1f,%.1f",
+        name, wins, draws, losses, avgDiscs, score, elo, low, high));
+    }
+  }
+
+  private static double sq(double x) {
+    return x * x;
+  }
+
+  /**
+   * Print the results
+   * @param nanos Time the tournament took
+   * @param csv CSV writer, or null
+   */
+  public void report(long nanos, PrintWriter csv) {
+    PrintWriter out = new PrintWriter(System.out, true);
+    if (this.size != Constants.SIZE) {
+      out.println(this.size + "x" + this.size + " board");
+    }
+    if (csv != null) {
+      csv.println("name,wins,draws,losses,avg_discs,score,elo,elo_low,elo_high");
+    }
+    String header = String.format("%-40s %6s %6s %6s %7s %7s %8s %s",
+      "", "W", "D", "L", "discs", "score", "Elo", "95% CI");
+    out.println(header);
+    long[][] totals = new long[this.players.length][4];
+    for (int p = 0; p < this.pairs.length; p++) {
+      int first = this.pairs[p][0];
+      int second = this.pairs[p][1];
+      long[] r = this.results[p];
+      report(out, this.players[first] + " vs " + this.players[second],
+        r[0], r[1], r[2], this.discs[p], csv);
+      if (this.forfeits[p] > 0) {
+        out.println("  " + this.forfeits[p] + " games forfeited by an illegal move");
+      }
+      totals[first][0] += r[0];
+      totals[first][1] += r[1];
+      totals[first][2] += r[2];
+      totals[first][3] += this.discs[p];
+      totals[second][0] += r[2];
+      totals[second][1] += r[1];
+      totals[second][2] += r[0];
+      totals[second][3] -= this.discs[p];
+    }
+    out.println();
+    for (int i = 0; i < this.players.length; i++) {
+      report(out, this.players[i] + " (all games)",
+        totals[i][0], totals[i][1], totals[i][2], totals[i][3], csv);
+    }
+    int games = this.finished.get();
+    out.println(String.format("%d games in %.1f s, %.1f games/sec",
+      games, nanos / 1e9, games / (nanos / 1e9)));
+  }
+
+  /**
+   * Read start positions, one per line.  Blank lines and lines starting
+   * with '#' are skipped.
+   * @param fileName File to read
+   * @return Positions
+   */
+  static List<BitBoard> readBook(String fileName) throws IOException {
+    List<BitBoard> book = new ArrayList<BitBoard>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          book.add(BitBoard.parse(line));
+        }
+      }
+    }
+    return book;
+  }
+
+  /**
+   * Program entry
+   * @param args Options and player specs, see the class comment
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int games = 1000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int plies = 8;
+    long seed = 1;
+    int size = Constants.SIZE;
+    String openings = null;
+    String outFile = null;
+    List<String> players = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "-games":    games = Integer.parseInt(args[++i]); break;
+        case "-threads":  threads = Integer.parseInt(args[++i]); break;
+        case "-plies":    plies = Integer.parseInt(args[++i]); break;
+        case "-seed":     seed = Long.parseLong(args[++i]); break;
+        case "-size":     size = Integer.parseInt(args[++i]); break;
+        case "-openings": openings = args[++i]; break;
+        case "-out":      outFile = args[++i]; break;
+        default:          players.add(args[i]);
+      }
+    }
+    boolean wide = size != Constants.SIZE;
+    if (players.size() < 2 || (wide && (size < WideBitBoard.MIN_SIZE || size > WideBitBoard.MAX_SIZE
+        || size % 2 != 0 || openings != null))) {
+      System.out.println("Usage: Tournament [-games N] [-threads N] [-plies N] [-openings file]"
+        + " [-seed N] [-size N] [-out file.csv] Player Player [Player ...]");
+      System.out.println("  -size takes an even size from " + WideBitBoard.MIN_SIZE + " to "
+        + WideBitBoard.MAX_SIZE + "; -openings only works on " + Constants.SIZE + "x" + Constants.SIZE);
+      System.exit(2);
+    }
+    // Fail now, not inside a worker, if a player can't be created or
+    // doesn't play this size
+    for (String spec : players) {
+      Player player = createPlayer(spec, Constants.BLACK);
+      if (wide && player.getNextMove(new WideBitBoard(size)) == null) {
+        System.out.println(spec + " doesn't play " + size + "x" + size + " boards");
+        System.exit(2);
+      }
+    }
+
+    Tournament tournament = new Tournament(players.toArray(new String[players.size()]), size,
+      games, plies, seed, openings != null ? readBook(openings) : null);
+    long nanos = tournament.run(threads);
+    if (outFile != null) {
+      try (PrintWriter csv = new PrintWriter(new FileWriter(outFile))) {
+        tournament.report(nanos, csv);
+      }
+    } else {
+      tournament.report(nanos, null);
+    }
+  }
+
+}
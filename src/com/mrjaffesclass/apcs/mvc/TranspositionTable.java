@@ -0,0 +1,321 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * Fixed-size hash table of search results keyed by Zobrist hash.
+ * Entries live in a single long array, two longs per entry (the full
+ * key and the packed data), grouped into buckets of BUCKET_SIZE
+ * entries.  A new result replaces, in order of preference, the entry
+ * for the same position, an entry left over from an earlier search,
+ * or the shallowest entry in the bucket.
+ *
+ * The table can be shared by several searching threads without locks.
+ * The key slot holds (key ^ data), so an entry whose two longs were
+ * written by different threads fails the key check on probe and is
+ * treated as a miss.  The counters are striped by thread so that
+ * threads don't fight over one cache line; they are plain longs and
+ * may undercount slightly when two threads land on the same stripe.
+ *
+ * Packed data layout, low bit first:
+ *   bits  0-6   best move (0-63, NO_MOVE if none)
+ *   bits  7-13  depth
+ *   bits 14-15  bound (EXACT, LOWER or UPPER)
+ *   bits 16-23  age of the search that stored it
+ *   bits 32-63  score
+ *
+ * @version 1.0
+ */
+public class TranspositionTable
+{
+  /**
+   * Score is exact
+   */
+  public static final int EXACT = 1;
+
+  /**
+   * Score is a lower bound (the search failed high)
+   */
+  public static final int LOWER = 2;
+
+  /**
+   * Score is an upper bound (the search failed low)
+   */
+  public static final int UPPER = 3;
+
+  /**
+   * Stored in place of a best move when there wasn't one
+   */
+  public static final int NO_MOVE = 127;
+
+  /**
+   * Entries examined per probe or store
+   */
+  private static final int BUCKET_SIZE = 4;
+
+  /**
+   * Bytes used by one entry
+   */
+  private static final int ENTRY_BYTES = 16;
+
+  /**
+   * Number of counter stripes, a power of two
+   */
+  private static final int STRIPES = 64;
+
+  /**
+   * Longs per stripe, enough to keep stripes on separate cache lines
+   */
+  private static final int STRIPE_WIDTH = 16;
+
+  private static final int PROBES = 0;
+  private static final int HITS = 1;
+  private static final int STORES = 2;
+  private static final int COLLISIONS = 3;
+
+  private final long[] table;
+  private final int bucketMask;
+  private int age;
+
+  /**
+   * Counters, STRIPE_WIDTH longs per stripe
+   */
+  private final long[] counters = new long[STRIPES * STRIPE_WIDTH];
+
+  /**
+   * Create a table that uses at most the given amount of memory.  The
+   * number of buckets is rounded down to a power of two.
+   * @param megabytes Table size in MB
+   */
+  public TranspositionTable(int megabytes) {
+    long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+    long buckets = Long.highestOneBit(bytes / (ENTRY_BYTES * BUCKET_SIZE));
+    // A Java array holds at most 2^31 - 1 elements
+    buckets = Math.min(buckets, 1L << 27);
+    this.table = new long[(int) buckets * BUCKET_SIZE * 2];
+    this.bucketMask = (int) buckets - 1;
+  }
+
+  /**
+   * Start a new search.  Entries from earlier searches become the
+   * first ones to be replaced.
+   */
+  public void newSearch() {
+    this.age = (this.age + 1) & 0xFF;
+  }
+
+  /**
+   * Forget every entry and reset the counters
+   */
+  public void clear() {
+    java.util.Arrays.fill(this.table, 0);
+    java.util.Arrays.fill(this.counters, 0);
+    this.age = 0;
+  }
+
+  /**
+   * Look up a position
+   * @param hash Zobrist hash of the position
+   * @return Packed data for the position, or 0 if it isn't stored
+   */
+  public long probe(long hash) {
+    int stripe = stripe();
+    this.counters[stripe + PROBES]++;
+    int base = this.bucket(hash);
+    for (int i = 0; i < BUCKET_SIZE; i++) {
+      int slot = base + i * 2;
+      long data = this.table[slot + 1];
+      if (data != 0 && (this.table[slot] ^ data) == hash) {
+        this.counters[stripe + HITS]++;
+        return data;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Store a search result
+   * @param hash Zobrist hash of the position
+   * @param move Best move, or -1 if there wasn't one
+   * @param depth Depth the position was searched to
+   * @param bound One of EXACT, LOWER or UPPER
+   * @param score Score from the point of view of the side to move
+   */
+  public void store(long hash, int move, int depth, int bound, int score) {
+    int stripe = stripe();
+    this.counters[stripe + STORES]++;
+    int base = this.bucket(hash);
+    int victim = -1;
+    int victimValue = Integer.MAX_VALUE;
+    for (int i = 0; i < BUCKET_SIZE; i++) {
+      int slot = base + i * 2;
+      long data = this.table[slot + 1];
+      if (data == 0) {
+        victim = slot;
+        break;
+      }
+      if ((this.table[slot] ^ data) == hash) {
+        // Keep the best move of a deeper result if this one has none
+        if (move < 0) {
+          move = getMove(data);
+        }
+        victim = slot;
+        break;
+      }
+      // Prefer replacing stale entries, then shallow ones
+      int value = getDepth(data) + (getAge(data) == this.age ? 256 : 0);
+      if (value < victimValue) {
+        victimValue = value;
+        victim = slot;
+      }
+    }
+    long old = this.table[victim + 1];
+    if (old != 0 && (this.table[victim] ^ old) != hash) {
+      this.counters[stripe + COLLISIONS]++;
+    }
+    long data = pack(move, depth, bound, score, this.age);
+    this.table[victim] = hash ^ data;
+    this.table[victim + 1] = data;
+  }
+
+  /**
+   * Find the counter stripe of the current thread
+   * @return Index into counters of the stripe's first counter
+   */
+  private static int stripe() {
+    return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_WIDTH;
+  }
+
+  /**
+   * Add up one counter across all stripes
+   * @param counter One of PROBES, HITS, STORES or COLLISIONS
+   * @return Total count
+   */
+  private long sum(int counter) {
+    long total = 0;
+    for (int i = counter; i < this.counters.length; i += STRIPE_WIDTH) {
+      total += this.counters[i];
+    }
+    return total;
+  }
+
+  /**
+   * Find the first slot of a position's bucket
+   * @param hash Zobrist hash of the position
+   * @return Index into table of the bucket's first key
+   */
+  private int bucket(long hash) {
+    return ((int) hash & this.bucketMask) * BUCKET_SIZE * 2;
+  }
+
+  /**
+   * Pack an entry into one long.  The bound is never 0, so a packed
+   * entry never is either.
+   */
+  private static long pack(int move, int depth, int bound, int score, int age) {
+    return (move < 0 ? NO_MOVE : move)
+      | ((long) depth << 7)
+      | ((long) bound << 14)
+      | ((long) age << 16)
+      | ((long) score << 32);
+  }
+
+  /**
+   * Get the best move from packed data
+   * @param data Packed data from probe
+   * @return Bit index of the move, or -1 if there wasn't one
+   */
+  public static int getMove(long data) {
+    int move = (int) (data & 0x7F);
+    return move == NO_MOVE ? -1 : move;
+  }
+
+  /**
+   * Get the search depth from packed data
+   * @param data Packed data from probe
+   * @return Depth in plies
+   */
+  public static int getDepth(long data) {
+    return (int) (data >>> 7) & 0x7F;
+  }
+
+  /**
+   * Get the bound type from packed data
+   * @param data Packed data from probe
+   * @return One of EXACT, LOWER or UPPER
+   */
+  public static int getBound(long data) {
+    return (int) (data >>> 14) & 0x3;
+  }
+
+  /**
+   * Get the score from packed data
+   * @param data Packed data from probe
+   * @return Score from the point of view of the side to move
+   */
+  public static int getScore(long data) {
+    return (int) (data >> 32);
+  }
+
+  /**
+   * Get the age from packed data
+   */
+  private static int getAge(long data) {
+    return (int) (data >>> 16) & 0xFF;
+  }
+
+  /**
+   * Get the number of entries the table holds
+   * @return Entry count
+   */
+  public int getCapacity() {
+    return this.table.length / 2;
+  }
+
+  /**
+   * Get the number of lookups
+   * @return Probe count
+   */
+  public long getProbes() {
+    return sum(PROBES);
+  }
+
+  /**
+   * Get the number of lookups that found their position
+   * @return Hit count
+   */
+  public long getHits() {
+    return sum(HITS);
+  }
+
+  /**
+   * Get the fraction of lookups that found their position
+   * @return Hit rate between 0 and 1
+   */
+  public double getHitRate() {
+    long probes = sum(PROBES);
+    return probes > 0 ? (double) sum(HITS) / probes : 0;
+  }
+
+  /**
+   * Get the number of results stored
+   * @return Store count
+   */
+  public long getStores() {
+    return sum(STORES);
+  }
+
+  /**
+   * Get the number of stores that overwrote a different position
+   * @return Collision count
+   */
+  public long getCollisions() {
+    return sum(COLLISIONS);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d entries, %d probes, %.1f%% hits, %d stores, %d collisions",
+      this.getCapacity(), this.getProbes(), 100 * this.getHitRate(), this.getStores(),
+      this.getCollisions());
+  }
+
+}
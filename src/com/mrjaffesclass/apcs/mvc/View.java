@@ -1,13 +1,35 @@
 package com.mrjaffesclass.apcs.mvc;
-import com.mrjaffesclass.apcs.messenger.*;
 import java.awt.*;
 import java.awt.geom.*;
 import javax.swing.*;  
+import jdk.jfr.EventType;
 
 
-public class View extends JComponent implements MessageHandler {
+public class View extends JComponent {
 
-    private final Messenger mvcMessaging;
+    /**
+     * System property choosing how the board is drawn: "cached" (the
+     * default) draws from pre-rendered images and repaints only the
+     * squares a move changed, "direct" draws every shape on every paint
+     */
+    public static final String RENDER_PROPERTY = "othello.render";
+
+    /**
+     * Height of the strip under the board with the scores and the turn
+     */
+    private static final int STATUS_HEIGHT = 52;
+
+    private static final Color TEXT_COLOR = new Color(0, 0, 0);
+
+    private static final Font PROGRESS_FONT = new Font("SansSerif", Font.PLAIN, 12);
+
+    /**
+     * Checked before each paint, so no PaintFlightEvent is made while
+     * the event is off
+     */
+    private static final EventType PAINT_TYPE = EventType.getEventType(PaintFlightEvent.class);
+
+    private final EventBus events;
 
     private int width;
 
@@ -15,11 +37,13 @@ public class View extends JComponent implements MessageHandler {
 
     private Board board;
     
-    private final int squareWidth = 80;
+    // Squares along each side, and their width in pixels
+    private final int size = Constants.SIZE;
+    private final int squareWidth;
     
     private Graphics2D g2d;
     
-    private Square[][] squares = new Square[Constants.SIZE][Constants.SIZE];        
+    private Square[][] squares = new Square[size][size];        
     
     private int blackScore = 2;
     
@@ -31,51 +55,174 @@ public class View extends JComponent implements MessageHandler {
     
     private boolean gameOver = false;
 
+    // Position shown.  The squares array is kept in step with it for
+    // drawing directly
+    private BoardSnapshot shown;
+
+    // Draws the board from cached images, null when drawing directly
+    private final BoardRenderer renderer;
+
+    // Where the scores and turn are drawn, and the turn marker's shapes
+    private final Rectangle statusBounds;
+    private final Shape turnOuter;
+    private final Shape turnInner;
+
+    // What a computer player is thinking, under the scores, or null
+    private String progressText;
+    private final Rectangle progressBounds;
+
+    // Score line, made when the scores change rather than on each paint
+    private String scoreText = String.format("Black: %d, White: %d", whiteScore, blackScore);
+
+    private final FrameTimer frames = new FrameTimer("View");
+
+    /**
+     * Creates a new view, drawing it as the othello.render property
+     * says
+     * @param events Event bus shared with the Model and Controller
+     */
+    public View(int x, int y, EventBus events) {
+      this(x, y, events, !"direct".equalsIgnoreCase(System.getProperty(RENDER_PROPERTY)));
+    }
+
     /**
      * Creates a new view
-     * @param messages mvcMessaging object
+     * @param events Event bus shared with the Model and Controller
+     * @param cached True to draw from cached images and repaint only
+     *        changed squares, false to draw everything on every paint
      */
-    public View(int x, int y, Messenger messages) {
-      mvcMessaging = messages;   // Save the calling controller instance
+    public View(int x, int y, EventBus events, boolean cached) {
+      this.events = events;   // Save the calling controller's bus
 
       width = x - 15;
       height = y - 14;
+      squareWidth = width / size;
       
       initBoard(squares);
       
       board = new Board(squares);
+      shown = new BoardSnapshot(new BitBoard(squares), BoardSnapshot.NO_MOVE, 0);
+
+      renderer = cached ? new BoardRenderer(width, height, size) : null;
+      statusBounds = new Rectangle(0, height, width, STATUS_HEIGHT);
+      turnOuter = new Ellipse2D.Double(width/2 + 99, height, 51, 51);
+      turnInner = new Ellipse2D.Double(width/2 + 100, height + 1, 49, 49);
+      progressBounds = new Rectangle(0, height + 38, width/2 + 95, 18);
+    }
+
+    /**
+     * Get the width of a square as it is drawn, so clicks in the view's
+     * coordinates can be mapped to squares
+     * @return Pixels
+     */
+    public int getSquareSize() {
+      return renderer != null ? renderer.getSquareSize() : Math.max(1, squareWidth);
     }
 
     /**
      * Initialize the model here and subscribe
-     * to any required messages
+     * to any required events
      */
     public void init() {
-      // Subscribe to messages here
-      mvcMessaging.subscribe("BoardUpdate", this);
-      mvcMessaging.subscribe("NoMoves", this);
-      mvcMessaging.subscribe("GameOver", this);
+      // Subscribe to events here
+      events.subscribe(BoardUpdateEvent.class, new EventHandler<BoardUpdateEvent>() {
+        @Override
+        public void handle(BoardUpdateEvent event) {
+          showProgress(null);
+          showBoard(event.getBoard(), -event.getColor());
+        }
+      });
+      events.subscribe(PassEvent.class, new EventHandler<PassEvent>() {
+        @Override
+        public void handle(PassEvent event) {
+          showBoard(event.getBoard(), -event.getColor());
+        }
+      });
+      events.subscribe(SearchProgressEvent.class, new EventHandler<SearchProgressEvent>() {
+        @Override
+        public void handle(SearchProgressEvent event) {
+          showProgress("Thinking: " + event);
+        }
+      });
+      events.subscribe(GameOverEvent.class, new EventHandler<GameOverEvent>() {
+        @Override
+        public void handle(GameOverEvent event) {
+          // A move undone since the game ended has already replaced the
+          // final board
+          if (event.getBoard().equals(shown)) {
+            gameOver = true;
+            repaint();
+          }
+        }
+      });
     }
     
     private Square[][] initBoard(Square[][] squares)
     {
-      for (int row = 0; row < Constants.SIZE; row++) {
-        for (int col = 0; col < Constants.SIZE; col++) {
+      for (int row = 0; row < size; row++) {
+        for (int col = 0; col < size; col++) {
           squares[row][col] = new Square(Constants.EMPTY);
         }
       }
-      squares[3][3].setStatus(Constants.WHITE);
-      squares[4][4].setStatus(Constants.WHITE);
-      squares[3][4].setStatus(Constants.BLACK);
-      squares[4][3].setStatus(Constants.BLACK);
+      int centre = size / 2;
+      squares[centre - 1][centre - 1].setStatus(Constants.WHITE);
+      squares[centre][centre].setStatus(Constants.WHITE);
+      squares[centre - 1][centre].setStatus(Constants.BLACK);
+      squares[centre][centre - 1].setStatus(Constants.BLACK);
       return squares;
     }
 
     protected void paintComponent(Graphics g){
+        long start = System.nanoTime();
+        PaintFlightEvent painted = null;
+        if (PAINT_TYPE.isEnabled()) {
+            painted = new PaintFlightEvent();
+            painted.begin();
+        }
+        if (renderer != null) {
+            paintCached((Graphics2D) g);
+        } else {
+            paintDirect(g);
+        }
+        if (progressText != null) {
+            g.setFont(PROGRESS_FONT);
+            g.setColor(TEXT_COLOR);
+            g.drawString(progressText, progressBounds.x + 5, progressBounds.y + 14);
+        }
+        long end = System.nanoTime();
+        frames.record(start, end);
+        if (Metrics.ENABLED) {
+            Metrics.FRAME.record(end - start);
+        }
+        if (painted != null) {
+            painted.end();
+            if (painted.shouldCommit()) {
+                commitPaint(painted, g);
+            }
+        }
+    }
+
+    /**
+     * Fill in a paint event and record it
+     */
+    private void commitPaint(PaintFlightEvent painted, Graphics g){
+        Rectangle clip = g.getClipBounds();
+        painted.cached = renderer != null;
+        painted.clipWidth = clip == null ? getWidth() : clip.width;
+        painted.clipHeight = clip == null ? getHeight() : clip.height;
+        painted.commit();
+    }
+
+    /**
+     * Draw everything from scratch
+     */
+    private void paintDirect(Graphics g){
             g2d = (Graphics2D) g;
             drawGrid(g2d);
   //          updateBoard();
-            System.out.println("PAINT_COMPOENT");
+            if (Log.TRACE_COMPILED && Log.isEnabled(Log.TRACE)) {
+                Log.log(Log.TRACE, "paintComponent, clip %s", g.getClipBounds());
+            }
             updateBoard();
             g2d.setFont(font);
             g2d.setColor(new Color(0, 0, 0));
@@ -88,35 +235,90 @@ public class View extends JComponent implements MessageHandler {
             }
     }
 
-    @Override
-    public void messageHandler(String messageName, Object messagePayload) {
-        if (messagePayload != null) {
-          System.out.println("MSG: received by view: "+messageName+" | "+messagePayload.toString());
-        } else {
-          System.out.println("MSG: received by view: "+messageName+" | No data sent");
+    /**
+     * Draw from the cached images.  Only the parts inside the clip are
+     * drawn, and the view allocates nothing while Flight Recorder isn't
+     * recording Paint events.
+     */
+    private void paintCached(Graphics2D g){
+        g2d = g;
+        renderer.paint(g, shown);
+        if (g.hitClip(statusBounds.x, statusBounds.y, statusBounds.width, statusBounds.height)) {
+            g.setFont(font);
+            g.setColor(TEXT_COLOR);
+            g.drawString(scoreText, width/2 - 150, height + 30);
+            g.draw(turnOuter);
+            g.setColor(this.whoseTurn ? Color.BLACK : Color.WHITE);
+            g.fill(turnInner);
         }
-        
-        if (!this.gameOver){
-            if (messageName.equals("BoardUpdate")){
-                System.out.println("BOARD UPDATE");
-                squares = (Square[][])messagePayload;
-                displayTurn();
-                mvcMessaging.notify("repaint");
-                this.whoseTurn = !this.whoseTurn;
+        if (this.gameOver){
+            g.setFont(font);
+            g.setColor(TEXT_COLOR);
+            g.drawString("Game Over!", width/2 - 50, height/2);
+        }
+    }
 
-           } else if (messageName.equals("NoMoves")){
-                System.out.println("NoMoves");
-                squares = (Square[][])messagePayload;
-                displayTurn();
-                mvcMessaging.notify("repaint");
-                this.whoseTurn = !this.whoseTurn;
+    /**
+     * Show a new board after a move or a pass.  Snapshots don't change,
+     * so the view keeps the one it's given, and the turn is taken from
+     * the event rather than toggled so merged updates can't upset it.
+     * When drawing from cached images only the squares that changed and
+     * the score strip are repainted.  A board arriving after the game
+     * ended means a move was undone, so the game is on again.
+     * @param board Position to show
+     * @param nextToMove Color whose turn it is now
+     */
+    private void showBoard(BoardSnapshot board, int nextToMove) {
+        if (this.gameOver){
+            // Undo after the end of the game
+            this.gameOver = false;
+            repaint();
+        }
+        this.whoseTurn = nextToMove == Constants.WHITE;
+        BoardSnapshot previous = this.shown;
+        this.shown = board;
+        if (renderer == null) {
+            board.toSquares(this.squares);
+            repaint();
+            return;
+        }
+        long changed = board.changedSquares(previous);
+        while (changed != 0) {
+            int index = Long.numberOfTrailingZeros(changed);
+            repaint(renderer.discBounds(index / size, index % size));
+            changed &= changed - 1;
+        }
+        int black = board.countSquares(Constants.BLACK);
+        int white = board.countSquares(Constants.WHITE);
+        if (black != this.blackScore || white != this.whiteScore) {
+            this.blackScore = black;
+            this.whiteScore = white;
+            scoreText = String.format("Black: %d, White: %d", whiteScore, blackScore);
+        }
+        // Swing merges these regions into their bounding box before
+        // painting, which is still far less than the whole board
+        repaint(statusBounds);
+    }
 
-           } else if (messageName.equals("GameOver")){
-               this.gameOver = true;
-           }
+    /**
+     * Show what a computer player is thinking
+     * @param text Line to show, or null to clear it
+     */
+    private void showProgress(String text) {
+        if (text != null || progressText != null) {
+            progressText = text;
+            repaint(progressBounds);
         }
     }
 
+    /**
+     * Get the paint timings
+     * @return Frame time and rate of this view's paints
+     */
+    public FrameTimer getFrameTimer() {
+        return frames;
+    }
+
     private void drawGrid(Graphics g){
         Graphics2D g2 = (Graphics2D) g;
         
@@ -134,17 +336,19 @@ public class View extends JComponent implements MessageHandler {
             g2.drawLine(0, y, height, y);
         }
         
-        putPiece(3, 3, true);
-        putPiece(3, 4, false);
-        putPiece(4, 3, false);
-        putPiece(4, 4, true);
+        int centre = size / 2;
+        putPiece(centre - 1, centre - 1, true);
+        putPiece(centre - 1, centre, false);
+        putPiece(centre, centre - 1, false);
+        putPiece(centre, centre, true);
     }
     
     private void putPiece(double x, double y, boolean whoseTurn){
-        double trueX = x * 80.0 + 15;
-        double trueY = y * 80.0 + 15;
+        int disc = squareWidth * 5 / 8;
+        double trueX = x * squareWidth + (squareWidth - disc) / 2;
+        double trueY = y * squareWidth + (squareWidth - disc) / 2;
         
-        Ellipse2D.Double piece = new Ellipse2D.Double(trueX, trueY, 50, 50);
+        Ellipse2D.Double piece = new Ellipse2D.Double(trueX, trueY, disc, disc);
         
         if (whoseTurn) {
             g2d.setColor(Color.WHITE);
@@ -157,19 +361,19 @@ public class View extends JComponent implements MessageHandler {
     }
     
     private void updateBoard(){
-        System.out.println("Called Update Board");
-        for (int row = 0; row < Constants.SIZE; row++){
-            for (int col = 0; col < Constants.SIZE; col++){
-                System.out.print(squares[row][col]);
+        if (Log.TRACE_COMPILED && Log.isEnabled(Log.TRACE)) {
+            // A copy, so the message shows this board whenever it's written
+            Log.log(Log.TRACE, "Drawing board%n%s", new BitBoard(squares));
+        }
+        for (int row = 0; row < size; row++){
+            for (int col = 0; col < size; col++){
                 if (squares[row][col].getStatus() == -1){
                     putPiece(row, col, false);
                 }else if (squares[row][col].getStatus() == 1){
                     putPiece(row, col, true);
                 }
             }
-            System.out.println();
         }
-        System.out.println();
     }
     
     private void drawScores(){
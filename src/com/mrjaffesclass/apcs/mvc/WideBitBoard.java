@@ -0,0 +1,438 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * A board of any even size from MIN_SIZE to MAX_SIZE squares a side,
+ * kept as two multi-word bitsets, one per color.  It plays by the same
+ * rules as BitBoard and generates moves the same way, with shifts over
+ * the whole board instead of walking squares, so move generation stays
+ * efficient on 10x10, 16x16 and larger boards where one long no longer
+ * holds a color.
+ *
+ * Each row is stored with one extra guard square after its last
+ * column, so a row is size + 1 bits wide and square (row, col) is bit
+ * row * (size + 1) + col.  The guards are always empty, so a run of
+ * discs that a shift carries off the end of a row lands on a guard
+ * and stops; no column masks are needed.
+ *
+ * Moves are made and taken back in place.  The caller supplies the
+ * arrays results are written to, from newMask(), so nothing is
+ * allocated while searching.  A board is not safe to share between
+ * threads; give each thread its own copy().
+ *
+ * @version 1.0
+ */
+public class WideBitBoard
+{
+  /**
+   * Smallest and largest sizes supported
+   */
+  public static final int MIN_SIZE = 4;
+  public static final int MAX_SIZE = 32;
+
+  private final int size;
+
+  /**
+   * Bits per row, including the guard square
+   */
+  private final int stride;
+
+  /**
+   * Longs per mask
+   */
+  private final int words;
+
+  /**
+   * The real squares: every bit of the board except the guards
+   */
+  private final long[] squares;
+
+  /**
+   * Shift distances for the eight directions
+   */
+  private final int[] directions;
+
+  private final long[] black;
+  private final long[] white;
+  private int sideToMove = Constants.BLACK;
+
+  // Working masks for legalMoves
+  private final long[] run;
+  private final long[] empty;
+
+  /**
+   * Constructor for the starting position of a size: the four middle
+   * squares are set up as on the 8x8 board, with black to move
+   * W B
+   * B W
+   * @param size Squares along each side, even, MIN_SIZE to MAX_SIZE
+   * @throws IllegalArgumentException if the size isn't supported
+   */
+  public WideBitBoard(int size) {
+    if (size < MIN_SIZE || size > MAX_SIZE || size % 2 != 0) {
+      throw new IllegalArgumentException("Board size must be even, " + MIN_SIZE + " to " + MAX_SIZE
+        + ": " + size);
+    }
+    this.size = size;
+    this.stride = size + 1;
+    this.words = (size * this.stride + 63) / 64;
+    this.squares = new long[this.words];
+    for (int row = 0; row < size; row++) {
+      for (int col = 0; col < size; col++) {
+        set(this.squares, this.index(row, col));
+      }
+    }
+    int s = this.stride;
+    this.directions = new int[] { 1, -1, s, -s, s + 1, -s - 1, s - 1, -s + 1 };
+    this.black = new long[this.words];
+    this.white = new long[this.words];
+    this.run = new long[this.words];
+    this.empty = new long[this.words];
+    int centre = size / 2;
+    set(this.white, this.index(centre - 1, centre - 1));
+    set(this.white, this.index(centre, centre));
+    set(this.black, this.index(centre - 1, centre));
+    set(this.black, this.index(centre, centre - 1));
+  }
+
+  /**
+   * Make an independent copy of this board
+   * @return New board with the same discs and side to move
+   */
+  public WideBitBoard copy() {
+    WideBitBoard copy = new WideBitBoard(this.size);
+    System.arraycopy(this.black, 0, copy.black, 0, this.words);
+    System.arraycopy(this.white, 0, copy.white, 0, this.words);
+    copy.sideToMove = this.sideToMove;
+    return copy;
+  }
+
+  /**
+   * Get the size of the board
+   * @return Squares along each side
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Make a mask the right length for this board, to pass to
+   * legalMoves and makeMove
+   * @return New empty mask
+   */
+  public long[] newMask() {
+    return new long[this.words];
+  }
+
+  /**
+   * Get the bit index of a square
+   * @param row Row of the square
+   * @param col Column of the square
+   * @return row * (size + 1) + col
+   */
+  public int index(int row, int col) {
+    return row * this.stride + col;
+  }
+
+  /**
+   * Is a square on the board?
+   * @param row Row of the square
+   * @param col Column of the square
+   * @return True if both are from 0 to size - 1
+   */
+  public boolean onBoard(int row, int col) {
+    return 0 <= row && row < this.size && 0 <= col && col < this.size;
+  }
+
+  /**
+   * Get the row of a bit index
+   * @param index Bit index of a square
+   * @return Row
+   */
+  public int getRow(int index) {
+    return index / this.stride;
+  }
+
+  /**
+   * Get the column of a bit index
+   * @param index Bit index of a square
+   * @return Column
+   */
+  public int getCol(int index) {
+    return index % this.stride;
+  }
+
+  /**
+   * Get the color whose turn it is
+   * @return One of Constants.WHITE or Constants.BLACK
+   */
+  public int getSideToMove() {
+    return this.sideToMove;
+  }
+
+  /**
+   * Set the color whose turn it is
+   * @param sideToMove One of Constants.WHITE or Constants.BLACK
+   */
+  public void setSideToMove(int sideToMove) {
+    this.sideToMove = sideToMove;
+  }
+
+  /**
+   * Hand the turn to the other side without moving
+   */
+  public void pass() {
+    this.sideToMove = -this.sideToMove;
+  }
+
+  /**
+   * Get the status of a square
+   * @param row Row to retrieve
+   * @param col Column to retrieve
+   * @return One of Constants.WHITE, Constants.BLACK or Constants.EMPTY
+   */
+  public int getStatus(int row, int col) {
+    int index = this.index(row, col);
+    if (get(this.black, index)) {
+      return Constants.BLACK;
+    } else if (get(this.white, index)) {
+      return Constants.WHITE;
+    }
+    return Constants.EMPTY;
+  }
+
+  /**
+   * Put a disc on a square or take it off, for setting up positions
+   * @param row Row of the square
+   * @param col Column of the square
+   * @param status One of Constants.WHITE, Constants.BLACK or
+   *        Constants.EMPTY
+   */
+  public void setStatus(int row, int col, int status) {
+    int index = this.index(row, col);
+    long bit = 1L << index;
+    this.black[index >>> 6] &= ~bit;
+    this.white[index >>> 6] &= ~bit;
+    if (status == Constants.BLACK) {
+      this.black[index >>> 6] |= bit;
+    } else if (status == Constants.WHITE) {
+      this.white[index >>> 6] |= bit;
+    }
+  }
+
+  /**
+   * Count the squares of one kind
+   * @param toMatch One of Constants.WHITE, Constants.BLACK or
+   *        Constants.EMPTY
+   * @return Number of matching squares
+   */
+  public int countSquares(int toMatch) {
+    int count = 0;
+    for (int i = 0; i < this.words; i++) {
+      long mask;
+      switch (toMatch) {
+        case Constants.BLACK: mask = this.black[i]; break;
+        case Constants.WHITE: mask = this.white[i]; break;
+        default:              mask = this.squares[i] & ~(this.black[i] | this.white[i]); break;
+      }
+      count += Long.bitCount(mask);
+    }
+    return count;
+  }
+
+  /**
+   * Generate the legal moves for a color.  Each direction is
+   * flood-filled through the opposing discs from every own disc at
+   * once, a shift of the whole board per step.
+   * @param color One of Constants.WHITE or Constants.BLACK
+   * @param moves Mask from newMask() to write the moves to
+   * @return Number of legal moves
+   */
+  public int legalMoves(int color, long[] moves) {
+    long[] own = this.discs(color);
+    long[] opp = this.discs(-color);
+    long[] run = this.run;
+    long[] empty = this.empty;
+    int words = this.words;
+    for (int i = 0; i < words; i++) {
+      empty[i] = this.squares[i] & ~(own[i] | opp[i]);
+      moves[i] = 0;
+    }
+    for (int dir : this.directions) {
+      shift(own, run, dir, words);
+      long any = 0;
+      for (int i = 0; i < words; i++) {
+        run[i] &= opp[i];
+        any |= run[i];
+      }
+      while (any != 0) {
+        shift(run, run, dir, words);
+        any = 0;
+        for (int i = 0; i < words; i++) {
+          moves[i] |= run[i] & empty[i];
+          run[i] &= opp[i];
+          any |= run[i];
+        }
+      }
+    }
+    int count = 0;
+    for (int i = 0; i < words; i++) {
+      count += Long.bitCount(moves[i]);
+    }
+    return count;
+  }
+
+  /**
+   * Find the discs a move would turn over
+   * @param color Color moving
+   * @param index Bit index of the move
+   * @param flipped Mask from newMask() to write the discs to
+   * @return Number of discs turned over.  Zero means the move is not
+   *         legal.
+   */
+  public int flips(int color, int index, long[] flipped) {
+    for (int i = 0; i < this.words; i++) {
+      flipped[i] = 0;
+    }
+    if (!get(this.squares, index) || get(this.black, index) || get(this.white, index)) {
+      return 0;
+    }
+    long[] own = this.discs(color);
+    long[] opp = this.discs(-color);
+    int limit = this.size * this.stride;
+    int count = 0;
+    for (int dir : this.directions) {
+      int next = index + dir;
+      while (next >= 0 && next < limit && get(opp, next)) {
+        next += dir;
+      }
+      if (next >= 0 && next < limit && get(own, next)) {
+        for (int square = index + dir; square != next; square += dir) {
+          set(flipped, square);
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Is this a legal move?
+   * @param color Color moving
+   * @param index Bit index of the move
+   * @param flipped Mask from newMask() to use as scratch
+   * @return True if the move turns over at least one disc
+   */
+  public boolean isLegalMove(int color, int index, long[] flipped) {
+    return this.flips(color, index, flipped) > 0;
+  }
+
+  /**
+   * Make a move if it is legal.  The other side is to move afterwards.
+   * @param color Color moving
+   * @param index Bit index of the move
+   * @param flipped Mask from newMask(); the discs turned over are
+   *        written to it, to pass to unmakeMove
+   * @return Number of discs turned over, zero if the move is not legal
+   *         and nothing changed
+   */
+  public int makeMove(int color, int index, long[] flipped) {
+    int count = this.flips(color, index, flipped);
+    if (count == 0) {
+      return 0;
+    }
+    long[] own = this.discs(color);
+    long[] opp = this.discs(-color);
+    for (int i = 0; i < this.words; i++) {
+      own[i] |= flipped[i];
+      opp[i] ^= flipped[i];
+    }
+    set(own, index);
+    this.sideToMove = -color;
+    return count;
+  }
+
+  /**
+   * Take back a move, putting every square and the side to move back
+   * as they were
+   * @param color Color that moved
+   * @param index Bit index of the move
+   * @param flipped Discs it turned over, as makeMove wrote them
+   */
+  public void unmakeMove(int color, int index, long[] flipped) {
+    long[] own = this.discs(color);
+    long[] opp = this.discs(-color);
+    for (int i = 0; i < this.words; i++) {
+      own[i] ^= flipped[i];
+      opp[i] |= flipped[i];
+    }
+    own[index >>> 6] &= ~(1L << index);
+    this.sideToMove = color;
+  }
+
+  /**
+   * Find the next square in a mask
+   * @param mask Mask to search
+   * @param from Bit index to start at
+   * @return Bit index of the first set bit at or after from, or -1
+   */
+  public static int nextSquare(long[] mask, int from) {
+    int word = from >>> 6;
+    if (word >= mask.length) {
+      return -1;
+    }
+    long bits = mask[word] & (-1L << from);
+    while (bits == 0) {
+      if (++word == mask.length) {
+        return -1;
+      }
+      bits = mask[word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Get the mask of one color's discs.  It is the board's own array.
+   */
+  private long[] discs(int color) {
+    return color == Constants.WHITE ? this.white : this.black;
+  }
+
+  /**
+   * Shift a mask towards higher bit indexes (dir > 0) or lower ones.
+   * The source and destination may be the same array.
+   */
+  private static void shift(long[] from, long[] to, int dir, int words) {
+    if (dir > 0) {
+      for (int i = words - 1; i > 0; i--) {
+        to[i] = (from[i] << dir) | (from[i - 1] >>> (64 - dir));
+      }
+      to[0] = from[0] << dir;
+    } else {
+      int n = -dir;
+      for (int i = 0; i < words - 1; i++) {
+        to[i] = (from[i] >>> n) | (from[i + 1] << (64 - n));
+      }
+      to[words - 1] = from[words - 1] >>> n;
+    }
+  }
+
+  private static boolean get(long[] mask, int index) {
+    return (mask[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private static void set(long[] mask, int index) {
+    mask[index >>> 6] |= 1L << index;
+  }
+
+  @Override
+  public String toString() {
+    Square[][] squares = new Square[this.size][this.size];
+    for (int row = 0; row < this.size; row++) {
+      for (int col = 0; col < this.size; col++) {
+        squares[row][col] = new Square(this.getStatus(row, col));
+      }
+    }
+    return new Board(squares).toString();
+  }
+
+}
@@ -0,0 +1,92 @@
+package com.mrjaffesclass.apcs.mvc;
+
+/**
+ * One game between two players on a WideBitBoard, so the board size is
+ * chosen at runtime.  It works like HeadlessGame: each game keeps its
+ * own board, and a player that returns null, a square off the board
+ * or an illegal move while it has a legal one forfeits the game.
+ * Players are asked through getNextMove(WideBitBoard), so only players
+ * that override it can play.
+ *
+ * @version 1.0
+ */
+public class WideHeadlessGame
+{
+  private final Player black;
+  private final Player white;
+  private final WideBitBoard board;
+  private final long[] moves;
+  private final long[] flipped;
+  private int forfeit = Constants.EMPTY;
+  private int moveCount;
+
+  /**
+   * Set up a game
+   * @param black Player with the black discs
+   * @param white Player with the white discs
+   * @param start Position to start from; it is not changed
+   */
+  public WideHeadlessGame(Player black, Player white, WideBitBoard start) {
+    this.black = black;
+    this.white = white;
+    this.board = start.copy();
+    this.moves = this.board.newMask();
+    this.flipped = this.board.newMask();
+  }
+
+  /**
+   * Play the game to the end
+   * @return Black's discs minus white's discs.  A forfeit counts as
+   *         every square to nothing.
+   */
+  public int play() {
+    int size = this.board.getSize();
+    while (true) {
+      int side = this.board.getSideToMove();
+      if (this.board.legalMoves(side, this.moves) == 0) {
+        if (this.board.legalMoves(-side, this.flipped) == 0) {
+          break;
+        }
+        this.board.pass();
+        continue;
+      }
+      Player player = side == Constants.BLACK ? this.black : this.white;
+      Position move = player.getNextMove(this.board.copy());
+      int index = move == null ? -1 : this.board.index(move.getRow(), move.getCol());
+      if (move == null || !this.board.onBoard(move.getRow(), move.getCol())
+          || WideBitBoard.nextSquare(this.moves, index) != index) {
+        this.forfeit = side;
+        return side == Constants.BLACK ? -size * size : size * size;
+      }
+      this.board.makeMove(side, index, this.flipped);
+      this.moveCount++;
+    }
+    return this.board.countSquares(Constants.BLACK) - this.board.countSquares(Constants.WHITE);
+  }
+
+  /**
+   * Get the current position
+   * @return The game's board; don't change it
+   */
+  public WideBitBoard getBoard() {
+    return this.board;
+  }
+
+  /**
+   * Get the color that forfeited
+   * @return Constants.WHITE or Constants.BLACK, or Constants.EMPTY if
+   *         nobody forfeited
+   */
+  public int getForfeit() {
+    return this.forfeit;
+  }
+
+  /**
+   * Get the number of moves played, not counting passes
+   * @return Move count
+   */
+  public int getMoveCount() {
+    return this.moveCount;
+  }
+
+}
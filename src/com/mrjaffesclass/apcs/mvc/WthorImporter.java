@@ -0,0 +1,159 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Converts WTHOR game databases (the .wtb files of the French Othello
+ * federation) to game records.  Files are streamed one game at a time
+ * and every game is replayed, so games with an illegal move are
+ * dropped instead of imported.
+ *
+ * WTHOR layout, little-endian:
+ *   header, 16 bytes: creation date (4 bytes), int number of games,
+ *     short number of records, short year, byte board size (0 or 8),
+ *     byte game type, byte depth, byte unused
+ *   each game, 68 bytes: short tournament, short black player, short
+ *     white player, byte black's discs, byte theoretical score, 60
+ *     moves of one byte each, 10 * row + col counted from 1 (f5 = 56),
+ *     0 after the last move
+ * Black always moves first.
+ *
+ * Usage: java com.mrjaffesclass.apcs.mvc.WthorImporter output file.wtb...
+ *
+ * @version 1.0
+ */
+public class WthorImporter
+{
+  static final int HEADER_BYTES = 16;
+
+  static final int GAME_BYTES = 68;
+
+  /**
+   * Offset of the first move in a game
+   */
+  private static final int MOVES_OFFSET = 8;
+
+  private final GameRecordWriter out;
+  private final byte[] game = new byte[GAME_BYTES];
+  private final byte[] moves = new byte[GameRecord.MAX_MOVES];
+  private long imported;
+  private long rejected;
+
+  /**
+   * Set up an import
+   * @param out Where converted games are written
+   */
+  public WthorImporter(GameRecordWriter out) {
+    this.out = out;
+  }
+
+  /**
+   * Import every game of one database file
+   * @param fileName WTHOR file
+   * @return Number of games imported from this file
+   * @throws IOException if the file can't be read or isn't a WTHOR
+   *         game file for an 8x8 board
+   */
+  public long importFile(String fileName) throws IOException {
+    long before = this.imported;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(fileName), 1 << 16))) {
+      byte[] header = new byte[HEADER_BYTES];
+      in.readFully(header);
+      ByteBuffer fields = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+      long games = fields.getInt(4) & 0xFFFFFFFFL;
+      int boardSize = header[12];
+      if (boardSize != 0 && boardSize != Constants.SIZE) {
+        throw new IOException(fileName + " is for a " + boardSize + "x" + boardSize + " board");
+      }
+      for (long g = 0; g < games; g++) {
+        try {
+          in.readFully(this.game);
+        } catch (EOFException e) {
+          throw new IOException(fileName + " ends after " + g + " of " + games + " games", e);
+        }
+        GameRecord record = this.convert(this.game);
+        if (record != null) {
+          this.out.write(record);
+          this.imported++;
+        } else {
+          this.rejected++;
+        }
+      }
+    }
+    return this.imported - before;
+  }
+
+  /**
+   * Convert one WTHOR game and check it by replaying it
+   * @param game The game's 68 bytes
+   * @return Record, or null if a move is illegal or out of range
+   */
+  GameRecord convert(byte[] game) {
+    BitBoard board = new BitBoard();
+    int count = 0;
+    for (int i = MOVES_OFFSET; i < GAME_BYTES && game[i] != 0; i++) {
+      int row = game[i] / 10 - 1;
+      int col = game[i] % 10 - 1;
+      if (row < 0 || row >= Constants.SIZE || col < 0 || col >= Constants.SIZE) {
+        return null;
+      }
+      int move = BitBoard.index(row, col);
+      int side = board.getSideToMove();
+      if (board.legalMoves(side) == 0) {
+        board.pass();
+        side = -side;
+      }
+      if (board.makeMove(side, move) == 0) {
+        return null;
+      }
+      this.moves[count++] = (byte) move;
+    }
+    int result = board.countSquares(Constants.BLACK) - board.countSquares(Constants.WHITE);
+    return new GameRecord(Constants.BLACK, this.moves, count, result);
+  }
+
+  /**
+   * Get the number of games imported
+   * @return Game count
+   */
+  public long getImported() {
+    return this.imported;
+  }
+
+  /**
+   * Get the number of games dropped because a move was illegal
+   * @return Game count
+   */
+  public long getRejected() {
+    return this.rejected;
+  }
+
+  /**
+   * Program entry
+   * @param args Output file, then WTHOR files
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Usage: WthorImporter output file.wtb...");
+      System.exit(2);
+    }
+    long start = System.nanoTime();
+    try (GameRecordWriter out = new GameRecordWriter(args[0])) {
+      WthorImporter importer = new WthorImporter(out);
+      for (int i = 1; i < args.length; i++) {
+        System.out.println(args[i] + ": " + importer.importFile(args[i]) + " games");
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.println(String.format("%d games imported, %d rejected, %.2f s, %.0f games/sec",
+        importer.getImported(), importer.getRejected(), seconds, importer.getImported() / seconds));
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+package com.mrjaffesclass.apcs.mvc;
+
+import java.util.Random;
+
+/**
+ * Zobrist keys for hashing a board plus the side to move.  The hash of
+ * a position is the XOR of the key for every disc on the board and,
+ * when white is to move, the side key.  A move changes it by the key
+ * of the placed disc, the flip key of each turned-over disc and the
+ * side key, so it can be kept up to date as moves are made.
+ *
+ * @version 1.0
+ */
+public class Zobrist
+{
+  /**
+   * Seed for the keys.  Fixed so hashes are the same from run to run.
+   */
+  private static final long SEED = 0x4F7468656C6C6FL;
+
+  private static final long[] BLACK_KEYS = new long[Constants.SIZE * Constants.SIZE];
+  private static final long[] WHITE_KEYS = new long[Constants.SIZE * Constants.SIZE];
+
+  /**
+   * BLACK_KEYS[i] ^ WHITE_KEYS[i], the change when a disc turns over
+   */
+  private static final long[] FLIP_KEYS = new long[Constants.SIZE * Constants.SIZE];
+
+  /**
+   * Key that is present when white is to move
+   */
+  static final long SIDE_KEY;
+
+  static {
+    Random random = new Random(SEED);
+    for (int i = 0; i < BLACK_KEYS.length; i++) {
+      BLACK_KEYS[i] = random.nextLong();
+      WHITE_KEYS[i] = random.nextLong();
+      FLIP_KEYS[i] = BLACK_KEYS[i] ^ WHITE_KEYS[i];
+    }
+    SIDE_KEY = random.nextLong();
+  }
+
+  /**
+   * Hash a position from scratch
+   * @param black Mask of the black discs
+   * @param white Mask of the white discs
+   * @param sideToMove One of Constants.WHITE or Constants.BLACK
+   * @return Zobrist hash
+   */
+  public static long hash(long black, long white, int sideToMove) {
+    long hash = sideToMove == Constants.WHITE ? SIDE_KEY : 0;
+    while (black != 0) {
+      hash ^= BLACK_KEYS[Long.numberOfTrailingZeros(black)];
+      black &= black - 1;
+    }
+    while (white != 0) {
+      hash ^= WHITE_KEYS[Long.numberOfTrailingZeros(white)];
+      white &= white - 1;
+    }
+    return hash;
+  }
+
+  /**
+   * Get the change in hash caused by a move.  XOR it into the hash of
+   * the position before the move.
+   * @param color Color of the player moving
+   * @param index Bit index of the placed disc
+   * @param flipped Mask of the discs turned over
+   * @return Hash difference, including the change of side to move
+   */
+  public static long move(int color, int index, long flipped) {
+    long change = SIDE_KEY ^ (color == Constants.BLACK ? BLACK_KEYS[index] : WHITE_KEYS[index]);
+    while (flipped != 0) {
+      change ^= FLIP_KEYS[Long.numberOfTrailingZeros(flipped)];
+      flipped &= flipped - 1;
+    }
+    return change;
+  }
+
+}